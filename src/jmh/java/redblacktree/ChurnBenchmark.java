@@ -0,0 +1,129 @@
+package redblacktree;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Long-running randomized churn benchmark for RedBlackTree. The tree is
+ * filled to a target size and then receives a steady stream of random inserts
+ * and removes that keep its size around that target, and the score is the
+ * time of one operation. The tree is kept across iterations. After every
+ * iteration the maximum and average depth of its nodes are reported as the
+ * secondary results maxDepth and avgDepth, and the maximum depth is checked
+ * against the red-black bound of 2*log2(n+1): the run fails when the bound is
+ * broken. JMH adds these counters up over the iterations in its summary, so
+ * read them from the lines of the single iterations.
+ *   mvn -Pjmh package
+ *   java -jar target/benchmarks.jar ChurnBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 20, time = 1)
+@Fork(1)
+public class ChurnBenchmark {
+
+  @State(Scope.Thread)
+  public static class Churn {
+    @Param({ "100000" })
+    public int size;
+
+    RedBlackTree<Integer> tree;
+    int keyRange;
+    long seed = 400;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      tree = new RedBlackTree<>();
+      keyRange = size * 2;
+      Random random = new Random(400);
+      while (tree.size() < size) tree.tryInsert(random.nextInt(keyRange));
+    }
+
+    /**
+     * @return the next key below keyRange from a xorshift generator
+     */
+    int next() {
+      seed ^= seed << 13;
+      seed ^= seed >>> 7;
+      seed ^= seed << 17;
+      return (int) ((seed >>> 1) % keyRange);
+    }
+  }
+
+  /**
+   * The maximum and average depth of the nodes at the end of each
+   * iteration, which JMH reports next to the score of that iteration.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class Depth {
+    public long maxDepth;
+    public double avgDepth;
+
+    @TearDown(Level.Iteration)
+    public void measure(Churn state) {
+      long[] depths = depths(state.tree.root);
+      int size = state.tree.size();
+      double bound = 2 * Math.log(size + 1) / Math.log(2);
+      if (depths[0] > bound) {
+        throw new IllegalStateException("Depth " + depths[0] + " exceeds the bound " + bound);
+      }
+      maxDepth = depths[0];
+      avgDepth = depths[1] / (double) size;
+    }
+  }
+
+  @Benchmark
+  public boolean churn(Churn state, Depth depth) {
+    Integer key = state.next();
+    RedBlackTree<Integer> tree = state.tree;
+    if (tree.contains(key)) return tree.remove(key);
+    return tree.insert(key);
+  }
+
+  /**
+   * Walks the tree through its parent links and measures the depth of every
+   * node, counting the root as depth 1.
+   * @return the maximum depth and the sum of all depths
+   */
+  private static long[] depths(RedBlackTree.Node<Integer> root) {
+    long maxDepth = 0;
+    long totalDepth = 0;
+    RedBlackTree.Node<Integer> current = root;
+    int depth = 1;
+    RedBlackTree.Node<Integer> previous = null;
+    while (current != null) {
+      RedBlackTree.Node<Integer> next;
+      if (previous == current.parent) {
+        // first visit of current
+        maxDepth = Math.max(maxDepth, depth);
+        totalDepth += depth;
+        next = current.left != null ? current.left
+            : current.right != null ? current.right : current.parent;
+      } else if (previous == current.left && current.right != null) {
+        next = current.right;
+      } else {
+        next = current.parent;
+      }
+      depth += (next != null && next.parent == current) ? 1 : -1;
+      previous = current;
+      current = next;
+    }
+    return new long[] { maxDepth, totalDepth };
+  }
+}
@@ -0,0 +1,172 @@
+package redblacktree;
+
+import java.util.Collections;
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks of ConcurrentRedBlackTree and ShardedRedBlackTree against a
+ * synchronized TreeSet and a ConcurrentSkipListSet, shared by 1, 4 or 16
+ * threads. Every thread runs a random mix of contains, insert and remove
+ * calls on keys below keyRange, with readPercent percent contains calls and
+ * the rest split evenly between inserts and removes. The set starts half
+ * full, so inserts and removes both mostly succeed and its size stays about
+ * the same. The scores are the total throughput of all threads.
+ *   mvn -Pjmh package
+ *   java -jar target/benchmarks.jar ConcurrentBenchmark
+ * and narrow the parameters with e.g. -p readPercent=90 -p set=ShardedRedBlackTree.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentBenchmark {
+
+  /**
+   * The operations the benchmark needs from each of the compared sets.
+   */
+  private interface Target {
+    boolean contains(int key);
+    boolean insert(int key);
+    boolean remove(int key);
+  }
+
+  /**
+   * The set shared by all threads of a run.
+   */
+  @State(Scope.Benchmark)
+  public static class SharedSet {
+    @Param({ "ConcurrentRedBlackTree", "ShardedRedBlackTree", "SynchronizedTreeSet", "ConcurrentSkipListSet" })
+    public String set;
+
+    @Param({ "50", "90", "95", "99" })
+    public int readPercent;
+
+    @Param({ "1000000" })
+    public int keyRange;
+
+    // the shards of ShardedRedBlackTree, at least one per thread of the largest run
+    @Param({ "16" })
+    public int shards;
+
+    Target values;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      values = newSet(set, shards);
+      Random random = new Random(400);
+      for (int i = 0; i < keyRange / 2; i++) values.insert(random.nextInt(keyRange));
+    }
+  }
+
+  /**
+   * The random keys and operations of one thread.
+   */
+  @State(Scope.Thread)
+  public static class Stream {
+    // every thread starts its generator from a different seed
+    private static final AtomicLong SEEDS = new AtomicLong(400);
+
+    long seed = SEEDS.getAndIncrement() * 0x9E3779B97F4A7C15L;
+
+    /**
+     * @return the next value of a xorshift generator, never negative
+     */
+    int next() {
+      seed ^= seed << 13;
+      seed ^= seed >>> 7;
+      seed ^= seed << 17;
+      return (int) (seed >>> 33);
+    }
+  }
+
+  @Benchmark
+  @Threads(1)
+  public boolean mixed1(SharedSet shared, Stream stream) {
+    return operate(shared, stream);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public boolean mixed4(SharedSet shared, Stream stream) {
+    return operate(shared, stream);
+  }
+
+  @Benchmark
+  @Threads(16)
+  public boolean mixed16(SharedSet shared, Stream stream) {
+    return operate(shared, stream);
+  }
+
+  private static boolean operate(SharedSet shared, Stream stream) {
+    int key = stream.next() % shared.keyRange;
+    int choice = stream.next() % 100;
+    if (choice < shared.readPercent) return shared.values.contains(key);
+    if ((choice & 1) == 0) return shared.values.insert(key);
+    return shared.values.remove(key);
+  }
+
+  private static Target newSet(String name, int shards) {
+    switch (name) {
+      case "ConcurrentRedBlackTree": return concurrentTree();
+      case "ShardedRedBlackTree": return shardedTree(shards);
+      case "SynchronizedTreeSet": return synchronizedTreeSet();
+      case "ConcurrentSkipListSet": return skipListSet();
+      default: throw new IllegalArgumentException("Unknown set: " + name);
+    }
+  }
+
+  private static Target concurrentTree() {
+    ConcurrentRedBlackTree<Integer> tree = new ConcurrentRedBlackTree<>();
+    return new Target() {
+      public boolean contains(int key) { return tree.contains(key); }
+      public boolean insert(int key) { return tree.tryInsert(key); }
+      public boolean remove(int key) { return tree.tryRemove(key); }
+    };
+  }
+
+  private static Target shardedTree(int shards) {
+    ShardedRedBlackTree<Integer> tree = new ShardedRedBlackTree<>(shards);
+    return new Target() {
+      public boolean contains(int key) { return tree.contains(key); }
+      public boolean insert(int key) { return tree.tryInsert(key); }
+      public boolean remove(int key) { return tree.tryRemove(key); }
+    };
+  }
+
+  private static Target synchronizedTreeSet() {
+    SortedSet<Integer> set = Collections.synchronizedSortedSet(new TreeSet<>());
+    return new Target() {
+      public boolean contains(int key) { return set.contains(key); }
+      public boolean insert(int key) { return set.add(key); }
+      public boolean remove(int key) { return set.remove(key); }
+    };
+  }
+
+  private static Target skipListSet() {
+    ConcurrentSkipListSet<Integer> set = new ConcurrentSkipListSet<>();
+    return new Target() {
+      public boolean contains(int key) { return set.contains(key); }
+      public boolean insert(int key) { return set.add(key); }
+      public boolean remove(int key) { return set.remove(key); }
+    };
+  }
+}
@@ -0,0 +1,92 @@
+package redblacktree;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks of inserts and removes on a duplicate-heavy workload. Most
+ * of the operations hit values that are already in the tree (for inserts) or
+ * missing from it (for removes). The throwing insert and remove, caught by the
+ * caller, are compared with tryInsert and tryRemove, which report the same
+ * outcomes through their return value. Invocations alternate between an
+ * insert and a remove, and the scores are the time of one operation.
+ *   mvn -Pjmh package
+ *   java -jar target/benchmarks.jar DuplicateBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DuplicateBenchmark {
+
+  // the number of keys in an operation stream, a power of two
+  private static final int STREAM_LENGTH = 1 << 20;
+
+  /**
+   * A tree holding the values 0 to size - 1, refilled before each iteration,
+   * and a stream of keys to insert or remove.
+   */
+  @State(Scope.Thread)
+  public static class FilledTree {
+    @Param({ "100000" })
+    public int size;
+
+    RedBlackTree<Integer> tree;
+    int[] keys;
+    int position;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      // keys are drawn from a range only slightly larger than the tree, so
+      // about 90% of the inserts are duplicates and 90% of the removes miss
+      int keyRange = size + size / 9;
+      keys = new int[STREAM_LENGTH];
+      Random random = new Random(400);
+      for (int i = 0; i < STREAM_LENGTH; i++) keys[i] = random.nextInt(keyRange);
+    }
+
+    @Setup(Level.Iteration)
+    public void refill() {
+      tree = new RedBlackTree<>();
+      for (int i = 0; i < size; i++) tree.insert(i);
+      position = 0;
+    }
+
+    int nextIndex() {
+      return position++ & (STREAM_LENGTH - 1);
+    }
+  }
+
+  @Benchmark
+  public boolean insertAndRemove(FilledTree state) {
+    int index = state.nextIndex();
+    try {
+      if ((index & 1) == 0) return state.tree.insert(state.keys[index]);
+      // removes target values just above the filled range, which mostly miss
+      return state.tree.remove(state.keys[index] + state.size);
+    } catch (IllegalArgumentException e) {
+      // duplicate or miss
+      return false;
+    }
+  }
+
+  @Benchmark
+  public boolean tryInsertAndTryRemove(FilledTree state) {
+    int index = state.nextIndex();
+    if ((index & 1) == 0) return state.tree.tryInsert(state.keys[index]);
+    return state.tree.tryRemove(state.keys[index] + state.size);
+  }
+}
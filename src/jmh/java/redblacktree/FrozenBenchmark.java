@@ -0,0 +1,118 @@
+package redblacktree;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks of contains and rank on the frozen Eytzinger-layout trees
+ * against the live trees they were frozen from: RedBlackTree and
+ * FrozenRedBlackTree with Integer values, and IntRedBlackTree and
+ * FrozenIntRedBlackTree with int values. The trees hold the even numbers
+ * 0, 2, ..., 2(size - 1); at 1e7 values every variant is far larger than
+ * the L3 cache. Keys follow the KeyDistribution, so about half of the
+ * random lookups miss.
+ *   mvn -Pjmh package
+ *   java -jar target/benchmarks.jar FrozenBenchmark -p size=10000000
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class FrozenBenchmark {
+
+  // the number of keys in a lookup stream, a power of two
+  private static final int STREAM_LENGTH = 1 << 16;
+
+  @State(Scope.Thread)
+  public static class Trees {
+    @Param({ "1000", "100000", "1000000", "10000000" })
+    public int size;
+
+    @Param({ "RANDOM", "ZIPFIAN" })
+    public KeyDistribution distribution;
+
+    RedBlackTree<Integer> live;
+    FrozenRedBlackTree<Integer> frozen;
+    IntRedBlackTree liveInt;
+    FrozenIntRedBlackTree frozenInt;
+    int[] keys;
+    Integer[] boxedKeys;
+    int position;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      Integer[] values = new Integer[size];
+      for (int i = 0; i < size; i++) values[i] = 2 * i;
+      live = RedBlackTree.buildFromSorted(values);
+      frozen = live.freeze();
+      // random insertion order, so the nodes are not laid out in key order
+      Random random = new Random(400);
+      liveInt = new IntRedBlackTree();
+      int[] shuffled = new int[size];
+      for (int i = 0; i < size; i++) shuffled[i] = 2 * i;
+      for (int i = size - 1; i > 0; i--) {
+        int j = random.nextInt(i + 1);
+        int swap = shuffled[i];
+        shuffled[i] = shuffled[j];
+        shuffled[j] = swap;
+      }
+      for (int value : shuffled) liveInt.insert(value);
+      frozenInt = liveInt.freeze();
+      keys = distribution.keys(size, STREAM_LENGTH, random);
+      boxedKeys = new Integer[STREAM_LENGTH];
+      for (int i = 0; i < STREAM_LENGTH; i++) boxedKeys[i] = keys[i];
+    }
+
+    int nextIndex() {
+      return position++ & (STREAM_LENGTH - 1);
+    }
+  }
+
+  @Benchmark
+  public boolean containsLive(Trees state) {
+    return state.live.contains(state.boxedKeys[state.nextIndex()]);
+  }
+
+  @Benchmark
+  public boolean containsFrozen(Trees state) {
+    return state.frozen.contains(state.boxedKeys[state.nextIndex()]);
+  }
+
+  @Benchmark
+  public boolean containsLiveInt(Trees state) {
+    return state.liveInt.contains(state.keys[state.nextIndex()]);
+  }
+
+  @Benchmark
+  public boolean containsFrozenInt(Trees state) {
+    return state.frozenInt.contains(state.keys[state.nextIndex()]);
+  }
+
+  @Benchmark
+  public int rankLive(Trees state) {
+    return state.live.rank(state.boxedKeys[state.nextIndex()]);
+  }
+
+  @Benchmark
+  public int rankFrozen(Trees state) {
+    return state.frozen.rank(state.boxedKeys[state.nextIndex()]);
+  }
+
+  @Benchmark
+  public int rankFrozenInt(Trees state) {
+    return state.frozenInt.rank(state.keys[state.nextIndex()]);
+  }
+}
@@ -0,0 +1,71 @@
+package redblacktree;
+
+import java.util.Random;
+
+/**
+ * Key streams for the JMH benchmarks. The benchmarked sets hold the even
+ * numbers 0, 2, ..., 2(size - 1), and the streams draw keys from the range
+ * [0, 2 size), so about half of the random lookups miss.
+ */
+public enum KeyDistribution {
+
+  /** Keys in ascending order, wrapping around at the end of the range. */
+  SEQUENTIAL {
+    @Override
+    int[] keys(int size, int count, Random random) {
+      int[] keys = new int[count];
+      for (int i = 0; i < count; i++) keys[i] = (int) (i % (2L * size));
+      return keys;
+    }
+  },
+
+  /** Keys drawn uniformly from the range. */
+  RANDOM {
+    @Override
+    int[] keys(int size, int count, Random random) {
+      int[] keys = new int[count];
+      for (int i = 0; i < count; i++) keys[i] = random.nextInt(2 * size);
+      return keys;
+    }
+  },
+
+  /**
+   * Keys drawn from a Zipfian distribution with exponent 0.99, as in YCSB. The
+   * ranks are scattered over the range by a hash, so the popular keys are not
+   * neighbours in the tree.
+   */
+  ZIPFIAN {
+    @Override
+    int[] keys(int size, int count, Random random) {
+      int range = 2 * size;
+      double theta = 0.99;
+      double zetan = 0;
+      for (int i = 1; i <= range; i++) zetan += 1 / Math.pow(i, theta);
+      double zeta2 = 1 + 1 / Math.pow(2, theta);
+      double alpha = 1 / (1 - theta);
+      double eta = (1 - Math.pow(2.0 / range, 1 - theta)) / (1 - zeta2 / zetan);
+      int[] keys = new int[count];
+      for (int i = 0; i < count; i++) {
+        double u = random.nextDouble();
+        double uz = u * zetan;
+        long rank;
+        if (uz < 1) {
+          rank = 0;
+        } else if (uz < zeta2) {
+          rank = 1;
+        } else {
+          rank = Math.min(range - 1, (long) (range * Math.pow(eta * u - eta + 1, alpha)));
+        }
+        keys[i] = (int) Long.remainderUnsigned(rank * 0x9E3779B97F4A7C15L, range);
+      }
+      return keys;
+    }
+  };
+
+  /**
+   * @param size the number of values in the benchmarked set
+   * @param count the number of keys to draw
+   * @return count keys from the range [0, 2 size)
+   */
+  abstract int[] keys(int size, int count, Random random);
+}
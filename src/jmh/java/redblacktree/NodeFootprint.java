@@ -0,0 +1,111 @@
+package redblacktree;
+
+/**
+ * Reports the heap footprint of a RedBlackTree node. The bytes per entry of
+ * the current RedBlackTree.Node layout (parent/left/right fields, a byte
+ * color and an int subtree size) are measured against the previous layout,
+ * which stored the context of each node in a separate Node[3] array and its
+ * color in an int, and against the flattened layout without the subtree
+ * size, which shows what the size costs per node (32 against 40 bytes with
+ * compressed oops).
+ * The measurement allocates many nodes and compares the used heap before and
+ * after, which gives the same numbers as a JOL layout check on HotSpot without
+ * needing an agent. Run with a fixed heap (e.g. -Xms2g -Xmx2g) for stable output.
+ */
+public class NodeFootprint {
+
+  /**
+   * The node layout used before RedBlackTree.Node was flattened.
+   */
+  private static class ContextArrayNode<T> {
+    public T data;
+    @SuppressWarnings("unchecked")
+    public ContextArrayNode<T>[] context = (ContextArrayNode<T>[])new ContextArrayNode[3];
+    public int blackHeight=0;
+    public ContextArrayNode(T data) { this.data = data; }
+  }
+
+  /**
+   * The flattened node layout without the subtree size.
+   */
+  private static class UnsizedNode<T> {
+    public T data;
+    public UnsizedNode<T> parent;
+    public UnsizedNode<T> left;
+    public UnsizedNode<T> right;
+    public byte blackHeight=0;
+    public UnsizedNode(T data) { this.data = data; }
+  }
+
+  private static final int COUNT = 2_000_000;
+
+  /**
+   * @return the number of heap bytes currently in use, after requesting a gc
+   */
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 4; i++) {
+      System.gc();
+      try {
+        Thread.sleep(50);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  /**
+   * Measures the bytes per node of the current RedBlackTree.Node layout.
+   * All nodes share one data value so only the node itself is counted.
+   * @return the average number of heap bytes used by one node
+   */
+  private static double currentLayout() {
+    Integer data = 0;
+    Object[] holder = new Object[COUNT];
+    long before = usedHeap();
+    for (int i = 0; i < COUNT; i++) holder[i] = new RedBlackTree.Node<Integer>(data);
+    long after = usedHeap();
+    if (holder[COUNT - 1] == null) throw new IllegalStateException();
+    return (after - before) / (double) COUNT;
+  }
+
+  /**
+   * Measures the bytes per node of the previous context array layout.
+   * @return the average number of heap bytes used by one node and its array
+   */
+  private static double contextArrayLayout() {
+    Integer data = 0;
+    Object[] holder = new Object[COUNT];
+    long before = usedHeap();
+    for (int i = 0; i < COUNT; i++) holder[i] = new ContextArrayNode<Integer>(data);
+    long after = usedHeap();
+    if (holder[COUNT - 1] == null) throw new IllegalStateException();
+    return (after - before) / (double) COUNT;
+  }
+
+  /**
+   * Measures the bytes per node of the flattened layout without the subtree size.
+   * @return the average number of heap bytes used by one node
+   */
+  private static double unsizedLayout() {
+    Integer data = 0;
+    Object[] holder = new Object[COUNT];
+    long before = usedHeap();
+    for (int i = 0; i < COUNT; i++) holder[i] = new UnsizedNode<Integer>(data);
+    long after = usedHeap();
+    if (holder[COUNT - 1] == null) throw new IllegalStateException();
+    return (after - before) / (double) COUNT;
+  }
+
+  public static void main(String[] args) {
+    double previous = contextArrayLayout();
+    double unsized = unsizedLayout();
+    double current = currentLayout();
+    System.out.printf("context[] array layout: %.1f bytes per entry%n", previous);
+    System.out.printf("flattened, no subtree size: %.1f bytes per entry%n", unsized);
+    System.out.printf("flattened field layout: %.1f bytes per entry%n", current);
+    System.out.printf("saved: %.1f bytes per entry (%.0f%%)%n",
+        previous - current, 100 * (previous - current) / previous);
+  }
+}
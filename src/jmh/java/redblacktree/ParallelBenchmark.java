@@ -0,0 +1,95 @@
+package redblacktree;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks of sequential traversal of a RedBlackTree against its
+ * parallel stream and fork-join reduce on pools of 1, 4 and 16 threads. Every
+ * benchmark sums a value derived from each element, so the work per element
+ * is small and the scores mostly show how well the traversal itself scales.
+ * The scores are the time of one pass over the tree.
+ *   mvn -Pjmh package
+ *   java -jar target/benchmarks.jar ParallelBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelBenchmark {
+
+  /**
+   * A tree holding the values 0 to size - 1.
+   */
+  @State(Scope.Benchmark)
+  public static class Tree {
+    @Param({ "4000000" })
+    public int size;
+
+    RedBlackTree<Integer> values;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      Integer[] sorted = new Integer[size];
+      for (int i = 0; i < size; i++) sorted[i] = i;
+      values = RedBlackTree.buildFromSorted(sorted);
+    }
+  }
+
+  /**
+   * The pool the parallel traversals run in.
+   */
+  @State(Scope.Benchmark)
+  public static class Pool {
+    @Param({ "1", "4", "16" })
+    public int threads;
+
+    ForkJoinPool pool;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      pool = new ForkJoinPool(threads);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      pool.shutdown();
+    }
+  }
+
+  @Benchmark
+  public long sequentialIterator(Tree tree) {
+    long sum = 0;
+    for (Integer value : tree.values) sum += work(value);
+    return sum;
+  }
+
+  @Benchmark
+  public long parallelStream(Tree tree, Pool pool) throws InterruptedException, ExecutionException {
+    return pool.pool.submit(() -> tree.values.stream().parallel().mapToLong(ParallelBenchmark::work).sum()).get();
+  }
+
+  @Benchmark
+  public long forkJoinReduce(Tree tree, Pool pool) throws InterruptedException, ExecutionException {
+    return pool.pool.submit(() -> tree.values.reduce(0L, (sum, value) -> sum + work(value), Long::sum)).get();
+  }
+
+  private static long work(Integer value) {
+    return value ^ (value >>> 3);
+  }
+}
@@ -0,0 +1,118 @@
+package redblacktree;
+
+import java.util.Comparator;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks of ComparatorRedBlackTree on String keys with and without
+ * the cached STRING_PREFIX, against RedBlackTree with compareTo. URL keys all
+ * start with "https://", so their first 8 characters never decide a
+ * comparison and the prefix mode only pays its overhead; UUID keys differ
+ * within their first few characters, so almost every comparison is decided
+ * by the prefixes. At the end of each trial the number of comparator calls
+ * per lookup is printed.
+ *   mvn -Pjmh package
+ *   java -jar target/benchmarks.jar PrefixBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrefixBenchmark {
+
+  // the number of keys in a lookup stream, a power of two
+  private static final int STREAM_LENGTH = 1 << 16;
+
+  private static final String[] HOSTS = { "example.com", "example.org", "www.example.net", "api.example.io" };
+  private static final String[] PATHS = { "users", "orders", "items", "static/img", "docs/reference" };
+
+  @State(Scope.Thread)
+  public static class FilledTree {
+    @Param({ "ComparatorRedBlackTree", "PrefixRedBlackTree", "RedBlackTree" })
+    public String tree;
+
+    @Param({ "10000", "1000000" })
+    public int size;
+
+    @Param({ "URL", "UUID" })
+    public String keySet;
+
+    ComparatorRedBlackTree<String> comparatorTree;
+    RedBlackTree<String> naturalTree;
+    long comparatorCalls; // counted by the comparator of comparatorTree
+    String[] keys;
+    int position;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      Comparator<String> counting = (a, b) -> {
+        comparatorCalls++;
+        return a.compareTo(b);
+      };
+      if (tree.equals("ComparatorRedBlackTree")) {
+        comparatorTree = new ComparatorRedBlackTree<>(counting);
+      } else if (tree.equals("PrefixRedBlackTree")) {
+        comparatorTree = new ComparatorRedBlackTree<>(counting, ComparatorRedBlackTree.STRING_PREFIX);
+      } else {
+        naturalTree = new RedBlackTree<>();
+      }
+      Random random = new Random(400);
+      String[] values = new String[size];
+      for (int i = 0; i < size; i++) {
+        values[i] = keySet.equals("URL") ? randomUrl(random) : randomUuid(random);
+        if (comparatorTree != null) comparatorTree.tryInsert(values[i]);
+        else naturalTree.tryInsert(values[i]);
+      }
+      // half of the lookups hit, the other half miss; the hits are copies so
+      // that equal strings are never identical and the comparator runs
+      keys = new String[STREAM_LENGTH];
+      for (int i = 0; i < STREAM_LENGTH; i++) {
+        keys[i] = random.nextBoolean() ? new String(values[random.nextInt(size)])
+            : keySet.equals("URL") ? randomUrl(random) : randomUuid(random);
+      }
+      comparatorCalls = 0;
+    }
+
+    @TearDown(Level.Trial)
+    public void report() {
+      if (comparatorTree != null) {
+        System.out.printf("%ncomparator calls per lookup: %.2f%n", (double) comparatorCalls / position);
+      }
+    }
+
+    String nextKey() {
+      return keys[position++ & (STREAM_LENGTH - 1)];
+    }
+  }
+
+  @Benchmark
+  public boolean contains(FilledTree state) {
+    String key = state.nextKey();
+    return state.comparatorTree != null ? state.comparatorTree.contains(key) : state.naturalTree.contains(key);
+  }
+
+  private static String randomUrl(Random random) {
+    return "https://" + HOSTS[random.nextInt(HOSTS.length)] + "/" + PATHS[random.nextInt(PATHS.length)]
+        + "/" + Integer.toString(random.nextInt(1 << 30), 36);
+  }
+
+  private static String randomUuid(Random random) {
+    return new UUID(random.nextLong(), random.nextLong()).toString();
+  }
+}
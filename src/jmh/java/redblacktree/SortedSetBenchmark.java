@@ -0,0 +1,204 @@
+package redblacktree;
+
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmarks of RedBlackTree against TreeSet and ConcurrentSkipListSet.
+ * Every benchmark runs on a set holding the even numbers 0, 2, ...,
+ * 2(size - 1), for sizes from 1e3 to 1e7, with keys drawn sequentially,
+ * uniformly or from a Zipfian distribution (see KeyDistribution).
+ * contains and mixed report the time of a single operation. insert, remove
+ * and iterate report the time to insert, remove or visit size values, so
+ * divide by size for the cost per value.
+ * Run with the GC profiler for allocation rates, either through main or with
+ *   mvn -Pjmh package
+ *   java -jar target/benchmarks.jar SortedSetBenchmark -prof gc
+ * and narrow the parameters with e.g. -p size=1000000 -p set=RedBlackTree.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SortedSetBenchmark {
+
+  // the number of keys in a lookup stream, a power of two
+  private static final int STREAM_LENGTH = 1 << 16;
+
+  /**
+   * A set filled with size values and a stream of keys to look up or change.
+   */
+  @State(Scope.Thread)
+  public static class FilledSet {
+    @Param({ "RedBlackTree", "TreeSet", "ConcurrentSkipListSet" })
+    public String set;
+
+    @Param({ "1000", "10000", "100000", "1000000", "10000000" })
+    public int size;
+
+    @Param({ "SEQUENTIAL", "RANDOM", "ZIPFIAN" })
+    public KeyDistribution distribution;
+
+    NavigableSet<Integer> values;
+    int[] keys;
+    // per key of the stream: 0 for contains, 1 for insert, 2 for remove
+    byte[] operations;
+    int position;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      values = newSet(set);
+      Random random = new Random(400);
+      for (int value : shuffledValues(size, random)) values.add(value);
+      keys = distribution.keys(size, STREAM_LENGTH, random);
+      operations = new byte[STREAM_LENGTH];
+      for (int i = 0; i < STREAM_LENGTH; i++) {
+        int choice = random.nextInt(100);
+        operations[i] = (byte) (choice < 90 ? 0 : choice < 95 ? 1 : 2);
+      }
+    }
+
+    int nextIndex() {
+      return position++ & (STREAM_LENGTH - 1);
+    }
+  }
+
+  /**
+   * The size values in the order of the distribution, inserted into or
+   * removed from a fresh set by each invocation.
+   */
+  @State(Scope.Thread)
+  public static class Batch {
+    @Param({ "RedBlackTree", "TreeSet", "ConcurrentSkipListSet" })
+    public String set;
+
+    @Param({ "1000", "10000", "100000", "1000000", "10000000" })
+    public int size;
+
+    @Param({ "SEQUENTIAL", "RANDOM", "ZIPFIAN" })
+    public KeyDistribution distribution;
+
+    int[] keys;
+    NavigableSet<Integer> full; // refilled before each remove invocation
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      Random random = new Random(400);
+      if (distribution == KeyDistribution.SEQUENTIAL) {
+        keys = new int[size];
+        for (int i = 0; i < size; i++) keys[i] = 2 * i;
+      } else if (distribution == KeyDistribution.RANDOM) {
+        keys = shuffledValues(size, random);
+      } else {
+        // popular keys repeat, so this also measures duplicate inserts and missing removes
+        keys = distribution.keys(size, size, random);
+        for (int i = 0; i < size; i++) keys[i] &= ~1;
+      }
+    }
+
+    @Setup(Level.Invocation)
+    public void refill() {
+      if (full != null && full.size() == size) return;
+      full = newSet(set);
+      for (int i = 0; i < size; i++) full.add(2 * i);
+    }
+  }
+
+  @Benchmark
+  public boolean contains(FilledSet state) {
+    return state.values.contains(state.keys[state.nextIndex()]);
+  }
+
+  /**
+   * 90% contains, 5% insert and 5% remove. The inserts and removes draw from
+   * the same keys, so the size of the set stays about the same.
+   */
+  @Benchmark
+  public boolean mixed(FilledSet state) {
+    int index = state.nextIndex();
+    Integer key = state.keys[index];
+    switch (state.operations[index]) {
+      case 0: return state.values.contains(key);
+      case 1: return state.values.add(key);
+      default: return state.values.remove(key);
+    }
+  }
+
+  @Benchmark
+  public void iterate(FilledSet state, Blackhole blackhole) {
+    for (Integer value : state.values) blackhole.consume(value);
+  }
+
+  @Benchmark
+  public NavigableSet<Integer> insert(Batch state) {
+    NavigableSet<Integer> values = newSet(state.set);
+    for (int key : state.keys) values.add(key);
+    return values;
+  }
+
+  @Benchmark
+  public NavigableSet<Integer> remove(Batch state) {
+    NavigableSet<Integer> values = state.full;
+    for (int key : state.keys) values.remove(key);
+    return values;
+  }
+
+  private static NavigableSet<Integer> newSet(String name) {
+    switch (name) {
+      case "RedBlackTree": return new RedBlackTree<>();
+      case "TreeSet": return new TreeSet<>();
+      case "ConcurrentSkipListSet": return new ConcurrentSkipListSet<>();
+      default: throw new IllegalArgumentException("Unknown set: " + name);
+    }
+  }
+
+  /**
+   * @return the values 0, 2, ..., 2(size - 1) in random order
+   */
+  private static int[] shuffledValues(int size, Random random) {
+    int[] values = new int[size];
+    for (int i = 0; i < size; i++) values[i] = 2 * i;
+    for (int i = size - 1; i > 0; i--) {
+      int j = random.nextInt(i + 1);
+      int swap = values[i];
+      values[i] = values[j];
+      values[j] = swap;
+    }
+    return values;
+  }
+
+  /**
+   * Runs the benchmarks with the GC profiler, which reports the allocation
+   * rate and bytes allocated per operation next to each score. Arguments are
+   * passed on as a benchmark name pattern.
+   */
+  public static void main(String[] args) throws RunnerException {
+    Options options = new OptionsBuilder()
+        .include(args.length > 0 ? args[0] : SortedSetBenchmark.class.getSimpleName())
+        .addProfiler(GCProfiler.class)
+        .build();
+    new Runner(options).run();
+  }
+}
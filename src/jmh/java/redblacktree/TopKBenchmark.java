@@ -0,0 +1,84 @@
+package redblacktree;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks of tracking the k largest values of a stream of random
+ * candidates, reporting the time per candidate: TopKRedBlackTree.offer
+ * against a plain RedBlackTree that inserts every candidate and then removes
+ * its first value, and against a PriorityQueue used as a min-heap. Once the
+ * tree is full, a candidate is kept with probability about k / (candidates
+ * seen), so nearly all of them are rejected.
+ *   mvn -Pjmh package
+ *   java -jar target/benchmarks.jar TopKBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TopKBenchmark {
+
+  @State(Scope.Thread)
+  public static class Stream {
+    @Param({ "100", "10000" })
+    public int k;
+
+    TopKRedBlackTree<Integer> topK;
+    RedBlackTree<Integer> tree;
+    PriorityQueue<Integer> heap;
+    long seed = 400;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+      topK = new TopKRedBlackTree<>(k);
+      tree = new RedBlackTree<>();
+      heap = new PriorityQueue<>();
+    }
+
+    /**
+     * @return the next candidate from a xorshift generator
+     */
+    Integer next() {
+      seed ^= seed << 13;
+      seed ^= seed >>> 7;
+      seed ^= seed << 17;
+      return (int) seed;
+    }
+  }
+
+  @Benchmark
+  public boolean topK(Stream state) {
+    return state.topK.offer(state.next());
+  }
+
+  @Benchmark
+  public boolean insertAndRemoveFirst(Stream state) {
+    boolean inserted = state.tree.tryInsert(state.next());
+    if (state.tree.size() > state.k) state.tree.pollFirst();
+    return inserted;
+  }
+
+  @Benchmark
+  public boolean heap(Stream state) {
+    Integer candidate = state.next();
+    PriorityQueue<Integer> heap = state.heap;
+    if (heap.size() < state.k) return heap.offer(candidate);
+    if (candidate <= heap.peek()) return false;
+    heap.poll();
+    return heap.offer(candidate);
+  }
+}
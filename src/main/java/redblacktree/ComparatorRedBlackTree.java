@@ -0,0 +1,536 @@
+package redblacktree;
+
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Red-Black Tree ordered by a Comparator instead of the natural ordering, so
+ * it can hold values that are not Comparable or order them by an extracted
+ * key. In prefix mode, every node also caches a normalized 8-byte prefix of
+ * its value as a long. Searches compute the prefix of the searched value once
+ * and compare it with the cached prefixes using unsigned long comparisons,
+ * so the comparator only runs when two prefixes are equal. For long String
+ * or byte[] keys that differ early, this saves most of the comparator calls
+ * and the cache misses on the key contents.
+ * A prefix function must agree with the comparator: whenever the prefix of a
+ * is less than the prefix of b (compared as unsigned longs), a must be less
+ * than b. STRING_PREFIX and BYTES_PREFIX are such functions for the natural
+ * ordering of String and the unsigned lexicographic ordering of byte[].
+ * The insert and remove fixups are the ones of IntRedBlackTree, with a
+ * sentinel node that stands in for every null link.
+ */
+public class ComparatorRedBlackTree<T> implements Iterable<T> {
+
+  private static final byte RED = 0;
+  private static final byte BLACK = 1;
+
+  /**
+   * Packs the first 8 characters of a String into a long, one byte per
+   * character, with shorter strings padded by zero bytes. A character that does
+   * not fit into a byte becomes 0xFF and ends the prefix, so the packed order
+   * agrees with String.compareTo for every string.
+   */
+  public static final ToLongFunction<String> STRING_PREFIX = string -> {
+    long prefix = 0;
+    int length = Math.min(string.length(), 8);
+    for (int i = 0; i < length; i++) {
+      char c = string.charAt(i);
+      if (c >= 0xFF) {
+        prefix |= 0xFFL << (56 - 8 * i);
+        break;
+      }
+      prefix |= (long) c << (56 - 8 * i);
+    }
+    return prefix;
+  };
+
+  /**
+   * Packs the first 8 bytes of an array into a long, big-endian and padded by
+   * zero bytes, which agrees with Arrays.compareUnsigned.
+   */
+  public static final ToLongFunction<byte[]> BYTES_PREFIX = bytes -> {
+    long prefix = 0;
+    int length = Math.min(bytes.length, 8);
+    for (int i = 0; i < length; i++) prefix |= (bytes[i] & 0xFFL) << (56 - 8 * i);
+    return prefix;
+  };
+
+  /**
+   * This class represents a node holding a single value and its cached prefix.
+   */
+  private static final class Node<T> {
+    T data;
+    long prefix; // 0 for every node when the tree has no prefix function
+    Node<T> parent;
+    Node<T> left;
+    Node<T> right;
+    byte color;
+
+    Node(T data, long prefix, Node<T> nil) {
+      this.data = data;
+      this.prefix = prefix;
+      this.parent = nil;
+      this.left = nil;
+      this.right = nil;
+      this.color = RED;
+    }
+  }
+
+  private final Comparator<? super T> comparator;
+  private final ToLongFunction<? super T> prefixFunction; // null without prefix mode
+  private final Node<T> nil; // black sentinel for every null link
+  private Node<T> root; // nil when empty
+  private int size = 0; // the number of values in the tree
+  private int modCount = 0; // the number of structural changes, for fail-fast iteration
+
+  /**
+   * Creates an empty tree ordered by comparator.
+   * @param comparator the order of the values
+   */
+  public ComparatorRedBlackTree(Comparator<? super T> comparator) {
+    this(comparator, null);
+  }
+
+  /**
+   * Creates an empty tree ordered by comparator that caches the prefix of each
+   * value in its node.
+   * @param comparator the order of the values
+   * @param prefixFunction the normalized prefix of a value, which must agree
+   *      with comparator, or null for no prefix caching
+   */
+  public ComparatorRedBlackTree(Comparator<? super T> comparator, ToLongFunction<? super T> prefixFunction) {
+    if (comparator == null) throw new NullPointerException("The comparator must not be null.");
+    this.comparator = comparator;
+    this.prefixFunction = prefixFunction;
+    this.nil = new Node<>(null, 0, null);
+    this.nil.color = BLACK;
+    this.root = nil;
+  }
+
+  /**
+   * Creates an empty tree ordered by a key extracted from each value.
+   * @param keyExtractor the function that returns the key of a value
+   * @return an empty tree ordered by the natural ordering of the keys
+   */
+  public static <T, K extends Comparable<? super K>> ComparatorRedBlackTree<T> byKey(
+      Function<? super T, ? extends K> keyExtractor) {
+    return new ComparatorRedBlackTree<>(Comparator.comparing(keyExtractor));
+  }
+
+  /**
+   * Creates an empty tree ordered by a key extracted from each value that
+   * caches the prefix of each key in its node.
+   * @param keyExtractor the function that returns the key of a value
+   * @param keyPrefix the normalized prefix of a key, which must agree with the
+   *      natural ordering of the keys, like STRING_PREFIX for String keys
+   * @return an empty tree ordered by the natural ordering of the keys
+   */
+  public static <T, K extends Comparable<? super K>> ComparatorRedBlackTree<T> byKey(
+      Function<? super T, ? extends K> keyExtractor, ToLongFunction<? super K> keyPrefix) {
+    return new ComparatorRedBlackTree<>(Comparator.comparing(keyExtractor),
+        value -> keyPrefix.applyAsLong(keyExtractor.apply(value)));
+  }
+
+  /**
+   * @return the comparator that orders this tree
+   */
+  public Comparator<? super T> comparator() {
+    return comparator;
+  }
+
+  /**
+   * Inserts a value into the tree and restores the red-black properties.
+   * @param data to be added into this tree
+   * @return true if the value was inserted
+   * @throws NullPointerException when the provided data argument is null
+   * @throws IllegalArgumentException when data is already contained in the tree
+   */
+  public boolean insert(T data) throws NullPointerException, IllegalArgumentException {
+    if (!tryInsert(data)) {
+      throw new IllegalArgumentException("This ComparatorRedBlackTree already contains value " + data.toString());
+    }
+    return true;
+  }
+
+  /**
+   * Inserts a value like insert, but reports a duplicate through the return value.
+   * @return true if the value was inserted, false if the tree already contains it
+   * @throws NullPointerException when the provided data argument is null
+   */
+  public boolean tryInsert(T data) throws NullPointerException {
+    long prefix = prefixOf(data);
+    Node<T> current = root;
+    Node<T> currentParent = nil;
+    int compare = 0;
+    while (current != nil) {
+      currentParent = current;
+      compare = compare(data, prefix, current);
+      if (compare == 0) return false;
+      current = compare < 0 ? current.left : current.right;
+    }
+    Node<T> newNode = new Node<>(data, prefix, nil);
+    newNode.parent = currentParent;
+    if (currentParent == nil) {
+      root = newNode;
+    } else if (compare < 0) {
+      currentParent.left = newNode;
+    } else {
+      currentParent.right = newNode;
+    }
+    size++;
+    modCount++;
+    enforceRBTreePropertiesAfterInsert(newNode);
+    return true;
+  }
+
+  /**
+   * Removes a value from the tree and restores the red-black properties.
+   * @param data to be removed from this tree
+   * @return true if the value was removed
+   * @throws NullPointerException when the provided data argument is null
+   * @throws IllegalArgumentException when data is not stored in the tree
+   */
+  public boolean remove(T data) throws NullPointerException, IllegalArgumentException {
+    if (!tryRemove(data)) {
+      throw new IllegalArgumentException("The following value is not in the tree and cannot be deleted: " + data.toString());
+    }
+    return true;
+  }
+
+  /**
+   * Removes a value like remove, but reports a missing value through the return value.
+   * @return true if the value was removed, false if the tree does not contain it
+   * @throws NullPointerException when the provided data argument is null
+   */
+  public boolean tryRemove(T data) throws NullPointerException {
+    Node<T> node = findNodeWithData(data);
+    if (node == nil) return false;
+    Node<T> removed = node; // the node that is unlinked from the tree
+    byte removedColor = removed.color;
+    Node<T> replacement; // the node that moves into the position of removed
+    if (node.left == nil) {
+      replacement = node.right;
+      transplant(node, replacement);
+    } else if (node.right == nil) {
+      replacement = node.left;
+      transplant(node, replacement);
+    } else {
+      // two children: the successor takes the place of node
+      removed = node.right;
+      while (removed.left != nil) removed = removed.left;
+      removedColor = removed.color;
+      replacement = removed.right;
+      if (removed.parent == node) {
+        replacement.parent = removed; // also when replacement is the sentinel
+      } else {
+        transplant(removed, replacement);
+        removed.right = node.right;
+        removed.right.parent = removed;
+      }
+      transplant(node, removed);
+      removed.left = node.left;
+      removed.left.parent = removed;
+      removed.color = node.color;
+    }
+    if (removedColor == BLACK) enforceRBTreePropertiesAfterRemove(replacement);
+    nil.parent = null;
+    size--;
+    modCount++;
+    return true;
+  }
+
+  /**
+   * Checks whether the tree contains the value *data*.
+   * @param data the data value to test for
+   * @return true if *data* is in the tree, false if it is not in the tree
+   * @throws NullPointerException when the provided data argument is null
+   */
+  public boolean contains(T data) {
+    return findNodeWithData(data) != nil;
+  }
+
+  /**
+   * Get the size of the tree (its number of nodes).
+   * @return the number of nodes in the tree
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Method to check if the tree is empty (does not contain any node).
+   * @return true of this.size() return 0, false if this.size() > 0
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * @return an iterator over the values of the tree in the order of the comparator
+   */
+  @Override
+  public Iterator<T> iterator() {
+    return new Iterator<T>() {
+      private Node<T> next = firstNode();
+      private final int expectedModCount = modCount;
+
+      @Override
+      public boolean hasNext() {
+        return next != nil;
+      }
+
+      @Override
+      public T next() {
+        if (next == nil) throw new NoSuchElementException();
+        if (modCount != expectedModCount) throw new ConcurrentModificationException();
+        T data = next.data;
+        next = successor(next);
+        return data;
+      }
+    };
+  }
+
+  /**
+   * This method performs an inorder traversal of the tree and assembles the
+   * values into a comma separated string within brackets.
+   * @return string containing the ordered values of this tree
+   */
+  public String toInOrderString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("[ ");
+    for (Node<T> current = firstNode(); current != nil; current = successor(current)) {
+      sb.append(current.data.toString());
+      if (successor(current) != nil) sb.append(", ");
+    }
+    sb.append(" ]");
+    return sb.toString();
+  }
+
+  public String toString() {
+    return toInOrderString();
+  }
+
+  /**
+   * Compares a value and its prefix with the value of node, using the prefixes
+   * when they differ and the comparator otherwise.
+   */
+  private int compare(T data, long prefix, Node<T> node) {
+    if (prefix != node.prefix) return Long.compareUnsigned(prefix, node.prefix);
+    return comparator.compare(data, node.data);
+  }
+
+  private long prefixOf(T data) {
+    if (data == null) throw new NullPointerException(
+        "This ComparatorRedBlackTree cannot store null references.");
+    return prefixFunction == null ? 0 : prefixFunction.applyAsLong(data);
+  }
+
+  /**
+   * Helper method that returns the node holding data.
+   * @return the node that contains the data, or nil
+   */
+  private Node<T> findNodeWithData(T data) {
+    long prefix = prefixOf(data);
+    Node<T> current = root;
+    while (current != nil) {
+      int compare = compare(data, prefix, current);
+      if (compare == 0) return current;
+      current = compare < 0 ? current.left : current.right;
+    }
+    return nil;
+  }
+
+  private Node<T> firstNode() {
+    Node<T> current = root;
+    if (current != nil) {
+      while (current.left != nil) current = current.left;
+    }
+    return current;
+  }
+
+  private Node<T> successor(Node<T> node) {
+    if (node.right != nil) {
+      Node<T> current = node.right;
+      while (current.left != nil) current = current.left;
+      return current;
+    }
+    Node<T> current = node;
+    while (current.parent != nil && current.parent.right == current) current = current.parent;
+    return current.parent;
+  }
+
+  /**
+   * Replaces the subtree rooted at node with the subtree rooted at replacement.
+   * The parent of the sentinel is set as well, which the remove fixup relies on.
+   */
+  private void transplant(Node<T> node, Node<T> replacement) {
+    Node<T> nodeParent = node.parent;
+    if (nodeParent == nil) {
+      root = replacement;
+    } else if (nodeParent.left == node) {
+      nodeParent.left = replacement;
+    } else {
+      nodeParent.right = replacement;
+    }
+    replacement.parent = nodeParent;
+  }
+
+  /**
+   * Rotates the right child of node into its position.
+   */
+  private void rotateLeft(Node<T> node) {
+    Node<T> child = node.right;
+    node.right = child.left;
+    if (child.left != nil) child.left.parent = node;
+    transplant(node, child);
+    child.left = node;
+    node.parent = child;
+  }
+
+  /**
+   * Rotates the left child of node into its position.
+   */
+  private void rotateRight(Node<T> node) {
+    Node<T> child = node.left;
+    node.left = child.right;
+    if (child.right != nil) child.right.parent = node;
+    transplant(node, child);
+    child.right = node;
+    node.parent = child;
+  }
+
+  /**
+   * Restores the red-black properties after newNode was inserted as a red leaf.
+   */
+  private void enforceRBTreePropertiesAfterInsert(Node<T> newNode) {
+    Node<T> node = newNode;
+    while (node.parent.color == RED) {
+      Node<T> nodeParent = node.parent;
+      Node<T> grandparent = nodeParent.parent;
+      if (nodeParent == grandparent.left) {
+        Node<T> aunt = grandparent.right;
+        if (aunt.color == RED) {
+          // parent's sibling is red: recolor and continue from the grandparent
+          nodeParent.color = BLACK;
+          aunt.color = BLACK;
+          grandparent.color = RED;
+          node = grandparent;
+        } else {
+          if (node == nodeParent.right) {
+            // parent's sibling is black and node is on the inner side
+            node = nodeParent;
+            rotateLeft(node);
+            nodeParent = node.parent;
+          }
+          // parent's sibling is black and node is on the outer side
+          nodeParent.color = BLACK;
+          grandparent.color = RED;
+          rotateRight(grandparent);
+        }
+      } else {
+        Node<T> aunt = grandparent.left;
+        if (aunt.color == RED) {
+          nodeParent.color = BLACK;
+          aunt.color = BLACK;
+          grandparent.color = RED;
+          node = grandparent;
+        } else {
+          if (node == nodeParent.left) {
+            node = nodeParent;
+            rotateRight(node);
+            nodeParent = node.parent;
+          }
+          nodeParent.color = BLACK;
+          grandparent.color = RED;
+          rotateLeft(grandparent);
+        }
+      }
+    }
+    root.color = BLACK;
+  }
+
+  /**
+   * Restores the red-black properties after a black node was unlinked and
+   * node took its position, carrying an extra black.
+   */
+  private void enforceRBTreePropertiesAfterRemove(Node<T> node) {
+    while (node != root && node.color == BLACK) {
+      Node<T> nodeParent = node.parent;
+      if (node == nodeParent.left) {
+        Node<T> sibling = nodeParent.right;
+        if (sibling.color == RED) {
+          sibling.color = BLACK;
+          nodeParent.color = RED;
+          rotateLeft(nodeParent);
+          sibling = nodeParent.right;
+        }
+        if (sibling.left.color == BLACK && sibling.right.color == BLACK) {
+          sibling.color = RED;
+          node = nodeParent;
+        } else {
+          if (sibling.right.color == BLACK) {
+            sibling.left.color = BLACK;
+            sibling.color = RED;
+            rotateRight(sibling);
+            sibling = nodeParent.right;
+          }
+          sibling.color = nodeParent.color;
+          nodeParent.color = BLACK;
+          sibling.right.color = BLACK;
+          rotateLeft(nodeParent);
+          node = root;
+        }
+      } else {
+        Node<T> sibling = nodeParent.left;
+        if (sibling.color == RED) {
+          sibling.color = BLACK;
+          nodeParent.color = RED;
+          rotateRight(nodeParent);
+          sibling = nodeParent.left;
+        }
+        if (sibling.left.color == BLACK && sibling.right.color == BLACK) {
+          sibling.color = RED;
+          node = nodeParent;
+        } else {
+          if (sibling.left.color == BLACK) {
+            sibling.right.color = BLACK;
+            sibling.color = RED;
+            rotateLeft(sibling);
+            sibling = nodeParent.left;
+          }
+          sibling.color = nodeParent.color;
+          nodeParent.color = BLACK;
+          sibling.left.color = BLACK;
+          rotateRight(nodeParent);
+          node = root;
+        }
+      }
+    }
+    node.color = BLACK;
+  }
+
+  /**
+   * Checks the red-black properties, parent links, order and cached prefixes
+   * of the whole tree, for the tests.
+   * @return the black height of the tree, or -1 when a property is violated
+   */
+  int checkedBlackHeight() {
+    return blackHeightOf(root);
+  }
+
+  private int blackHeightOf(Node<T> node) {
+    if (node == nil) return 1;
+    if (node.color == RED && (node.left.color == RED || node.right.color == RED)) return -1;
+    if (node.prefix != (prefixFunction == null ? 0 : prefixFunction.applyAsLong(node.data))) return -1;
+    if (node.left != nil && (node.left.parent != node || comparator.compare(node.left.data, node.data) >= 0)) return -1;
+    if (node.right != nil && (node.right.parent != node || comparator.compare(node.right.data, node.data) <= 0)) return -1;
+    int leftHeight = blackHeightOf(node.left);
+    int rightHeight = blackHeightOf(node.right);
+    if (leftHeight < 0 || leftHeight != rightHeight) return -1;
+    return leftHeight + node.color;
+  }
+}
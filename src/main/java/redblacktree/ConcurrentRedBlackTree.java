@@ -0,0 +1,345 @@
+package redblacktree;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Thread-safe RedBlackTree for read-heavy workloads. Lookups through contains
+ * first descend the tree under an optimistic read of a StampedLock, which
+ * takes no lock at all, and only use the result when validation shows that no
+ * writer ran in the meantime. After a few failed attempts they fall back to a
+ * read lock. Inserts and removes, including their rotations and fixups, hold
+ * the exclusive write lock, and the other queries hold the read lock. The
+ * write lock is taken where nodes are linked and unlinked (findOrInsert,
+ * removeNode), so every inherited way of changing the tree holds it, and it
+ * is reentrant for the thread holding it, so bulk updates such as removeIf,
+ * removeAll and retainAll hold it for their whole traversal. split holds it
+ * too, and the static join, union, intersection and difference of
+ * RedBlackTree hold the write locks of both argument trees while they check
+ * them and take their nodes. Their results are ConcurrentRedBlackTrees.
+ * Iterators, cursors, spliterators and range views only take the lock for
+ * the changes they make: they must not be used to traverse the tree while
+ * other threads modify it.
+ */
+public class ConcurrentRedBlackTree<T extends Comparable<T>> extends RedBlackTree<T> {
+
+  // no valid tree is this deep, so a longer descent saw a tree being rotated
+  private static final int MAX_OPTIMISTIC_DEPTH = 128;
+  // optimistic attempts of a lookup before it falls back to the read lock
+  private static final int OPTIMISTIC_ATTEMPTS = 3;
+
+  // hands out lockOrder, the order in which two trees take their write locks
+  private static final AtomicLong LOCK_ORDER = new AtomicLong();
+
+  private final StampedLock lock = new StampedLock();
+  private final long lockOrder = LOCK_ORDER.getAndIncrement();
+  // the thread holding the write lock, so the methods of RedBlackTree that
+  // reach findOrInsert or removeNode while it is held do not lock again
+  private Thread writer;
+
+  /**
+   * Checks whether the tree contains the value *data*, using optimistic reads.
+   * @param data the data value to test for
+   * @return true if *data* is in the tree, false if it is not in the tree
+   * @throws NullPointerException when the provided data argument is null
+   */
+  @Override
+  public boolean contains(T data) {
+    if (data == null) {
+      throw new NullPointerException("This RedBlackTree cannot store null references.");
+    }
+    for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS; attempt++) {
+      long stamp = lock.tryOptimisticRead();
+      if (stamp == 0) continue; // a writer holds the lock
+      try {
+        boolean found = findNodeOptimistically(data);
+        if (lock.validate(stamp)) return found;
+      } catch (RuntimeException e) {
+        // the descent saw a half-updated tree, which validation would reject
+      }
+    }
+    if (writer == Thread.currentThread()) return findNodeWithData(data) != null;
+    long stamp = lock.readLock();
+    try {
+      return findNodeWithData(data) != null;
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Descends the tree like findNodeWithData without holding a lock. A writer
+   * may change the tree during the descent, so the descent gives up after
+   * MAX_OPTIMISTIC_DEPTH steps instead of following a transient cycle, and
+   * its result only counts when the stamp is still valid.
+   * @return true if a node holding data was found
+   */
+  private boolean findNodeOptimistically(T data) {
+    Node<T> current = this.root;
+    boolean found = false;
+    int depth = 0;
+    while (current != null && depth < MAX_OPTIMISTIC_DEPTH) {
+      depth++;
+      int compare = data.compareTo(current.data);
+      if (compare == 0) {
+        found = true;
+        break;
+      }
+      current = compare < 0 ? current.left : current.right;
+    }
+    // every descent is counted, including the ones that validation rejects
+    TreeMetrics counters = metrics;
+    if (counters != null) counters.recordSearch(depth);
+    return found;
+  }
+
+  @Override
+  public boolean tryInsert(T data) throws NullPointerException {
+    return write(() -> super.tryInsert(data));
+  }
+
+  @Override
+  public boolean tryRemove(T data) throws NullPointerException {
+    return write(() -> super.tryRemove(data));
+  }
+
+  @Override
+  protected Node<T> findOrInsert(T data) throws NullPointerException {
+    return write(() -> super.findOrInsert(data));
+  }
+
+  /**
+   * Removes a node while holding the write lock, which covers the removals
+   * of iterators, range views and the bulk methods of java.util.Collection.
+   */
+  @Override
+  protected void removeNode(Node<T> nodeWithData) {
+    write(() -> {
+      super.removeNode(nodeWithData);
+      return null;
+    });
+  }
+
+  @Override
+  protected void fillFromSorted(Iterator<? extends T> sorted, int count) {
+    write(() -> {
+      super.fillFromSorted(sorted, count);
+      return null;
+    });
+  }
+
+  @Override
+  public boolean removeIf(Predicate<? super T> filter) {
+    return write(() -> super.removeIf(filter));
+  }
+
+  @Override
+  public boolean removeAll(Collection<?> values) {
+    return write(() -> super.removeAll(values));
+  }
+
+  @Override
+  public boolean retainAll(Collection<?> values) {
+    return write(() -> super.retainAll(values));
+  }
+
+  @Override
+  public List<T> insertAll(Collection<? extends T> values) throws NullPointerException {
+    return write(() -> super.insertAll(values));
+  }
+
+  @Override
+  public T pollFirst() {
+    return write(super::pollFirst);
+  }
+
+  @Override
+  public T pollLast() {
+    return write(super::pollLast);
+  }
+
+  @Override
+  public RedBlackTree<T> split(T key) {
+    return write(() -> super.split(key));
+  }
+
+  /**
+   * Holds the write locks of this tree and other while join or a set
+   * operation checks both trees and takes their nodes. The locks are taken
+   * in the order the trees were created, so two threads combining the same
+   * trees in opposite argument order cannot deadlock.
+   */
+  @Override
+  <R> R updateBoth(RedBlackTree<T> other, Supplier<R> update) {
+    ConcurrentRedBlackTree<T> second = (ConcurrentRedBlackTree<T>) other;
+    if (second.lockOrder < lockOrder) return second.write(() -> write(update));
+    return write(() -> second.write(update));
+  }
+
+  /**
+   * Makes the trees returned by split, join and the set operations thread-safe as well.
+   */
+  @Override
+  protected RedBlackTree<T> newEmptyTree() {
+    return new ConcurrentRedBlackTree<>();
+  }
+
+  @Override
+  public void setMetricsEnabled(boolean enabled) {
+    write(() -> {
+      super.setMetricsEnabled(enabled);
+      return null;
+    });
+  }
+
+  /**
+   * Emits the JFR metrics event while holding the read lock, so its size and
+   * black height come from a tree that no writer is changing.
+   */
+  @Override
+  void emitMetricsEvent() {
+    read(() -> {
+      super.emitMetricsEvent();
+      return null;
+    });
+  }
+
+  @Override
+  public TreeMetrics.Snapshot metricsSnapshot() throws IllegalStateException {
+    return read(super::metricsSnapshot);
+  }
+
+  @Override
+  public FrozenRedBlackTree<T> freeze() {
+    return read(super::freeze);
+  }
+
+  @Override
+  public void writeSnapshot(Path path, KeyCodec<? super T> codec) throws IOException {
+    long stamp = lock.readLock();
+    try {
+      super.writeSnapshot(path, codec);
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  @Override
+  public void clear() {
+    write(() -> {
+      super.clear();
+      return null;
+    });
+  }
+
+  @Override
+  public T first() {
+    return read(super::first);
+  }
+
+  @Override
+  public T last() {
+    return read(super::last);
+  }
+
+  @Override
+  public T lower(T data) {
+    return read(() -> super.lower(data));
+  }
+
+  @Override
+  public T floor(T data) {
+    return read(() -> super.floor(data));
+  }
+
+  @Override
+  public T ceiling(T data) {
+    return read(() -> super.ceiling(data));
+  }
+
+  @Override
+  public T higher(T data) {
+    return read(() -> super.higher(data));
+  }
+
+  @Override
+  public int rank(T data) {
+    return read(() -> super.rank(data));
+  }
+
+  @Override
+  public T select(int index) throws IndexOutOfBoundsException {
+    return read(() -> super.select(index));
+  }
+
+  @Override
+  public int countInRange(T lo, T hi) {
+    return read(() -> super.countInRange(lo, hi));
+  }
+
+  @Override
+  public void forEachParallel(Consumer<? super T> action) {
+    long stamp = lock.readLock();
+    try {
+      super.forEachParallel(action);
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  @Override
+  public <R> R reduce(R identity, BiFunction<R, ? super T, R> accumulator, BinaryOperator<R> combiner) {
+    return read(() -> super.reduce(identity, accumulator, combiner));
+  }
+
+  @Override
+  public String toInOrderString() {
+    return read(super::toInOrderString);
+  }
+
+  @Override
+  public String toLevelOrderString() {
+    return read(super::toLevelOrderString);
+  }
+
+  /**
+   * Runs a query while holding the read lock, or right away when this thread
+   * holds the write lock.
+   */
+  private <R> R read(Supplier<R> query) {
+    if (writer == Thread.currentThread()) return query.get();
+    long stamp = lock.readLock();
+    try {
+      return query.get();
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Runs an update while holding the write lock, taking it unless this thread
+   * already holds it.
+   */
+  private <R> R write(Supplier<R> update) {
+    Thread current = Thread.currentThread();
+    if (writer == current) return update.get();
+    long stamp = lock.writeLock();
+    writer = current;
+    try {
+      return update.get();
+    } finally {
+      writer = null;
+      lock.unlockWrite(stamp);
+    }
+  }
+}
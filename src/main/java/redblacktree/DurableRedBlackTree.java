@@ -0,0 +1,511 @@
+package redblacktree;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+/**
+ * Red-Black Tree that survives crashes. The tree lives in a directory with
+ * two files: a checkpoint, which is a snapshot of the tree (see
+ * RedBlackTree.writeSnapshot), and a write-ahead log of the inserts and
+ * removes since that checkpoint. Opening the directory loads the checkpoint
+ * with the linear-time bulk build and replays the log on top of it.
+ * Every successful insert and remove appends a record to the log. Records are
+ * collected in memory and written by group commit: one writer writes and
+ * syncs all records collected so far while the others wait for it, so under
+ * load a single fsync covers many operations. The SyncPolicy decides how long
+ * an operation waits: until its record is synced, not at all (a background
+ * thread syncs every few milliseconds), or until its record is handed to the
+ * operating system. Once the log grows beyond a threshold it is compacted
+ * into a new checkpoint.
+ * Writers are serialized; contains and size run concurrently with them
+ * through the ConcurrentRedBlackTree that holds the values.
+ */
+public class DurableRedBlackTree<T extends Comparable<T>> implements SortedCollectionInterface<T>, Iterable<T>, Closeable {
+
+  static final String CHECKPOINT_FILE = "checkpoint";
+  static final String LOG_FILE = "log";
+  // the log is compacted into a new checkpoint once it holds this many bytes
+  public static final long DEFAULT_COMPACTION_BYTES = 64L << 20;
+
+  private static final byte INSERT = 1;
+  private static final byte REMOVE = 2;
+  // length of the encoding, operation and CRC32C of each log record
+  private static final int RECORD_OVERHEAD = Integer.BYTES + 1 + Integer.BYTES;
+
+  /**
+   * When an insert or remove returns in relation to its record reaching the disk.
+   */
+  public static final class SyncPolicy {
+    /**
+     * Every operation returns once its record is synced to the disk.
+     */
+    public static final SyncPolicy EVERY_OPERATION = new SyncPolicy(0);
+    /**
+     * Every operation returns once its record is written to the operating
+     * system, which decides when to write it to the disk. The records survive
+     * a crash of the process but not of the machine.
+     */
+    public static final SyncPolicy OS = new SyncPolicy(-1);
+
+    final long intervalMillis; // 0 for EVERY_OPERATION, -1 for OS
+
+    private SyncPolicy(long intervalMillis) {
+      this.intervalMillis = intervalMillis;
+    }
+
+    /**
+     * Operations return right away and a background thread syncs the log
+     * every millis milliseconds, so a crash loses at most the operations of
+     * the last interval.
+     * @param millis the time between syncs
+     * @return the policy
+     * @throws IllegalArgumentException when millis is not positive
+     */
+    public static SyncPolicy everyMillis(long millis) {
+      if (millis <= 0) throw new IllegalArgumentException("The sync interval must be positive: " + millis);
+      return new SyncPolicy(millis);
+    }
+  }
+
+  private final ConcurrentRedBlackTree<T> tree = new ConcurrentRedBlackTree<>();
+  private final KeyCodec<T> codec;
+  private final SyncPolicy policy;
+  private final long compactionBytes;
+  private final Path checkpointPath;
+  private final FileChannel log;
+  private final CRC32C recordChecksum = new CRC32C();
+  private final ScheduledExecutorService syncer; // null unless the policy syncs every few milliseconds
+
+  // all of the following fields are guarded by the monitor of this tree
+  private ByteBuffer pending = ByteBuffer.allocate(1 << 16); // records not yet written to the log
+  private ByteBuffer spare = ByteBuffer.allocate(1 << 16); // swapped with pending by each group commit
+  private long appended = 0; // the sequence number of the last record appended to pending
+  private long written = 0; // the sequence number of the last record written to the log
+  private boolean writing = false; // whether a group commit is writing to the log
+  private long logBytes; // the size of the log including pending
+  private IOException failure; // the error that broke the log, after which no writes are accepted
+  private boolean closed = false;
+
+  /**
+   * Opens or creates a durable tree in directory, compacting its log at
+   * DEFAULT_COMPACTION_BYTES.
+   * @see #DurableRedBlackTree(Path, KeyCodec, SyncPolicy, long)
+   */
+  public DurableRedBlackTree(Path directory, KeyCodec<T> codec, SyncPolicy policy) throws IOException {
+    this(directory, codec, policy, DEFAULT_COMPACTION_BYTES);
+  }
+
+  /**
+   * Opens or creates a durable tree in directory and recovers its values
+   * from the checkpoint and the log. A record that was only partly written
+   * when the process crashed ends the log, and is cut off along with
+   * everything after it.
+   * @param directory the directory of the checkpoint and log files
+   * @param codec the encoding of the values in both files
+   * @param policy when operations wait for their log records
+   * @param compactionBytes the size at which the log is compacted into a new checkpoint
+   * @throws IOException when the files cannot be read or the checkpoint is corrupt
+   */
+  public DurableRedBlackTree(Path directory, KeyCodec<T> codec, SyncPolicy policy, long compactionBytes)
+      throws IOException {
+    if (codec == null || policy == null) throw new NullPointerException("The codec and policy must not be null.");
+    if (compactionBytes <= 0) throw new IllegalArgumentException(
+        "The compaction threshold must be positive: " + compactionBytes);
+    this.codec = codec;
+    this.policy = policy;
+    this.compactionBytes = compactionBytes;
+    Files.createDirectories(directory);
+    this.checkpointPath = directory.resolve(CHECKPOINT_FILE);
+    if (Files.exists(checkpointPath)) tree.fillFromSnapshot(checkpointPath, codec, TreeSnapshot.WINDOW_BYTES);
+    this.log = FileChannel.open(directory.resolve(LOG_FILE), StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      long validBytes = replayLog();
+      log.truncate(validBytes);
+      log.position(validBytes);
+      this.logBytes = validBytes;
+    } catch (IOException | RuntimeException e) {
+      log.close();
+      throw e;
+    }
+    if (policy.intervalMillis > 0) {
+      syncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "DurableRedBlackTree syncer");
+        thread.setDaemon(true);
+        return thread;
+      });
+      syncer.scheduleWithFixedDelay(() -> {
+        try {
+          sync();
+        } catch (IOException e) {
+          // recorded in failure and reported by the next operation
+        }
+      }, policy.intervalMillis, policy.intervalMillis, TimeUnit.MILLISECONDS);
+    } else {
+      syncer = null;
+    }
+  }
+
+  /**
+   * Applies the records of the log to the tree, stopping at the first record
+   * that is incomplete or fails its checksum.
+   * @return the number of bytes of valid records
+   */
+  private long replayLog() throws IOException {
+    long size = log.size();
+    long validBytes = 0;
+    DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(log), 1 << 16));
+    while (true) {
+      byte operation;
+      byte[] bytes;
+      int storedChecksum;
+      try {
+        int length = in.readInt();
+        if (length < 0 || length > size - validBytes - RECORD_OVERHEAD) break;
+        operation = in.readByte();
+        bytes = new byte[length];
+        in.readFully(bytes);
+        storedChecksum = in.readInt();
+      } catch (EOFException e) {
+        break;
+      }
+      recordChecksum.reset();
+      recordChecksum.update(operation);
+      recordChecksum.update(bytes);
+      if ((int) recordChecksum.getValue() != storedChecksum) break;
+      // the tree may already reflect the record when a crash interrupted a
+      // compaction, so the outcome of the operation is ignored
+      if (operation == INSERT) {
+        tree.tryInsert(codec.decode(ByteBuffer.wrap(bytes)));
+      } else if (operation == REMOVE) {
+        tree.tryRemove(codec.decode(ByteBuffer.wrap(bytes)));
+      } else {
+        break;
+      }
+      validBytes += RECORD_OVERHEAD + bytes.length;
+    }
+    return validBytes;
+  }
+
+  /**
+   * Inserts a value and logs the insert.
+   * @param data to be added into this tree
+   * @return true if the value was inserted
+   * @throws NullPointerException when the provided data argument is null
+   * @throws IllegalArgumentException when data is already contained in the tree
+   * @throws UncheckedIOException when the log cannot be written
+   */
+  @Override
+  public boolean insert(T data) throws NullPointerException, IllegalArgumentException {
+    if (!tryInsert(data)) {
+      throw new IllegalArgumentException("This RedBlackTree already contains value " + data.toString());
+    }
+    return true;
+  }
+
+  /**
+   * Inserts a value like insert, but reports a duplicate through the return
+   * value. Only inserted values are logged.
+   * @return true if the value was inserted, false if the tree already contains it
+   * @throws NullPointerException when the provided data argument is null
+   * @throws UncheckedIOException when the log cannot be written
+   */
+  public boolean tryInsert(T data) throws NullPointerException {
+    return apply(INSERT, data);
+  }
+
+  /**
+   * Removes a value and logs the remove.
+   * @param data to be removed from this tree
+   * @return true if the value was removed
+   * @throws NullPointerException when the provided data argument is null
+   * @throws IllegalArgumentException when data is not stored in the tree
+   * @throws UncheckedIOException when the log cannot be written
+   */
+  @Override
+  public boolean remove(T data) throws NullPointerException, IllegalArgumentException {
+    if (!tryRemove(data)) {
+      throw new IllegalArgumentException("The following value is not in the tree and cannot be deleted: " + data.toString());
+    }
+    return true;
+  }
+
+  /**
+   * Removes a value like remove, but reports a missing value through the
+   * return value. Only removed values are logged.
+   * @return true if the value was removed, false if the tree does not contain it
+   * @throws NullPointerException when the provided data argument is null
+   * @throws UncheckedIOException when the log cannot be written
+   */
+  public boolean tryRemove(T data) throws NullPointerException {
+    return apply(REMOVE, data);
+  }
+
+  /**
+   * Applies an insert or remove to the tree, appends its record to the log
+   * and waits for the record as the sync policy requires. The value is
+   * encoded and room for its record is made before the tree changes, so a
+   * value that cannot be logged never reaches the tree. When writing the log
+   * fails later, the tree stops accepting writes.
+   * @return true if the operation changed the tree
+   */
+  private boolean apply(byte operation, T data) {
+    if (data == null) throw new NullPointerException("This RedBlackTree cannot store null references.");
+    byte[] bytes = codec.encode(data);
+    long sequence;
+    boolean compact;
+    synchronized (this) {
+      checkWritable();
+      reserve(RECORD_OVERHEAD + bytes.length);
+      boolean changed = operation == INSERT ? tree.tryInsert(data) : tree.tryRemove(data);
+      if (!changed) return false;
+      append(operation, bytes);
+      sequence = appended;
+      compact = logBytes >= compactionBytes;
+    }
+    try {
+      if (compact) {
+        checkpoint();
+      } else if (policy == SyncPolicy.EVERY_OPERATION) {
+        writeLog(sequence, true);
+      } else if (policy == SyncPolicy.OS) {
+        writeLog(sequence, false);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return true;
+  }
+
+  /**
+   * Grows pending until it has room for recordBytes more bytes. The caller
+   * holds the monitor.
+   */
+  private void reserve(int recordBytes) {
+    if (pending.remaining() < recordBytes) {
+      ByteBuffer larger = ByteBuffer.allocate(Math.max(2 * pending.capacity(), pending.position() + recordBytes));
+      pending.flip();
+      larger.put(pending);
+      pending = larger;
+    }
+  }
+
+  /**
+   * Appends a record to pending, which reserve has made room for. The caller
+   * holds the monitor.
+   */
+  private void append(byte operation, byte[] bytes) {
+    recordChecksum.reset();
+    recordChecksum.update(operation);
+    recordChecksum.update(bytes);
+    pending.putInt(bytes.length).put(operation).put(bytes).putInt((int) recordChecksum.getValue());
+    appended++;
+    logBytes += RECORD_OVERHEAD + bytes.length;
+  }
+
+  /**
+   * Returns once the record with the given sequence number is written to the
+   * log. If no other thread is writing, this thread becomes the leader of a
+   * group commit: it takes all pending records, writes them without holding
+   * the monitor, so that other writers can append meanwhile, and wakes up
+   * every thread whose record was part of the group.
+   * @param force whether the leader also syncs the log to the disk
+   */
+  private void writeLog(long sequence, boolean force) throws IOException {
+    while (true) {
+      ByteBuffer group;
+      long groupSequence;
+      synchronized (this) {
+        while (writing && written < sequence) {
+          try {
+            wait();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the log.");
+          }
+        }
+        if (written >= sequence) return;
+        if (failure != null) throw new IOException("The log of this tree failed.", failure);
+        writing = true;
+        group = pending;
+        pending = spare;
+        groupSequence = appended;
+      }
+      IOException error = null;
+      try {
+        group.flip();
+        while (group.hasRemaining()) log.write(group);
+        if (force) log.force(false);
+      } catch (IOException e) {
+        error = e;
+      }
+      synchronized (this) {
+        group.clear();
+        spare = group;
+        writing = false;
+        if (error == null) {
+          written = groupSequence;
+        } else {
+          failure = error;
+        }
+        notifyAll();
+      }
+      if (error != null) throw error;
+    }
+  }
+
+  /**
+   * Writes every logged operation to the log and syncs it to the disk.
+   * @throws IOException when the log cannot be written
+   */
+  public void sync() throws IOException {
+    long sequence;
+    synchronized (this) {
+      sequence = appended;
+    }
+    writeLog(sequence, false);
+    log.force(false);
+  }
+
+  /**
+   * Compacts the log: writes the whole tree to a new checkpoint and empties
+   * the log. Writers wait until the checkpoint is complete. The checkpoint is
+   * moved into place atomically and its directory is synced before the log
+   * is truncated, so the truncation never reaches the disk without the new
+   * checkpoint. A crash between the two steps leaves a log whose records are
+   * already part of the checkpoint; replaying them on recovery leaves every
+   * value where the last record for it put it, so the outcome is the same.
+   * @throws IOException when the checkpoint cannot be written, or the file
+   *      system cannot replace it atomically
+   */
+  public synchronized void checkpoint() throws IOException {
+    checkWritable();
+    while (writing) {
+      try {
+        wait();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while waiting for the log.");
+      }
+    }
+    try {
+      // the writers wait on the monitor, so the tree does not change meanwhile
+      TreeSnapshot.write(checkpointPath, tree.iterator(), tree.size(), codec, true);
+      log.truncate(0);
+      log.position(0);
+      log.force(true);
+    } catch (IOException e) {
+      failure = e;
+      notifyAll();
+      throw e;
+    }
+    // the pending records are part of the checkpoint
+    pending.clear();
+    written = appended;
+    logBytes = 0;
+    notifyAll();
+  }
+
+  /**
+   * Syncs the log and closes it. Further inserts and removes throw an
+   * IllegalStateException.
+   * @throws IOException when the log cannot be written
+   */
+  @Override
+  public void close() throws IOException {
+    synchronized (this) {
+      if (closed) return;
+      closed = true;
+    }
+    if (syncer != null) {
+      // interrupting the syncer would close the log, so it is left to finish
+      syncer.shutdown();
+      try {
+        syncer.awaitTermination(1, TimeUnit.MINUTES);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    try {
+      if (failure == null) sync();
+    } finally {
+      log.close();
+    }
+  }
+
+  /**
+   * Throws when the tree no longer accepts writes. The caller holds the monitor.
+   */
+  private void checkWritable() {
+    if (closed) throw new IllegalStateException("This DurableRedBlackTree is closed.");
+    if (failure != null) throw new UncheckedIOException("The log of this tree failed.", failure);
+  }
+
+  /**
+   * Checks whether the tree contains the value *data*, without waiting for writers.
+   * @param data the data value to test for
+   * @return true if *data* is in the tree, false if it is not in the tree
+   * @throws NullPointerException when the provided data argument is null
+   */
+  @Override
+  public boolean contains(T data) {
+    return tree.contains(data);
+  }
+
+  /**
+   * Get the size of the tree (its number of nodes).
+   * @return the number of nodes in the tree
+   */
+  @Override
+  public int size() {
+    return tree.size();
+  }
+
+  /**
+   * Method to check if the tree is empty (does not contain any node).
+   * @return true of this.size() return 0, false if this.size() > 0
+   */
+  @Override
+  public boolean isEmpty() {
+    return tree.isEmpty();
+  }
+
+  /**
+   * Iterates over the values in ascending order. Like the iterators of
+   * ConcurrentRedBlackTree, it must not be used while other threads insert or
+   * remove values, and it does not support remove.
+   * @return an iterator over the values of the tree
+   */
+  @Override
+  public Iterator<T> iterator() {
+    return Collections.unmodifiableNavigableSet(tree).iterator();
+  }
+
+  /**
+   * @return string containing the ordered values of this tree
+   */
+  public String toInOrderString() {
+    return tree.toInOrderString();
+  }
+
+  public String toString() {
+    return tree.toString();
+  }
+}
@@ -0,0 +1,147 @@
+package redblacktree;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable, read-optimized copy of an IntRedBlackTree, created by
+ * IntRedBlackTree.freeze(). Like FrozenRedBlackTree, it stores the values in
+ * Eytzinger order, so the children of index k are at 2k and 2k + 1, but in a
+ * primitive int array: sixteen values share a cache line, so the first four
+ * levels of the tree fit into two lines, and the 16 descendants four levels
+ * below index k are adjacent. The descent computes the next index from the
+ * sign of a long subtraction rather than a branch, so its only dependency is
+ * the load of the next value.
+ */
+public final class FrozenIntRedBlackTree {
+
+  private final int[] keys; // Eytzinger order, index 0 is unused
+  private final int[] ranks; // ranks[k] is the number of values smaller than keys[k]
+  private final int size;
+
+  /**
+   * @param sorted the values in strictly ascending order
+   * @throws IllegalArgumentException when there are 2^30 values or more
+   */
+  FrozenIntRedBlackTree(int[] sorted) {
+    // the indexes of the descent must not overflow
+    if (sorted.length >= 1 << 30) throw new IllegalArgumentException(
+        "Too many values to freeze: " + sorted.length);
+    this.size = sorted.length;
+    this.keys = new int[size + 1];
+    this.ranks = new int[size + 1];
+    fill(sorted, 0, 1);
+  }
+
+  /**
+   * Places the sorted values into the subtree at index k in in-order.
+   * @param next the index of the next sorted value to place
+   * @return the index of the next sorted value after the subtree
+   */
+  private int fill(int[] sorted, int next, int k) {
+    if (k > size) return next;
+    next = fill(sorted, next, 2 * k);
+    keys[k] = sorted[next];
+    ranks[k] = next;
+    return fill(sorted, next + 1, 2 * k + 1);
+  }
+
+  /**
+   * Descends to the bottom of the tree, going right at every value smaller
+   * than data, or also at values equal to data when inclusive is true. The bits
+   * of the returned index below its leading one are the path, 1 for right.
+   */
+  private int descend(int data, boolean inclusive) {
+    // the value is smaller than bound exactly when value - bound is negative
+    long bound = inclusive ? (long) data + 1 : data;
+    int k = 1;
+    while (k <= size) k = (k << 1) | (int) (((long) keys[k] - bound) >>> 63);
+    return k;
+  }
+
+  /**
+   * @return the index where the path to k last went left, or 0 if it never did
+   */
+  private static int lastLeftTurn(int k) {
+    return k >>> (Integer.numberOfTrailingZeros(~k) + 1);
+  }
+
+  /**
+   * @return the index where the path to k last went right, or 0 if it never did
+   */
+  private static int lastRightTurn(int k) {
+    return k >>> (Integer.numberOfTrailingZeros(k) + 1);
+  }
+
+  private int keyAt(int k) throws NoSuchElementException {
+    if (k == 0) throw new NoSuchElementException();
+    return keys[k];
+  }
+
+  /**
+   * Checks whether the tree contains the value *data*.
+   * @param data the data value to test for
+   * @return true if *data* is in the tree, false if it is not in the tree
+   */
+  public boolean contains(int data) {
+    int ceiling = lastLeftTurn(descend(data, false));
+    return ceiling != 0 && keys[ceiling] == data;
+  }
+
+  /**
+   * @return the largest value less than data
+   * @throws NoSuchElementException when there is no such value
+   */
+  public int lower(int data) throws NoSuchElementException {
+    return keyAt(lastRightTurn(descend(data, false)));
+  }
+
+  /**
+   * @return the largest value less than or equal to data
+   * @throws NoSuchElementException when there is no such value
+   */
+  public int floor(int data) throws NoSuchElementException {
+    return keyAt(lastRightTurn(descend(data, true)));
+  }
+
+  /**
+   * @return the smallest value greater than or equal to data
+   * @throws NoSuchElementException when there is no such value
+   */
+  public int ceiling(int data) throws NoSuchElementException {
+    return keyAt(lastLeftTurn(descend(data, false)));
+  }
+
+  /**
+   * @return the smallest value greater than data
+   * @throws NoSuchElementException when there is no such value
+   */
+  public int higher(int data) throws NoSuchElementException {
+    return keyAt(lastLeftTurn(descend(data, true)));
+  }
+
+  /**
+   * Returns the number of values in the tree that are smaller than data.
+   * @param data the value to rank
+   * @return the number of values less than data
+   */
+  public int rank(int data) {
+    int ceiling = lastLeftTurn(descend(data, false));
+    return ceiling == 0 ? size : ranks[ceiling];
+  }
+
+  /**
+   * Get the size of the tree (its number of values).
+   * @return the number of values in the tree
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Method to check if the tree is empty (does not contain any value).
+   * @return true of this.size() return 0, false if this.size() > 0
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+}
@@ -0,0 +1,149 @@
+package redblacktree;
+
+/**
+ * Immutable, read-optimized copy of a RedBlackTree, created by
+ * RedBlackTree.freeze(). The values are stored in one array in Eytzinger
+ * (breadth-first) order: the children of index k are at 2k and 2k + 1, with
+ * the root at index 1. A search descends by index arithmetic instead of
+ * following node references, so the top levels of the tree share a few cache
+ * lines, there are no node headers or links in between the values, and the
+ * step to the next level does not branch on the comparison. A search never
+ * stops early: it always descends to the bottom and then recovers the answer
+ * from the path it took, which is encoded in the bits of the final index.
+ * A parallel array holds the rank of each value for rank queries.
+ */
+public final class FrozenRedBlackTree<T extends Comparable<T>> {
+
+  private final Object[] values; // Eytzinger order, index 0 is unused
+  private final int[] ranks; // ranks[k] is the number of values smaller than values[k]
+  private final int size;
+
+  /**
+   * @param sorted the values in strictly ascending order
+   * @throws IllegalArgumentException when there are 2^30 values or more
+   */
+  FrozenRedBlackTree(Object[] sorted) {
+    // the indexes of the descent must not overflow
+    if (sorted.length >= 1 << 30) throw new IllegalArgumentException(
+        "Too many values to freeze: " + sorted.length);
+    this.size = sorted.length;
+    this.values = new Object[size + 1];
+    this.ranks = new int[size + 1];
+    fill(sorted, 0, 1);
+  }
+
+  /**
+   * Places the sorted values into the subtree at index k in in-order.
+   * @param next the index of the next sorted value to place
+   * @return the index of the next sorted value after the subtree
+   */
+  private int fill(Object[] sorted, int next, int k) {
+    if (k > size) return next;
+    next = fill(sorted, next, 2 * k);
+    values[k] = sorted[next];
+    ranks[k] = next;
+    return fill(sorted, next + 1, 2 * k + 1);
+  }
+
+  /**
+   * Descends to the bottom of the tree, going right at every value smaller
+   * than data, or also at values equal to data when inclusive is true. The bits
+   * of the returned index below its leading one are the path, 1 for right.
+   */
+  @SuppressWarnings("unchecked")
+  private int descend(T data, boolean inclusive) {
+    if (data == null) throw new NullPointerException("This RedBlackTree cannot store null references.");
+    int k = 1;
+    if (inclusive) {
+      // right when data - value >= 0, i.e. when the sign bit of the comparison is 0
+      while (k <= size) k = (k << 1) | (~data.compareTo((T) values[k]) >>> 31);
+    } else {
+      while (k <= size) k = (k << 1) | (((T) values[k]).compareTo(data) >>> 31);
+    }
+    return k;
+  }
+
+  /**
+   * @return the index where the path to k last went left, or 0 if it never did
+   */
+  private static int lastLeftTurn(int k) {
+    return k >>> (Integer.numberOfTrailingZeros(~k) + 1);
+  }
+
+  /**
+   * @return the index where the path to k last went right, or 0 if it never did
+   */
+  private static int lastRightTurn(int k) {
+    return k >>> (Integer.numberOfTrailingZeros(k) + 1);
+  }
+
+  @SuppressWarnings("unchecked")
+  private T valueAt(int k) {
+    return k == 0 ? null : (T) values[k];
+  }
+
+  /**
+   * Checks whether the tree contains the value *data*.
+   * @param data the data value to test for
+   * @return true if *data* is in the tree, false if it is not in the tree
+   * @throws NullPointerException when the provided data argument is null
+   */
+  public boolean contains(T data) {
+    T ceiling = valueAt(lastLeftTurn(descend(data, false)));
+    return ceiling != null && ceiling.compareTo(data) == 0;
+  }
+
+  /**
+   * @return the largest value less than data, or null if there is none
+   */
+  public T lower(T data) {
+    return valueAt(lastRightTurn(descend(data, false)));
+  }
+
+  /**
+   * @return the largest value less than or equal to data, or null if there is none
+   */
+  public T floor(T data) {
+    return valueAt(lastRightTurn(descend(data, true)));
+  }
+
+  /**
+   * @return the smallest value greater than or equal to data, or null if there is none
+   */
+  public T ceiling(T data) {
+    return valueAt(lastLeftTurn(descend(data, false)));
+  }
+
+  /**
+   * @return the smallest value greater than data, or null if there is none
+   */
+  public T higher(T data) {
+    return valueAt(lastLeftTurn(descend(data, true)));
+  }
+
+  /**
+   * Returns the number of values in the tree that are smaller than data.
+   * @param data the value to rank
+   * @return the number of values less than data
+   */
+  public int rank(T data) {
+    int ceiling = lastLeftTurn(descend(data, false));
+    return ceiling == 0 ? size : ranks[ceiling];
+  }
+
+  /**
+   * Get the size of the tree (its number of values).
+   * @return the number of values in the tree
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Method to check if the tree is empty (does not contain any value).
+   * @return true of this.size() return 0, false if this.size() > 0
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+}
@@ -0,0 +1,244 @@
+package redblacktree;
+
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Red-Black Tree of closed intervals [start, end] of long values, such as
+ * time ranges, ordered by start and then by end. Every node also stores the
+ * largest end of the intervals in its subtree, maintained by updateNode,
+ * which the tree calls for each node whose subtree changes: on the path of an
+ * insert or remove and for both nodes of every rotation. A query for the
+ * intervals overlapping [from, to] skips every subtree whose largest end is
+ * before from, and stops at the first interval that starts after to, since
+ * all later ones start after it. It visits the paths to the k results and
+ * one more path, so it takes O(log n + k) when the results are close to each
+ * other in the tree and at most O(log n + k log n) when they are scattered.
+ * The results are streamed in order as the query walks the tree.
+ */
+public class IntervalRedBlackTree extends RedBlackTree<IntervalRedBlackTree.Interval> {
+
+  /**
+   * A closed interval [start, end] with start <= end.
+   */
+  public static final class Interval implements Comparable<Interval> {
+    public final long start;
+    public final long end;
+
+    /**
+     * @throws IllegalArgumentException when start is greater than end
+     */
+    public Interval(long start, long end) throws IllegalArgumentException {
+      if (start > end) throw new IllegalArgumentException(
+          "The start " + start + " of an interval must not be greater than its end " + end);
+      this.start = start;
+      this.end = end;
+    }
+
+    /**
+     * @return true if this interval shares at least one point with [from, to]
+     */
+    public boolean overlaps(long from, long to) {
+      return start <= to && end >= from;
+    }
+
+    @Override
+    public int compareTo(Interval other) {
+      int compare = Long.compare(start, other.start);
+      return compare != 0 ? compare : Long.compare(end, other.end);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Interval)) return false;
+      Interval other = (Interval) o;
+      return start == other.start && end == other.end;
+    }
+
+    @Override
+    public int hashCode() {
+      return Long.hashCode(start) * 31 + Long.hashCode(end);
+    }
+
+    @Override
+    public String toString() {
+      return "[" + start + ", " + end + "]";
+    }
+  }
+
+  /**
+   * A node that also holds the largest end of the intervals in its subtree.
+   */
+  private static final class IntervalNode extends Node<Interval> {
+    long maxEnd;
+
+    IntervalNode(Interval data) {
+      super(data);
+      this.maxEnd = data.end;
+    }
+  }
+
+  @Override
+  protected Node<Interval> newNode(Interval data) {
+    return new IntervalNode(data);
+  }
+
+  /**
+   * Recomputes the subtree size and the largest end of a node.
+   * @param node the node to update
+   */
+  @Override
+  protected void updateNode(Node<Interval> node) {
+    super.updateNode(node);
+    long maxEnd = node.data.end;
+    if (node.left != null) maxEnd = Math.max(maxEnd, maxEndOf(node.left));
+    if (node.right != null) maxEnd = Math.max(maxEnd, maxEndOf(node.right));
+    ((IntervalNode) node).maxEnd = maxEnd;
+  }
+
+  private static long maxEndOf(Node<Interval> node) {
+    return ((IntervalNode) node).maxEnd;
+  }
+
+  @Override
+  protected RedBlackTree<Interval> newEmptyTree() {
+    return new IntervalRedBlackTree();
+  }
+
+  /**
+   * Streams the intervals that share at least one point with [from, to], in
+   * ascending order. The stream walks the tree lazily and must not be used
+   * after the tree has been modified.
+   * @param from the first point of the query range
+   * @param to the last point of the query range
+   * @return the overlapping intervals
+   * @throws IllegalArgumentException when from is greater than to
+   */
+  public Stream<Interval> overlapping(long from, long to) throws IllegalArgumentException {
+    if (from > to) throw new IllegalArgumentException(
+        "The start " + from + " of a range must not be greater than its end " + to);
+    Spliterator<Interval> spliterator = Spliterators.spliteratorUnknownSize(new OverlapIterator(from, to),
+        Spliterator.ORDERED | Spliterator.SORTED | Spliterator.DISTINCT | Spliterator.NONNULL);
+    return StreamSupport.stream(spliterator, false);
+  }
+
+  /**
+   * Streams the intervals that contain point, in ascending order.
+   * @param point the point to stab the intervals with
+   * @return the intervals containing point
+   */
+  public Stream<Interval> stabbing(long point) {
+    return overlapping(point, point);
+  }
+
+  /**
+   * Finds some interval overlapping [from, to] in O(log n): at each node the
+   * search goes left whenever the left subtree ends at or after from, since
+   * if none of its intervals overlaps, none in the right subtree does either.
+   * @param from the first point of the query range
+   * @param to the last point of the query range
+   * @return an overlapping interval, or null if there is none
+   * @throws IllegalArgumentException when from is greater than to
+   */
+  public Interval anyOverlapping(long from, long to) throws IllegalArgumentException {
+    if (from > to) throw new IllegalArgumentException(
+        "The start " + from + " of a range must not be greater than its end " + to);
+    Node<Interval> current = this.root;
+    while (current != null && !current.data.overlaps(from, to)) {
+      current = (current.left != null && maxEndOf(current.left) >= from) ? current.left : current.right;
+    }
+    return current == null ? null : current.data;
+  }
+
+  /**
+   * Iterator over the intervals overlapping [from, to], stepping through the
+   * tree in order and skipping the subtrees that end before from.
+   */
+  private class OverlapIterator implements Iterator<Interval> {
+    private final long from;
+    private final long to;
+    private final int expectedModCount = modCount;
+    private Node<Interval> next; // the next result, null at the end
+    private boolean exhausted = false; // set once an interval starts after to
+
+    OverlapIterator(long from, long to) {
+      this.from = from;
+      this.to = to;
+      this.next = firstIn(root);
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next != null;
+    }
+
+    @Override
+    public Interval next() {
+      if (next == null) throw new NoSuchElementException();
+      if (modCount != expectedModCount) throw new ConcurrentModificationException();
+      Node<Interval> current = next;
+      next = advance(current);
+      return current.data;
+    }
+
+    /**
+     * @return the first overlapping node of the subtree rooted at node, or
+     *      null if there is none, setting exhausted when the search met an
+     *      interval that starts after to
+     */
+    private Node<Interval> firstIn(Node<Interval> node) {
+      while (node != null && maxEndOf(node) >= from) {
+        if (node.left != null && maxEndOf(node.left) >= from) {
+          node = node.left;
+        } else if (node.data.start > to) {
+          exhausted = true;
+          return null;
+        } else if (node.data.end >= from) {
+          return node;
+        } else {
+          // the largest end of the subtree comes from the right subtree
+          node = node.right;
+        }
+      }
+      return null;
+    }
+
+    /**
+     * @return the first overlapping node after node in order, or null
+     */
+    private Node<Interval> advance(Node<Interval> node) {
+      Node<Interval> found = firstIn(node.right);
+      while (found == null && !exhausted) {
+        // climb to the nearest ancestor that has node in its left subtree
+        while (node.isRightChild()) node = node.parent;
+        node = node.parent;
+        if (node == null) return null;
+        if (node.data.start > to) return null;
+        if (node.data.end >= from) return node;
+        found = firstIn(node.right);
+      }
+      return found;
+    }
+  }
+
+  /**
+   * Checks that every node holds the largest end of its subtree, for the tests.
+   * @return true if all largest ends are correct
+   */
+  boolean maxEndsMatch() {
+    return maxEndsMatch(this.root);
+  }
+
+  private static boolean maxEndsMatch(Node<Interval> node) {
+    if (node == null) return true;
+    long maxEnd = node.data.end;
+    if (node.left != null) maxEnd = Math.max(maxEnd, maxEndOf(node.left));
+    if (node.right != null) maxEnd = Math.max(maxEnd, maxEndOf(node.right));
+    return maxEnd == maxEndOf(node) && maxEndsMatch(node.left) && maxEndsMatch(node.right);
+  }
+}
@@ -0,0 +1,75 @@
+package redblacktree;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Converts the values of a tree to and from bytes for snapshot files (see
+ * RedBlackTree.writeSnapshot and RedBlackTree.loadSnapshot). The snapshot
+ * stores the length of each encoding, so a codec does not need to delimit
+ * its values itself.
+ */
+public interface KeyCodec<T> {
+
+  /**
+   * @param value the value to encode, never null
+   * @return the bytes of the value
+   */
+  byte[] encode(T value);
+
+  /**
+   * Decodes a value from the bytes between the position and the limit of
+   * buffer. The buffer may be a read-only memory map of the snapshot, so the
+   * codec must copy any bytes it keeps.
+   * @param buffer the encoding of exactly one value
+   * @return the decoded value
+   */
+  T decode(ByteBuffer buffer);
+
+  /**
+   * Encodes an Integer as 4 big-endian bytes.
+   */
+  KeyCodec<Integer> INTEGER = new KeyCodec<Integer>() {
+    @Override
+    public byte[] encode(Integer value) {
+      return ByteBuffer.allocate(Integer.BYTES).putInt(value).array();
+    }
+
+    @Override
+    public Integer decode(ByteBuffer buffer) {
+      return buffer.getInt();
+    }
+  };
+
+  /**
+   * Encodes a Long as 8 big-endian bytes.
+   */
+  KeyCodec<Long> LONG = new KeyCodec<Long>() {
+    @Override
+    public byte[] encode(Long value) {
+      return ByteBuffer.allocate(Long.BYTES).putLong(value).array();
+    }
+
+    @Override
+    public Long decode(ByteBuffer buffer) {
+      return buffer.getLong();
+    }
+  };
+
+  /**
+   * Encodes a String as UTF-8.
+   */
+  KeyCodec<String> STRING = new KeyCodec<String>() {
+    @Override
+    public byte[] encode(String value) {
+      return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String decode(ByteBuffer buffer) {
+      byte[] bytes = new byte[buffer.remaining()];
+      buffer.get(bytes);
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+  };
+}
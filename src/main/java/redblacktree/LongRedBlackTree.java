@@ -0,0 +1,416 @@
+package redblacktree;
+
+import java.util.Arrays;
+
+/**
+ * Red-Black Tree of primitive long values. It offers the same operations as
+ * SortedCollectionInterface, but stores its nodes in parallel primitive arrays
+ * instead of RedBlackTree.Node objects: the node with index i has its value in
+ * keys[i], its links in left[i], right[i] and parent[i], and its color in
+ * color[i]. Index 0 is a black sentinel that stands in for every null link,
+ * so insert, remove and contains neither box values nor allocate objects.
+ * The arrays grow geometrically and the slots of removed nodes are reused.
+ */
+public class LongRedBlackTree {
+
+  private static final int NIL = 0; // index of the sentinel node
+  private static final byte RED = 0;
+  private static final byte BLACK = 1;
+
+  private long[] keys;
+  private int[] left;
+  private int[] right;
+  private int[] parent;
+  private byte[] color;
+
+  private int root = NIL; // index of the root node, NIL when empty
+  private int size = 0; // the number of values in the tree
+  private int used = 1; // slots handed out so far, slot 0 is the sentinel
+  private int freeList = NIL; // removed slots, linked through left[]
+
+  /**
+   * Creates an empty tree with room for a few values. The arrays grow as
+   * values are inserted.
+   */
+  public LongRedBlackTree() {
+    int slots = 16;
+    keys = new long[slots];
+    left = new int[slots];
+    right = new int[slots];
+    parent = new int[slots];
+    color = new byte[slots];
+    color[NIL] = BLACK;
+  }
+
+  /**
+   * Inserts a value into the tree and restores the red-black properties.
+   * @param data to be added into this tree
+   * @return true if the value was inserted
+   * @throws IllegalArgumentException when data is already contained in the tree
+   */
+  public boolean insert(long data) throws IllegalArgumentException {
+    int current = root;
+    int currentParent = NIL;
+    boolean goLeft = false;
+    while (current != NIL) {
+      currentParent = current;
+      long key = keys[current];
+      if (data == key) {
+        throw new IllegalArgumentException("This LongRedBlackTree already contains value " + data);
+      }
+      goLeft = data < key;
+      current = goLeft ? left[current] : right[current];
+    }
+    int newNode = allocate(data);
+    parent[newNode] = currentParent;
+    if (currentParent == NIL) {
+      root = newNode;
+    } else if (goLeft) {
+      left[currentParent] = newNode;
+    } else {
+      right[currentParent] = newNode;
+    }
+    size++;
+    enforceRBTreePropertiesAfterInsert(newNode);
+    return true;
+  }
+
+  /**
+   * Removes a value from the tree and restores the red-black properties.
+   * @param data to be removed from this tree
+   * @return true if the value was removed
+   * @throws IllegalArgumentException when data is not stored in the tree
+   */
+  public boolean remove(long data) throws IllegalArgumentException {
+    int node = findNodeWithData(data);
+    if (node == NIL) {
+      throw new IllegalArgumentException("The following value is not in the tree and cannot be deleted: " + data);
+    }
+    int removed = node; // the node that is unlinked from the tree
+    byte removedColor = color[removed];
+    int replacement; // the node that moves into the position of removed
+    if (left[node] == NIL) {
+      replacement = right[node];
+      transplant(node, replacement);
+    } else if (right[node] == NIL) {
+      replacement = left[node];
+      transplant(node, replacement);
+    } else {
+      // two children: the successor takes the place of node
+      removed = right[node];
+      while (left[removed] != NIL) removed = left[removed];
+      removedColor = color[removed];
+      replacement = right[removed];
+      if (parent[removed] == node) {
+        parent[replacement] = removed; // also when replacement is the sentinel
+      } else {
+        transplant(removed, replacement);
+        right[removed] = right[node];
+        parent[right[removed]] = removed;
+      }
+      transplant(node, removed);
+      left[removed] = left[node];
+      parent[left[removed]] = removed;
+      color[removed] = color[node];
+    }
+    if (removedColor == BLACK) enforceRBTreePropertiesAfterRemove(replacement);
+    release(node);
+    size--;
+    return true;
+  }
+
+  /**
+   * Checks whether the tree contains the value *data*.
+   * @param data the data value to test for
+   * @return true if *data* is in the tree, false if it is not in the tree
+   */
+  public boolean contains(long data) {
+    return findNodeWithData(data) != NIL;
+  }
+
+  /**
+   * Get the size of the tree (its number of nodes).
+   * @return the number of nodes in the tree
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Method to check if the tree is empty (does not contain any node).
+   * @return true of this.size() return 0, false if this.size() > 0
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Helper method that returns the index of the node holding data.
+   * @return the index of the node that contains the data, or NIL
+   */
+  private int findNodeWithData(long data) {
+    int current = root;
+    while (current != NIL) {
+      long key = keys[current];
+      if (data == key) return current;
+      current = data < key ? left[current] : right[current];
+    }
+    return NIL;
+  }
+
+  /**
+   * Hands out a slot for a new red node, reusing a removed slot when there is
+   * one and growing the arrays by half when they are full.
+   * @param data the value of the new node
+   * @return the index of the new node
+   */
+  private int allocate(long data) {
+    int node;
+    if (freeList != NIL) {
+      node = freeList;
+      freeList = left[node];
+    } else {
+      if (used == keys.length) {
+        int capacity = Math.max(used + (used >> 1), used + 8);
+        keys = Arrays.copyOf(keys, capacity);
+        left = Arrays.copyOf(left, capacity);
+        right = Arrays.copyOf(right, capacity);
+        parent = Arrays.copyOf(parent, capacity);
+        color = Arrays.copyOf(color, capacity);
+      }
+      node = used++;
+    }
+    keys[node] = data;
+    left[node] = NIL;
+    right[node] = NIL;
+    color[node] = RED;
+    return node;
+  }
+
+  /**
+   * Puts the slot of a removed node on the free list.
+   * @param node the index of the removed node
+   */
+  private void release(int node) {
+    left[node] = freeList;
+    freeList = node;
+  }
+
+  /**
+   * Replaces the subtree rooted at node with the subtree rooted at replacement.
+   * The parent of the sentinel is set as well, which the remove fixup relies on.
+   */
+  private void transplant(int node, int replacement) {
+    int nodeParent = parent[node];
+    if (nodeParent == NIL) {
+      root = replacement;
+    } else if (left[nodeParent] == node) {
+      left[nodeParent] = replacement;
+    } else {
+      right[nodeParent] = replacement;
+    }
+    parent[replacement] = nodeParent;
+  }
+
+  /**
+   * Rotates the right child of node into its position.
+   */
+  private void rotateLeft(int node) {
+    int child = right[node];
+    right[node] = left[child];
+    if (left[child] != NIL) parent[left[child]] = node;
+    transplant(node, child);
+    left[child] = node;
+    parent[node] = child;
+  }
+
+  /**
+   * Rotates the left child of node into its position.
+   */
+  private void rotateRight(int node) {
+    int child = left[node];
+    left[node] = right[child];
+    if (right[child] != NIL) parent[right[child]] = node;
+    transplant(node, child);
+    right[child] = node;
+    parent[node] = child;
+  }
+
+  /**
+   * Restores the red-black properties after newNode was inserted as a red leaf.
+   * @param newNode the index of the inserted node
+   */
+  private void enforceRBTreePropertiesAfterInsert(int newNode) {
+    int node = newNode;
+    while (color[parent[node]] == RED) {
+      int nodeParent = parent[node];
+      int grandparent = parent[nodeParent];
+      if (nodeParent == left[grandparent]) {
+        int aunt = right[grandparent];
+        if (color[aunt] == RED) {
+          // parent's sibling is red: recolor and continue from the grandparent
+          color[nodeParent] = BLACK;
+          color[aunt] = BLACK;
+          color[grandparent] = RED;
+          node = grandparent;
+        } else {
+          if (node == right[nodeParent]) {
+            // parent's sibling is black and node is on the inner side
+            node = nodeParent;
+            rotateLeft(node);
+            nodeParent = parent[node];
+          }
+          // parent's sibling is black and node is on the outer side
+          color[nodeParent] = BLACK;
+          color[grandparent] = RED;
+          rotateRight(grandparent);
+        }
+      } else {
+        int aunt = left[grandparent];
+        if (color[aunt] == RED) {
+          color[nodeParent] = BLACK;
+          color[aunt] = BLACK;
+          color[grandparent] = RED;
+          node = grandparent;
+        } else {
+          if (node == left[nodeParent]) {
+            node = nodeParent;
+            rotateRight(node);
+            nodeParent = parent[node];
+          }
+          color[nodeParent] = BLACK;
+          color[grandparent] = RED;
+          rotateLeft(grandparent);
+        }
+      }
+    }
+    color[root] = BLACK;
+  }
+
+  /**
+   * Restores the red-black properties after a black node was unlinked and
+   * node took its position, carrying an extra black.
+   * @param node the index of the node (possibly the sentinel) that moved up
+   */
+  private void enforceRBTreePropertiesAfterRemove(int node) {
+    while (node != root && color[node] == BLACK) {
+      int nodeParent = parent[node];
+      if (node == left[nodeParent]) {
+        int sibling = right[nodeParent];
+        if (color[sibling] == RED) {
+          color[sibling] = BLACK;
+          color[nodeParent] = RED;
+          rotateLeft(nodeParent);
+          sibling = right[nodeParent];
+        }
+        if (color[left[sibling]] == BLACK && color[right[sibling]] == BLACK) {
+          color[sibling] = RED;
+          node = nodeParent;
+        } else {
+          if (color[right[sibling]] == BLACK) {
+            color[left[sibling]] = BLACK;
+            color[sibling] = RED;
+            rotateRight(sibling);
+            sibling = right[nodeParent];
+          }
+          color[sibling] = color[nodeParent];
+          color[nodeParent] = BLACK;
+          color[right[sibling]] = BLACK;
+          rotateLeft(nodeParent);
+          node = root;
+        }
+      } else {
+        int sibling = left[nodeParent];
+        if (color[sibling] == RED) {
+          color[sibling] = BLACK;
+          color[nodeParent] = RED;
+          rotateRight(nodeParent);
+          sibling = left[nodeParent];
+        }
+        if (color[left[sibling]] == BLACK && color[right[sibling]] == BLACK) {
+          color[sibling] = RED;
+          node = nodeParent;
+        } else {
+          if (color[left[sibling]] == BLACK) {
+            color[right[sibling]] = BLACK;
+            color[sibling] = RED;
+            rotateLeft(sibling);
+            sibling = left[nodeParent];
+          }
+          color[sibling] = color[nodeParent];
+          color[nodeParent] = BLACK;
+          color[left[sibling]] = BLACK;
+          rotateRight(nodeParent);
+          node = root;
+        }
+      }
+    }
+    color[node] = BLACK;
+  }
+
+  /**
+   * This method performs an inorder traversal of the tree and assembles the
+   * values into a comma separated string within brackets.
+   * @return string containing the ordered values of this tree
+   */
+  public String toInOrderString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("[ ");
+    int current = root;
+    if (current != NIL) {
+      while (left[current] != NIL) current = left[current];
+    }
+    while (current != NIL) {
+      sb.append(keys[current]);
+      // step to the in-order successor through the parent links
+      if (right[current] != NIL) {
+        current = right[current];
+        while (left[current] != NIL) current = left[current];
+      } else {
+        int child = current;
+        current = parent[current];
+        while (current != NIL && right[current] == child) {
+          child = current;
+          current = parent[current];
+        }
+      }
+      if (current != NIL) sb.append(", ");
+    }
+    sb.append(" ]");
+    return sb.toString();
+  }
+
+  public String toString() {
+    return toInOrderString();
+  }
+
+  /**
+   * Checks the red-black properties of the whole tree, for the tests.
+   * @return the black height of the tree, or -1 when a property is violated
+   */
+  int checkedBlackHeight() {
+    return blackHeightOf(root);
+  }
+
+  /**
+   * @return the number of node slots allocated, for the tests
+   */
+  int capacity() {
+    return keys.length;
+  }
+
+  /**
+   * Checks the red-black properties of the subtree rooted at node.
+   * @return the black height of the subtree, or -1 when a property is violated
+   */
+  private int blackHeightOf(int node) {
+    if (node == NIL) return 1;
+    if (color[node] == RED && (color[left[node]] == RED || color[right[node]] == RED)) return -1;
+    if (left[node] != NIL && (parent[left[node]] != node || keys[left[node]] >= keys[node])) return -1;
+    if (right[node] != NIL && (parent[right[node]] != node || keys[right[node]] <= keys[node])) return -1;
+    int leftHeight = blackHeightOf(left[node]);
+    int rightHeight = blackHeightOf(right[node]);
+    if (leftHeight < 0 || leftHeight != rightHeight) return -1;
+    return leftHeight + color[node];
+  }
+}
@@ -0,0 +1,277 @@
+package redblacktree;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Red-Black Tree that counts repeated values instead of rejecting them. Each
+ * distinct value has one node, which stores how often the value occurs and
+ * the total number of occurrences in its subtree, maintained by updateNode
+ * next to subtreeSize. Inserting a value that is already in the tree finds
+ * its node in the same descent that would insert it, increments the count and
+ * fixes the subtree totals on the way back to the root, without allocating.
+ * The NavigableSet methods inherited from RedBlackTree see every distinct
+ * value once: size, rank, select and iteration count distinct values, and
+ * pollFirst, pollLast and the iterators remove all occurrences of a value.
+ * distinctSize, totalSize, count, weightedRank and weightedSelect count the
+ * occurrences. split, join and the set operations of RedBlackTree keep the
+ * counts: union adds the counts of a value, intersection keeps the smaller
+ * count and difference subtracts the counts of its second argument, dropping
+ * the values that no longer occur.
+ */
+public class MultisetRedBlackTree<T extends Comparable<T>> extends RedBlackTree<T> {
+
+  /**
+   * A node that also holds the number of occurrences of its value and of all
+   * values in its subtree.
+   */
+  private static final class CountNode<T> extends Node<T> {
+    int count = 1;
+    long subtreeCount = 1;
+
+    CountNode(T data) {
+      super(data);
+    }
+  }
+
+  @Override
+  protected Node<T> newNode(T data) {
+    return new CountNode<>(data);
+  }
+
+  /**
+   * Recomputes the subtree size and the number of occurrences in the subtree of a node.
+   * @param node the node to update
+   */
+  @Override
+  protected void updateNode(Node<T> node) {
+    super.updateNode(node);
+    CountNode<T> countNode = (CountNode<T>) node;
+    countNode.subtreeCount = countNode.count + subtreeCountOf(node.left) + subtreeCountOf(node.right);
+  }
+
+  private static long subtreeCountOf(Node<?> node) {
+    return node == null ? 0 : ((CountNode<?>) node).subtreeCount;
+  }
+
+  private static int countOf(Node<?> node) {
+    return ((CountNode<?>) node).count;
+  }
+
+  /**
+   * Adds one occurrence of a value.
+   * @param data the value to add
+   * @return true, since the tree always changes
+   * @throws NullPointerException when the provided data argument is null
+   * @throws ArithmeticException when the value already occurs Integer.MAX_VALUE times
+   */
+  @Override
+  public boolean insert(T data) throws NullPointerException {
+    return tryInsert(data);
+  }
+
+  /**
+   * Adds one occurrence of a value, like insert.
+   * @return true, since the tree always changes
+   * @throws NullPointerException when the provided data argument is null
+   */
+  @Override
+  public boolean tryInsert(T data) throws NullPointerException {
+    int sizeBefore = this.size;
+    Node<T> node = findOrInsert(data);
+    if (this.size == sizeBefore) {
+      CountNode<T> countNode = (CountNode<T>) node;
+      countNode.count = Math.addExact(countNode.count, 1);
+      updatePathToRoot(node);
+    }
+    return true;
+  }
+
+  /**
+   * Adds one occurrence of each value of a batch.
+   * @param values the values to add
+   * @return an empty list, since no value is rejected as a duplicate
+   * @throws NullPointerException when values contains null, in which case
+   *      nothing is inserted
+   */
+  @Override
+  public List<T> insertAll(Collection<? extends T> values) throws NullPointerException {
+    for (T value : values) {
+      if (value == null) throw new NullPointerException(
+          "This RedBlackTree cannot store null references.");
+    }
+    for (T value : values) tryInsert(value);
+    return Collections.emptyList();
+  }
+
+  /**
+   * Removes one occurrence of a value.
+   * @param data the value to remove
+   * @return true if an occurrence was removed
+   * @throws NullPointerException when the provided data argument is null
+   * @throws IllegalArgumentException when data is not stored in the tree
+   */
+  @Override
+  public boolean remove(T data) throws NullPointerException, IllegalArgumentException {
+    if (!tryRemove(data)) {
+      throw new IllegalArgumentException("The following value is not in the tree and cannot be deleted: " + data.toString());
+    }
+    return true;
+  }
+
+  /**
+   * Removes one occurrence of a value, and the node of the value with its
+   * last occurrence.
+   * @return true if an occurrence was removed, false if the tree does not contain data
+   * @throws NullPointerException when the provided data argument is null
+   */
+  @Override
+  public boolean tryRemove(T data) throws NullPointerException {
+    if (data == null) throw new NullPointerException(
+        "This RedBlackTree cannot store null references.");
+    Node<T> node = findNodeWithData(data);
+    if (node == null) return false;
+    CountNode<T> countNode = (CountNode<T>) node;
+    if (countNode.count > 1) {
+      countNode.count--;
+      updatePathToRoot(node);
+    } else {
+      removeNode(node);
+    }
+    return true;
+  }
+
+  /**
+   * Removes a node with all occurrences of its value. When the node has two
+   * children, RedBlackTree moves the value of its successor into it, so the
+   * count of the successor has to move along.
+   * @param nodeWithData the node to remove
+   */
+  @Override
+  protected void removeNode(Node<T> nodeWithData) {
+    if (nodeWithData.left != null && nodeWithData.right != null) {
+      ((CountNode<T>) nodeWithData).count = countOf(findMinOfRightSubtree(nodeWithData));
+    }
+    super.removeNode(nodeWithData);
+  }
+
+  @Override
+  protected RedBlackTree<T> newEmptyTree() {
+    return new MultisetRedBlackTree<>();
+  }
+
+  /**
+   * Merges the counts of a value that is in both multisets of a set
+   * operation: union adds them, intersection keeps the smaller one and
+   * difference subtracts the count in the second multiset.
+   * @return true if the value still occurs in the result
+   * @throws ArithmeticException when a union would count a value more than
+   *      Integer.MAX_VALUE times
+   */
+  @Override
+  boolean keepMatch(int operation, Node<T> first, Node<T> second) {
+    CountNode<T> kept = (CountNode<T>) second;
+    if (operation == UNION) {
+      kept.count = Math.addExact(countOf(first), kept.count);
+    } else if (operation == INTERSECTION) {
+      kept.count = Math.min(countOf(first), kept.count);
+    } else {
+      kept.count = countOf(first) - kept.count;
+    }
+    return kept.count > 0;
+  }
+
+  /**
+   * Returns how often a value occurs in the tree.
+   * @param data the value to count
+   * @return the number of occurrences of data, 0 if it is not in the tree
+   * @throws NullPointerException when the provided data argument is null
+   */
+  public int count(T data) throws NullPointerException {
+    if (data == null) throw new NullPointerException(
+        "This RedBlackTree cannot store null references.");
+    Node<T> node = findNodeWithData(data);
+    return node == null ? 0 : countOf(node);
+  }
+
+  /**
+   * @return the number of distinct values in the tree, the same as size()
+   */
+  public int distinctSize() {
+    return this.size;
+  }
+
+  /**
+   * @return the number of occurrences of all values in the tree
+   */
+  public long totalSize() {
+    return subtreeCountOf(this.root);
+  }
+
+  /**
+   * Counts the occurrences of the values that are smaller than data, which is
+   * the zero based position of the first occurrence data has or would have
+   * in the sorted order of all occurrences.
+   * @param data the value to rank
+   * @return the number of occurrences of values less than data
+   * @throws NullPointerException when the provided data argument is null
+   */
+  public long weightedRank(T data) throws NullPointerException {
+    if (data == null) throw new NullPointerException(
+        "This RedBlackTree cannot store null references.");
+    long rank = 0;
+    Node<T> current = this.root;
+    while (current != null) {
+      int compare = data.compareTo(current.data);
+      if (compare <= 0) {
+        if (compare == 0) return rank + subtreeCountOf(current.left);
+        current = current.left;
+      } else {
+        rank += subtreeCountOf(current.left) + countOf(current);
+        current = current.right;
+      }
+    }
+    return rank;
+  }
+
+  /**
+   * Finds the value at a zero based position of the sorted order of all
+   * occurrences, so that each value covers as many positions as it occurs.
+   * @param index the position of the occurrence to return
+   * @return the value at position index
+   * @throws IndexOutOfBoundsException when index is negative or not less than totalSize()
+   */
+  public T weightedSelect(long index) throws IndexOutOfBoundsException {
+    if (index < 0 || index >= totalSize()) {
+      throw new IndexOutOfBoundsException("Index " + index + " is out of bounds for total size " + totalSize());
+    }
+    Node<T> current = this.root;
+    while (true) {
+      long leftCount = subtreeCountOf(current.left);
+      if (index < leftCount) {
+        current = current.left;
+      } else if (index < leftCount + countOf(current)) {
+        return current.data;
+      } else {
+        index -= leftCount + countOf(current);
+        current = current.right;
+      }
+    }
+  }
+
+  /**
+   * Checks the occurrence totals of every subtree, for the tests.
+   * @return true if all totals are correct
+   */
+  boolean subtreeCountsMatch() {
+    return subtreeCountsMatch(this.root);
+  }
+
+  private static boolean subtreeCountsMatch(Node<?> node) {
+    if (node == null) return true;
+    long expected = countOf(node) + subtreeCountOf(node.left) + subtreeCountOf(node.right);
+    return countOf(node) > 0 && expected == subtreeCountOf(node)
+        && subtreeCountsMatch(node.left) && subtreeCountsMatch(node.right);
+  }
+}
@@ -0,0 +1,509 @@
+package redblacktree;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Red-Black Tree of fixed width keys whose nodes live off-heap in direct
+ * ByteBuffer chunks instead of as RedBlackTree.Node objects, so the garbage
+ * collector never has to trace them. Keys are byte arrays of the width given
+ * at construction and are ordered as unsigned bytes; trees with a key width of
+ * 8 can also be used with long keys, which keep their signed order.
+ * A node is addressed by an int index: its left, right and parent indexes,
+ * its color and its key are stored at (index * stride) within the chunk that
+ * holds it. Index 0 is a black sentinel standing in for every null link.
+ * The first chunk starts with room for a few nodes and doubles until it
+ * holds a full chunk, so small trees stay small.
+ * The memory of the tree is released explicitly by close().
+ */
+public class OffHeapRedBlackTree implements AutoCloseable {
+
+  private static final int NIL = 0; // index of the sentinel node
+  private static final byte RED = 0;
+  private static final byte BLACK = 1;
+
+  // layout of a node within its chunk
+  private static final int LEFT = 0;
+  private static final int RIGHT = 4;
+  private static final int PARENT = 8;
+  private static final int COLOR = 12;
+  private static final int KEY = 16;
+
+  private static final int CHUNK_SHIFT = 16; // 65536 nodes per chunk
+  private static final int CHUNK_MASK = (1 << CHUNK_SHIFT) - 1;
+  private static final int INITIAL_NODES = 64; // the nodes of the first chunk when it is allocated
+  // the widest node whose chunk still fits into a ByteBuffer
+  private static final int MAX_STRIDE = (Integer.MAX_VALUE >> CHUNK_SHIFT) & ~7;
+  /**
+   * The widest key a tree can hold.
+   */
+  public static final int MAX_KEY_WIDTH = MAX_STRIDE - KEY;
+
+  private final int keyWidth; // bytes per key
+  private final int stride; // bytes per node
+  private final int chunkBytes; // bytes of a full chunk
+  private final byte[] scratch; // encoded long key, reused between calls
+  private ByteBuffer[] chunks;
+
+  private int root = NIL; // index of the root node, NIL when empty
+  private int size = 0; // the number of values in the tree
+  private int used = 1; // slots handed out so far, slot 0 is the sentinel
+  private int freeList = NIL; // removed slots, linked through their left index
+
+  /**
+   * Creates an empty tree for keys of the given width.
+   * @param keyWidth the number of bytes in every key
+   * @throws IllegalArgumentException when keyWidth is not positive or greater
+   *      than MAX_KEY_WIDTH
+   */
+  public OffHeapRedBlackTree(int keyWidth) {
+    if (keyWidth <= 0 || keyWidth > MAX_KEY_WIDTH) throw new IllegalArgumentException(
+        "Key width must be between 1 and " + MAX_KEY_WIDTH + ": " + keyWidth);
+    this.keyWidth = keyWidth;
+    this.stride = (KEY + keyWidth + 7) & ~7;
+    this.chunkBytes = stride << CHUNK_SHIFT;
+    this.scratch = new byte[8];
+    this.chunks = new ByteBuffer[] { ByteBuffer.allocateDirect(stride * INITIAL_NODES) };
+    setColor(NIL, BLACK);
+  }
+
+  /**
+   * Inserts a key into the tree and restores the red-black properties.
+   * @param data the key to be added, exactly keyWidth bytes long
+   * @return true if the key was inserted
+   * @throws NullPointerException when the provided data argument is null
+   * @throws IllegalArgumentException when data has the wrong width or is
+   *      already contained in the tree
+   */
+  public boolean insert(byte[] data) throws NullPointerException, IllegalArgumentException {
+    checkKey(data);
+    int current = root;
+    int currentParent = NIL;
+    int compare = 0;
+    while (current != NIL) {
+      currentParent = current;
+      compare = compareKey(data, current);
+      if (compare == 0) {
+        throw new IllegalArgumentException("This OffHeapRedBlackTree already contains value " + Arrays.toString(data));
+      }
+      current = compare < 0 ? left(current) : right(current);
+    }
+    int newNode = allocate(data);
+    setParent(newNode, currentParent);
+    if (currentParent == NIL) {
+      root = newNode;
+    } else if (compare < 0) {
+      setLeft(currentParent, newNode);
+    } else {
+      setRight(currentParent, newNode);
+    }
+    size++;
+    enforceRBTreePropertiesAfterInsert(newNode);
+    return true;
+  }
+
+  /**
+   * Removes a key from the tree and restores the red-black properties.
+   * @param data the key to be removed, exactly keyWidth bytes long
+   * @return true if the key was removed
+   * @throws NullPointerException when the provided data argument is null
+   * @throws IllegalArgumentException when data has the wrong width or is not
+   *      stored in the tree
+   */
+  public boolean remove(byte[] data) throws NullPointerException, IllegalArgumentException {
+    checkKey(data);
+    int node = findNodeWithData(data);
+    if (node == NIL) {
+      throw new IllegalArgumentException("The following value is not in the tree and cannot be deleted: " + Arrays.toString(data));
+    }
+    int removed = node; // the node that is unlinked from the tree
+    byte removedColor = color(removed);
+    int replacement; // the node that moves into the position of removed
+    if (left(node) == NIL) {
+      replacement = right(node);
+      transplant(node, replacement);
+    } else if (right(node) == NIL) {
+      replacement = left(node);
+      transplant(node, replacement);
+    } else {
+      // two children: the successor takes the place of node
+      removed = right(node);
+      while (left(removed) != NIL) removed = left(removed);
+      removedColor = color(removed);
+      replacement = right(removed);
+      if (parent(removed) == node) {
+        setParent(replacement, removed); // also when replacement is the sentinel
+      } else {
+        transplant(removed, replacement);
+        setRight(removed, right(node));
+        setParent(right(removed), removed);
+      }
+      transplant(node, removed);
+      setLeft(removed, left(node));
+      setParent(left(removed), removed);
+      setColor(removed, color(node));
+    }
+    if (removedColor == BLACK) enforceRBTreePropertiesAfterRemove(replacement);
+    setLeft(node, freeList);
+    freeList = node;
+    size--;
+    return true;
+  }
+
+  /**
+   * Checks whether the tree contains the key *data*.
+   * @param data the key to test for, exactly keyWidth bytes long
+   * @return true if *data* is in the tree, false if it is not in the tree
+   * @throws NullPointerException when the provided data argument is null
+   * @throws IllegalArgumentException when data has the wrong width
+   */
+  public boolean contains(byte[] data) {
+    checkKey(data);
+    return findNodeWithData(data) != NIL;
+  }
+
+  /**
+   * Inserts a long key into a tree with a key width of 8.
+   * @see #insert(byte[])
+   */
+  public boolean insert(long data) throws IllegalArgumentException {
+    return insert(encode(data));
+  }
+
+  /**
+   * Removes a long key from a tree with a key width of 8.
+   * @see #remove(byte[])
+   */
+  public boolean remove(long data) throws IllegalArgumentException {
+    return remove(encode(data));
+  }
+
+  /**
+   * Checks whether a tree with a key width of 8 contains a long key.
+   * @see #contains(byte[])
+   */
+  public boolean contains(long data) {
+    return contains(encode(data));
+  }
+
+  /**
+   * Get the size of the tree (its number of nodes).
+   * @return the number of nodes in the tree
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Method to check if the tree is empty (does not contain any node).
+   * @return true of this.size() return 0, false if this.size() > 0
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Releases the off-heap memory of this tree. The tree cannot be used
+   * afterwards; calling close again has no effect.
+   */
+  @Override
+  public void close() {
+    if (chunks == null) return;
+    for (ByteBuffer chunk : chunks) {
+      if (chunk != null) release(chunk);
+    }
+    chunks = null;
+    root = NIL;
+    size = 0;
+  }
+
+  /**
+   * Encodes a long key as 8 big-endian bytes with the sign bit flipped, so
+   * that the unsigned byte order of the encoding matches the signed order.
+   * @return the scratch array holding the encoding
+   */
+  private byte[] encode(long data) {
+    if (keyWidth != 8) throw new IllegalArgumentException(
+        "Long keys need a key width of 8, but this tree has a key width of " + keyWidth);
+    long bits = data ^ Long.MIN_VALUE;
+    for (int i = 7; i >= 0; i--) {
+      scratch[i] = (byte) bits;
+      bits >>>= 8;
+    }
+    return scratch;
+  }
+
+  private void checkKey(byte[] data) {
+    if (data == null) throw new NullPointerException(
+        "This OffHeapRedBlackTree cannot store null references.");
+    if (data.length != keyWidth) throw new IllegalArgumentException(
+        "Keys of this tree are " + keyWidth + " bytes wide, not " + data.length);
+    if (chunks == null) throw new IllegalStateException("This OffHeapRedBlackTree is closed.");
+  }
+
+  /**
+   * Compares a key with the key stored in node, eight bytes at a time.
+   * @return a negative number, zero or a positive number when data is less
+   *      than, equal to or greater than the key of node
+   */
+  private int compareKey(byte[] data, int node) {
+    ByteBuffer chunk = chunks[node >>> CHUNK_SHIFT];
+    int offset = (node & CHUNK_MASK) * stride + KEY;
+    int i = 0;
+    for (; i + 8 <= keyWidth; i += 8) {
+      long word = 0;
+      for (int j = 0; j < 8; j++) word = (word << 8) | (data[i + j] & 0xFF);
+      int compare = Long.compareUnsigned(word, chunk.getLong(offset + i));
+      if (compare != 0) return compare;
+    }
+    for (; i < keyWidth; i++) {
+      int compare = (data[i] & 0xFF) - (chunk.get(offset + i) & 0xFF);
+      if (compare != 0) return compare;
+    }
+    return 0;
+  }
+
+  private int findNodeWithData(byte[] data) {
+    int current = root;
+    while (current != NIL) {
+      int compare = compareKey(data, current);
+      if (compare == 0) return current;
+      current = compare < 0 ? left(current) : right(current);
+    }
+    return NIL;
+  }
+
+  /**
+   * Hands out a slot for a new red node, reusing a removed slot when there is
+   * one, growing the first chunk while it is not full and adding a chunk when
+   * all chunks are full.
+   * @return the index of the new node
+   */
+  private int allocate(byte[] data) {
+    int node;
+    if (freeList != NIL) {
+      node = freeList;
+      freeList = left(node);
+    } else {
+      if (used == Integer.MAX_VALUE) throw new IllegalStateException(
+          "This OffHeapRedBlackTree cannot hold more nodes.");
+      node = used++;
+      int chunk = node >>> CHUNK_SHIFT;
+      if (chunk == chunks.length) {
+        chunks = Arrays.copyOf(chunks, chunks.length * 2);
+      }
+      if (chunks[chunk] == null) {
+        chunks[chunk] = ByteBuffer.allocateDirect(chunkBytes);
+      } else if (chunks[chunk].capacity() < ((node & CHUNK_MASK) + 1) * stride) {
+        // only the first chunk starts small; it doubles up to a full chunk
+        ByteBuffer smaller = chunks[chunk];
+        ByteBuffer larger = ByteBuffer.allocateDirect(Math.min(2 * smaller.capacity(), chunkBytes));
+        smaller.clear();
+        larger.put(smaller);
+        chunks[chunk] = larger;
+        release(smaller);
+      }
+    }
+    setLeft(node, NIL);
+    setRight(node, NIL);
+    setColor(node, RED);
+    ByteBuffer chunk = chunks[node >>> CHUNK_SHIFT];
+    chunk.put((node & CHUNK_MASK) * stride + KEY, data);
+    return node;
+  }
+
+  private int left(int node) {
+    return chunks[node >>> CHUNK_SHIFT].getInt((node & CHUNK_MASK) * stride + LEFT);
+  }
+
+  private int right(int node) {
+    return chunks[node >>> CHUNK_SHIFT].getInt((node & CHUNK_MASK) * stride + RIGHT);
+  }
+
+  private int parent(int node) {
+    return chunks[node >>> CHUNK_SHIFT].getInt((node & CHUNK_MASK) * stride + PARENT);
+  }
+
+  private byte color(int node) {
+    return chunks[node >>> CHUNK_SHIFT].get((node & CHUNK_MASK) * stride + COLOR);
+  }
+
+  private void setLeft(int node, int child) {
+    chunks[node >>> CHUNK_SHIFT].putInt((node & CHUNK_MASK) * stride + LEFT, child);
+  }
+
+  private void setRight(int node, int child) {
+    chunks[node >>> CHUNK_SHIFT].putInt((node & CHUNK_MASK) * stride + RIGHT, child);
+  }
+
+  private void setParent(int node, int parent) {
+    chunks[node >>> CHUNK_SHIFT].putInt((node & CHUNK_MASK) * stride + PARENT, parent);
+  }
+
+  private void setColor(int node, byte color) {
+    chunks[node >>> CHUNK_SHIFT].put((node & CHUNK_MASK) * stride + COLOR, color);
+  }
+
+  /**
+   * Replaces the subtree rooted at node with the subtree rooted at replacement.
+   * The parent of the sentinel is set as well, which the remove fixup relies on.
+   */
+  private void transplant(int node, int replacement) {
+    int nodeParent = parent(node);
+    if (nodeParent == NIL) {
+      root = replacement;
+    } else if (left(nodeParent) == node) {
+      setLeft(nodeParent, replacement);
+    } else {
+      setRight(nodeParent, replacement);
+    }
+    setParent(replacement, nodeParent);
+  }
+
+  private void rotateLeft(int node) {
+    int child = right(node);
+    setRight(node, left(child));
+    if (left(child) != NIL) setParent(left(child), node);
+    transplant(node, child);
+    setLeft(child, node);
+    setParent(node, child);
+  }
+
+  private void rotateRight(int node) {
+    int child = left(node);
+    setLeft(node, right(child));
+    if (right(child) != NIL) setParent(right(child), node);
+    transplant(node, child);
+    setRight(child, node);
+    setParent(node, child);
+  }
+
+  /**
+   * Restores the red-black properties after newNode was inserted as a red leaf.
+   */
+  private void enforceRBTreePropertiesAfterInsert(int newNode) {
+    int node = newNode;
+    while (color(parent(node)) == RED) {
+      int nodeParent = parent(node);
+      int grandparent = parent(nodeParent);
+      boolean parentIsLeft = nodeParent == left(grandparent);
+      int aunt = parentIsLeft ? right(grandparent) : left(grandparent);
+      if (color(aunt) == RED) {
+        // parent's sibling is red: recolor and continue from the grandparent
+        setColor(nodeParent, BLACK);
+        setColor(aunt, BLACK);
+        setColor(grandparent, RED);
+        node = grandparent;
+      } else {
+        if (parentIsLeft && node == right(nodeParent)) {
+          node = nodeParent;
+          rotateLeft(node);
+        } else if (!parentIsLeft && node == left(nodeParent)) {
+          node = nodeParent;
+          rotateRight(node);
+        }
+        nodeParent = parent(node);
+        setColor(nodeParent, BLACK);
+        setColor(grandparent, RED);
+        if (parentIsLeft) rotateRight(grandparent);
+        else rotateLeft(grandparent);
+      }
+    }
+    setColor(root, BLACK);
+  }
+
+  /**
+   * Restores the red-black properties after a black node was unlinked and
+   * node took its position, carrying an extra black.
+   */
+  private void enforceRBTreePropertiesAfterRemove(int node) {
+    while (node != root && color(node) == BLACK) {
+      int nodeParent = parent(node);
+      if (node == left(nodeParent)) {
+        int sibling = right(nodeParent);
+        if (color(sibling) == RED) {
+          setColor(sibling, BLACK);
+          setColor(nodeParent, RED);
+          rotateLeft(nodeParent);
+          sibling = right(nodeParent);
+        }
+        if (color(left(sibling)) == BLACK && color(right(sibling)) == BLACK) {
+          setColor(sibling, RED);
+          node = nodeParent;
+        } else {
+          if (color(right(sibling)) == BLACK) {
+            setColor(left(sibling), BLACK);
+            setColor(sibling, RED);
+            rotateRight(sibling);
+            sibling = right(nodeParent);
+          }
+          setColor(sibling, color(nodeParent));
+          setColor(nodeParent, BLACK);
+          setColor(right(sibling), BLACK);
+          rotateLeft(nodeParent);
+          node = root;
+        }
+      } else {
+        int sibling = left(nodeParent);
+        if (color(sibling) == RED) {
+          setColor(sibling, BLACK);
+          setColor(nodeParent, RED);
+          rotateRight(nodeParent);
+          sibling = left(nodeParent);
+        }
+        if (color(left(sibling)) == BLACK && color(right(sibling)) == BLACK) {
+          setColor(sibling, RED);
+          node = nodeParent;
+        } else {
+          if (color(left(sibling)) == BLACK) {
+            setColor(right(sibling), BLACK);
+            setColor(sibling, RED);
+            rotateLeft(sibling);
+            sibling = left(nodeParent);
+          }
+          setColor(sibling, color(nodeParent));
+          setColor(nodeParent, BLACK);
+          setColor(left(sibling), BLACK);
+          rotateRight(nodeParent);
+          node = root;
+        }
+      }
+    }
+    setColor(node, BLACK);
+  }
+
+  /**
+   * Frees the native memory of a direct buffer right away instead of waiting
+   * for the buffer to be collected. Falls back to the collector when the
+   * running JVM does not offer sun.misc.Unsafe.invokeCleaner.
+   */
+  private static void release(ByteBuffer buffer) {
+    if (INVOKE_CLEANER == null) return;
+    try {
+      INVOKE_CLEANER.invoke(UNSAFE, buffer);
+    } catch (ReflectiveOperationException e) {
+      // the buffer is freed once it is collected
+    }
+  }
+
+  private static final Object UNSAFE;
+  private static final Method INVOKE_CLEANER;
+  static {
+    Object unsafe = null;
+    Method invokeCleaner = null;
+    try {
+      Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+      theUnsafe.setAccessible(true);
+      unsafe = theUnsafe.get(null);
+      invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      unsafe = null;
+      invokeCleaner = null;
+    }
+    UNSAFE = unsafe;
+    INVOKE_CLEANER = invokeCleaner;
+  }
+}
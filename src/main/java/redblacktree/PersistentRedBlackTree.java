@@ -0,0 +1,392 @@
+package redblacktree;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Persistent Red-Black Tree. Its nodes are immutable and have no parent
+ * reference, so an insert or remove copies only the O(log n) nodes on the path
+ * from the root to the changed position and shares every other node with the
+ * previous version of the tree. snapshot() therefore takes O(1): it hands out
+ * the current root, and readers can search and iterate that snapshot without
+ * any locking while writers keep changing the tree.
+ * Rebalancing follows Okasaki's functional insertion and Kahrs' functional
+ * deletion, which rebuild the path instead of rotating nodes in place.
+ * Updates of one tree are serialized; reads never block.
+ */
+public class PersistentRedBlackTree<T extends Comparable<T>> implements SortedCollectionInterface<T>, Iterable<T> {
+
+  /**
+   * Immutable node of the persistent tree.
+   */
+  private static final class Node<T> {
+    final T data;
+    final Node<T> left;
+    final Node<T> right;
+    final boolean black;
+
+    Node(T data, Node<T> left, Node<T> right, boolean black) {
+      this.data = data;
+      this.left = left;
+      this.right = right;
+      this.black = black;
+    }
+  }
+
+  // the current version: the root and its size are replaced together
+  private static final class Version<T> {
+    final Node<T> root;
+    final int size;
+
+    Version(Node<T> root, int size) {
+      this.root = root;
+      this.size = size;
+    }
+  }
+
+  private volatile Version<T> version = new Version<>(null, 0);
+
+  /**
+   * Returns a snapshot of this tree in O(1). The snapshot shares all nodes with
+   * this tree and is itself a PersistentRedBlackTree; later changes to either
+   * tree are not visible in the other.
+   * @return an independent tree holding the current values
+   */
+  public PersistentRedBlackTree<T> snapshot() {
+    PersistentRedBlackTree<T> snapshot = new PersistentRedBlackTree<>();
+    snapshot.version = this.version;
+    return snapshot;
+  }
+
+  /**
+   * Inserts a value by copying the path to its leaf position.
+   * @return true if the value was inserted
+   * @throws NullPointerException when the provided data argument is null
+   * @throws IllegalArgumentException when data is already contained in the tree
+   */
+  @Override
+  public boolean insert(T data) throws NullPointerException, IllegalArgumentException {
+    if (!tryInsert(data)) {
+      throw new IllegalArgumentException("This PersistentRedBlackTree already contains value " + data.toString());
+    }
+    return true;
+  }
+
+  /**
+   * Inserts a value like insert, but reports a duplicate through the return value.
+   * @return true if the value was inserted, false if the tree already contains it
+   * @throws NullPointerException when the provided data argument is null
+   */
+  public synchronized boolean tryInsert(T data) throws NullPointerException {
+    checkNotNull(data);
+    Version<T> current = this.version;
+    if (findNodeWithData(current.root, data) != null) return false;
+    this.version = new Version<>(blacken(insert(current.root, data)), current.size + 1);
+    return true;
+  }
+
+  /**
+   * Removes a value by copying the path to its node.
+   * @return true if the value was removed
+   * @throws NullPointerException when the provided data argument is null
+   * @throws IllegalArgumentException when data is not stored in the tree
+   */
+  @Override
+  public boolean remove(T data) throws NullPointerException, IllegalArgumentException {
+    if (!tryRemove(data)) {
+      throw new IllegalArgumentException("The following value is not in the tree and cannot be deleted: " + data.toString());
+    }
+    return true;
+  }
+
+  /**
+   * Removes a value like remove, but reports a missing value through the return value.
+   * @return true if the value was removed, false if the tree does not contain it
+   * @throws NullPointerException when the provided data argument is null
+   */
+  public synchronized boolean tryRemove(T data) throws NullPointerException {
+    checkNotNull(data);
+    Version<T> current = this.version;
+    if (findNodeWithData(current.root, data) == null) return false;
+    this.version = new Version<>(blacken(delete(current.root, data)), current.size - 1);
+    return true;
+  }
+
+  /**
+   * Checks whether the tree contains the value *data*, without locking.
+   * @throws NullPointerException when the provided data argument is null
+   */
+  @Override
+  public boolean contains(T data) {
+    checkNotNull(data);
+    return findNodeWithData(this.version.root, data) != null;
+  }
+
+  @Override
+  public int size() {
+    return this.version.size;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  /**
+   * Returns an iterator over the version of the tree that is current when this
+   * method is called. Later changes to the tree do not affect the iteration.
+   * @return an iterator over the values in ascending order
+   */
+  @Override
+  public Iterator<T> iterator() {
+    Version<T> current = this.version;
+    // a red-black tree of n values is at most 2*log2(n+1) nodes deep
+    int maxDepth = 2 * (32 - Integer.numberOfLeadingZeros(current.size + 1));
+    @SuppressWarnings("unchecked")
+    Node<T>[] stack = (Node<T>[]) new Node<?>[maxDepth + 1];
+    return new Iterator<T>() {
+      private int depth = pushLeftSpine(stack, 0, current.root);
+
+      @Override
+      public boolean hasNext() {
+        return depth > 0;
+      }
+
+      @Override
+      public T next() {
+        if (depth == 0) throw new NoSuchElementException();
+        Node<T> node = stack[--depth];
+        depth = pushLeftSpine(stack, depth, node.right);
+        return node.data;
+      }
+    };
+  }
+
+  private static <T> int pushLeftSpine(Node<T>[] stack, int depth, Node<T> node) {
+    while (node != null) {
+      stack[depth++] = node;
+      node = node.left;
+    }
+    return depth;
+  }
+
+  /**
+   * This method performs an inorder traversal of the tree.
+   * @return string containing the ordered values of this tree
+   */
+  public String toInOrderString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("[ ");
+    Iterator<T> iterator = iterator();
+    while (iterator.hasNext()) {
+      sb.append(iterator.next().toString());
+      if (iterator.hasNext()) sb.append(", ");
+    }
+    sb.append(" ]");
+    return sb.toString();
+  }
+
+  public String toString() {
+    return toInOrderString();
+  }
+
+  private static <T extends Comparable<T>> Node<T> findNodeWithData(Node<T> current, T data) {
+    while (current != null) {
+      int compare = data.compareTo(current.data);
+      if (compare == 0) return current;
+      current = compare < 0 ? current.left : current.right;
+    }
+    return null;
+  }
+
+  private static void checkNotNull(Object data) {
+    if (data == null) throw new NullPointerException(
+        "This PersistentRedBlackTree cannot store null references.");
+  }
+
+  private static boolean isRed(Node<?> node) {
+    return node != null && !node.black;
+  }
+
+  private static boolean isBlack(Node<?> node) {
+    return node != null && node.black;
+  }
+
+  private static <T> Node<T> black(T data, Node<T> left, Node<T> right) {
+    return new Node<>(data, left, right, true);
+  }
+
+  private static <T> Node<T> red(T data, Node<T> left, Node<T> right) {
+    return new Node<>(data, left, right, false);
+  }
+
+  private static <T> Node<T> blacken(Node<T> node) {
+    return (node == null || node.black) ? node : black(node.data, node.left, node.right);
+  }
+
+  private static <T> Node<T> redden(Node<T> node) {
+    return node.black ? red(node.data, node.left, node.right) : node;
+  }
+
+  /**
+   * Copies the path to the leaf position of data and adds it as a red leaf,
+   * rebalancing red-red violations on the way back up. data must not be in the tree.
+   */
+  private static <T extends Comparable<T>> Node<T> insert(Node<T> node, T data) {
+    if (node == null) return red(data, null, null);
+    if (data.compareTo(node.data) < 0) {
+      return balanceLeft(node.black, node.data, insert(node.left, data), node.right);
+    } else {
+      return balanceRight(node.black, node.data, node.left, insert(node.right, data));
+    }
+  }
+
+  /**
+   * Builds a node whose left subtree may have a red child below a red root.
+   */
+  private static <T> Node<T> balanceLeft(boolean isBlack, T data, Node<T> left, Node<T> right) {
+    if (isRed(left) && isRed(left.left)) {
+      return red(left.data, blacken(left.left), black(data, left.right, right));
+    } else if (isRed(left) && isRed(left.right)) {
+      return red(left.right.data, black(left.data, left.left, left.right.left),
+          black(data, left.right.right, right));
+    }
+    return new Node<>(data, left, right, isBlack);
+  }
+
+  /**
+   * Builds a node whose right subtree may have a red child below a red root.
+   */
+  private static <T> Node<T> balanceRight(boolean isBlack, T data, Node<T> left, Node<T> right) {
+    if (isRed(right) && isRed(right.left)) {
+      return red(right.left.data, black(data, left, right.left.left),
+          black(right.data, right.left.right, right.right));
+    } else if (isRed(right) && isRed(right.right)) {
+      return red(right.data, black(data, left, right.left), blacken(right.right));
+    }
+    return new Node<>(data, left, right, isBlack);
+  }
+
+  /**
+   * Copies the path to the node holding data and removes it. A subtree that
+   * lost a black node on one side is repaired by balanceAfterLeftRemove or
+   * balanceAfterRightRemove. data must be in the tree.
+   */
+  private static <T extends Comparable<T>> Node<T> delete(Node<T> node, T data) {
+    int compare = data.compareTo(node.data);
+    if (compare < 0) {
+      Node<T> left = delete(node.left, data);
+      return isBlack(node.left) ? balanceAfterLeftRemove(node.data, left, node.right)
+          : red(node.data, left, node.right);
+    } else if (compare > 0) {
+      Node<T> right = delete(node.right, data);
+      return isBlack(node.right) ? balanceAfterRightRemove(node.data, node.left, right)
+          : red(node.data, node.left, right);
+    }
+    return append(node.left, node.right);
+  }
+
+  /**
+   * Rebuilds a node whose left subtree is one black node short.
+   */
+  private static <T> Node<T> balanceAfterLeftRemove(T data, Node<T> left, Node<T> right) {
+    if (isRed(left)) {
+      return red(data, blacken(left), right);
+    } else if (isBlack(right)) {
+      return balance(data, left, redden(right));
+    } else if (isRed(right) && isBlack(right.left)) {
+      return red(right.left.data, black(data, left, right.left.left),
+          balance(right.data, right.left.right, redden(right.right)));
+    }
+    throw new IllegalStateException("This PersistentRedBlackTree is not balanced.");
+  }
+
+  /**
+   * Rebuilds a node whose right subtree is one black node short.
+   */
+  private static <T> Node<T> balanceAfterRightRemove(T data, Node<T> left, Node<T> right) {
+    if (isRed(right)) {
+      return red(data, left, blacken(right));
+    } else if (isBlack(left)) {
+      return balance(data, redden(left), right);
+    } else if (isRed(left) && isBlack(left.right)) {
+      return red(left.right.data, balance(left.data, redden(left.left), left.right.left),
+          black(data, left.right.right, right));
+    }
+    throw new IllegalStateException("This PersistentRedBlackTree is not balanced.");
+  }
+
+  /**
+   * Builds a black node from two subtrees of equal black height, resolving a
+   * red-red violation in either of them.
+   */
+  private static <T> Node<T> balance(T data, Node<T> left, Node<T> right) {
+    if (isRed(left)) {
+      if (isRed(right)) {
+        return red(data, blacken(left), blacken(right));
+      } else if (isRed(left.left)) {
+        return red(left.data, blacken(left.left), black(data, left.right, right));
+      } else if (isRed(left.right)) {
+        return red(left.right.data, black(left.data, left.left, left.right.left),
+            black(data, left.right.right, right));
+      }
+    } else if (isRed(right)) {
+      if (isRed(right.right)) {
+        return red(right.data, black(data, left, right.left), blacken(right.right));
+      } else if (isRed(right.left)) {
+        return red(right.left.data, black(data, left, right.left.left),
+            black(right.data, right.left.right, right.right));
+      }
+    }
+    return black(data, left, right);
+  }
+
+  /**
+   * Joins the two subtrees of a removed node, all of whose values in left are
+   * smaller than those in right.
+   */
+  private static <T> Node<T> append(Node<T> left, Node<T> right) {
+    if (left == null) return right;
+    if (right == null) return left;
+    if (isRed(left) && isRed(right)) {
+      Node<T> middle = append(left.right, right.left);
+      if (isRed(middle)) {
+        return red(middle.data, red(left.data, left.left, middle.left),
+            red(right.data, middle.right, right.right));
+      }
+      return red(left.data, left.left, red(right.data, middle, right.right));
+    } else if (isBlack(left) && isBlack(right)) {
+      Node<T> middle = append(left.right, right.left);
+      if (isRed(middle)) {
+        return red(middle.data, black(left.data, left.left, middle.left),
+            black(right.data, middle.right, right.right));
+      }
+      return balanceAfterLeftRemove(left.data, left.left, black(right.data, middle, right.right));
+    } else if (isRed(right)) {
+      return red(right.data, append(left, right.left), right.right);
+    }
+    return red(left.data, left.left, append(left.right, right));
+  }
+
+  /**
+   * Checks the red-black properties of the current version, for the tests.
+   * @return the black height of the tree, or -1 when a property is violated
+   */
+  int checkedBlackHeight() {
+    Node<T> root = version.root;
+    return isRed(root) ? -1 : blackHeightOf(root);
+  }
+
+  /**
+   * Checks the red-black properties of the subtree rooted at node.
+   * @return the black height of the subtree, or -1 when a property is violated
+   */
+  private static int blackHeightOf(Node<?> node) {
+    if (node == null) return 1;
+    if (isRed(node) && (isRed(node.left) || isRed(node.right))) return -1;
+    int leftHeight = blackHeightOf(node.left);
+    int rightHeight = blackHeightOf(node.right);
+    if (leftHeight < 0 || leftHeight != rightHeight) return -1;
+    return leftHeight + (node.black ? 1 : 0);
+  }
+}
@@ -0,0 +1,2545 @@
+package redblacktree;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import jdk.jfr.FlightRecorder;
+
+// --== CS400 Spring 2023 File Header Information ==--
+// Name: Jeonghyeon Park
+// Email: jpark634@wisc.edu
+// Team: BM
+// TA: ILAY R
+// Lecturer: Gary Dahl
+// Notes to Grader: None
+
+/**
+ * Red-Black Tree implementation with a Node inner class for representing
+ * the nodes of the tree. Currently, this implements a Binary Search Tree that
+ * we will turn into a red black tree by modifying the insert functionality.
+ * In this activity, we will start with implementing rotations for the binary
+ * search tree insert algorithm.
+ */
+public class RedBlackTree<T extends Comparable<T>> extends AbstractSet<T>
+    implements NavigableSet<T>, SortedCollectionInterface<T> {
+
+  /**
+   * This class represents a node holding a single value within a binary tree.
+   */
+  protected static class Node<T> {
+    public T data;
+    // The context of the node in the tree is kept in three direct fields
+    // rather than in a separate array, so every node is a single object and
+    // each step of a descent or rotation is one dereference:
+    // - parent is the parent reference of the node,
+    // - left is the left child reference of the node,
+    // - right is the right child reference of the node.
+    public Node<T> parent;
+    public Node<T> left;
+    public Node<T> right;
+    public Node(T data) { this.data = data; }
+    // The color of the node: 0 for red and 1 for black. A byte packs into the
+    // padding left after the reference fields.
+    public byte blackHeight=0; //by default
+    // The number of nodes in the subtree rooted at this node, which answers
+    // rank and select queries in logarithmic time. It is kept up to date by
+    // updateNode whenever the children of a node change. It costs 8 bytes
+    // per node (40 instead of 32 with compressed oops, see NodeFootprint),
+    // but it is not optional: the sizes of range views, the exact splits of
+    // the spliterator, the sizes of split and join results and the parallel
+    // thresholds of the fork-join methods all read it, and would take O(n)
+    // without it. Subclasses that need more per-node fields add them through
+    // newNode instead.
+    public int subtreeSize=1;
+
+    /**
+     * @return true when this node has a parent and is the right child of
+     * that parent, otherwise return false
+     */
+    public boolean isRightChild() {
+      return parent != null && parent.right == this;
+    }
+
+    public boolean isLeftChild() {
+      return parent != null && parent.left == this;
+    }
+
+  }
+
+  protected Node<T> root; // reference to root node of tree, null when empty
+  protected int size = 0; // the number of values in the tree
+  protected int modCount = 0; // the number of structural changes, for fail-fast iteration
+  protected TreeMetrics metrics; // the counters while metrics are enabled, null otherwise
+  private Runnable metricsEventHook; // emits the JFR event while metrics are enabled
+
+  /**
+   * Inserts the input data value into a new node in a leaf position within
+   * the tree and then restores the red-black tree properties.
+   * This tree will not hold null references, nor duplicate data values.
+   * @param data to be added into this binary search tree
+   * @return true if the value was inserted, false if not
+   * @throws NullPointerException when the provided data argument is null
+   * @throws IllegalArgumentException when data is already contained in the tree
+   */
+  public boolean insert(T data) throws NullPointerException, IllegalArgumentException {
+    if (!tryInsert(data)) {
+      throw new IllegalArgumentException("This RedBlackTree already contains value " + data.toString());
+    }
+    return true;
+  }
+
+  /**
+   * Inserts the input data value like insert, but reports a duplicate through
+   * its return value instead of an exception. The duplicate check happens
+   * during the descent, so no node is allocated for a value that is already
+   * contained in the tree.
+   * @param data to be added into this binary search tree
+   * @return true if the value was inserted, false if the tree already contains it
+   * @throws NullPointerException when the provided data argument is null
+   */
+  public boolean tryInsert(T data) throws NullPointerException {
+    int sizeBefore = this.size;
+    findOrInsert(data);
+    return this.size != sizeBefore;
+  }
+
+  /**
+   * Finds the node holding a value equal to data, or inserts data when there is
+   * none, in a single descent. This is the building block of tryInsert and of
+   * the single-descent updates of RedBlackTreeMap.
+   * @param data the value to look for or insert
+   * @return the node already holding a value equal to data, or the new node
+   *      holding data
+   * @throws NullPointerException when the provided data argument is null
+   */
+  protected Node<T> findOrInsert(T data) throws NullPointerException {
+    // null references cannot be stored within this tree
+    if(data == null) throw new NullPointerException(
+        "This RedBlackTree cannot store null references.");
+
+    if (this.root == null) {
+      // add first node to an empty tree
+      root = newNode(data); size++; modCount++;
+      root.blackHeight=1;
+      return root;
+    } else {
+      // find the leaf position of data in the subtree
+      Node<T> current = this.root;
+      int compare;
+      int pathLength = 0;
+      while (true) {
+        pathLength++;
+        compare = data.compareTo(current.data);
+        if (compare == 0) {
+          break;
+        } else if (compare < 0) {
+          if (current.left == null) break; // insert in left subtree
+          current = current.left;
+        } else {
+          if (current.right == null) break; // insert in right subtree
+          current = current.right;
+        }
+      }
+      if (metrics != null) metrics.recordSearch(pathLength);
+      if (compare == 0) return current;
+      // empty space to insert into
+      return insertLeaf(current, compare < 0, data);
+    }
+  }
+
+  /**
+   * Inserts all values of a batch, reporting the values that are already in
+   * the tree (or appear more than once in the batch) through the returned list
+   * instead of exceptions. The batch is sorted first, which is cheap for
+   * batches made of sorted runs, and each value is then inserted starting from
+   * the node of the previous value: the search climbs through the parent links
+   * only as far as needed to reach a subtree whose range contains the value,
+   * and descends from there. For clustered batches this costs about O(log d)
+   * per value, where d is the distance to the previous value in the tree,
+   * rather than O(log n) per value from the root.
+   * @param values the values to insert
+   * @return the values that were not inserted because they were duplicates, in
+   *      ascending order
+   * @throws NullPointerException when values contains null, in which case
+   *      nothing is inserted
+   */
+  public List<T> insertAll(Collection<? extends T> values) throws NullPointerException {
+    Object[] batch = values.toArray();
+    for (Object value : batch) {
+      if (value == null) throw new NullPointerException(
+          "This RedBlackTree cannot store null references.");
+    }
+    if (!isSorted(batch)) Arrays.sort(batch);
+    List<T> duplicates = new ArrayList<>();
+    Node<T> finger = null; // the node of the previous value of the batch
+    for (Object value : batch) {
+      @SuppressWarnings("unchecked")
+      T data = (T) value;
+      if (this.root == null) {
+        root = newNode(data); size++; modCount++;
+        root.blackHeight=1;
+        finger = this.root;
+        continue;
+      }
+      // climb from the finger until data lies within the range of the subtree
+      Node<T> current = this.root;
+      if (finger != null) {
+        if (data.compareTo(finger.data) == 0) {
+          duplicates.add(data);
+          continue;
+        }
+        current = finger;
+        while (current.parent != null) {
+          if (current.isLeftChild()) {
+            // the parent bounds the subtree from above, and the finger from below
+            int compare = data.compareTo(current.parent.data);
+            if (compare < 0) break;
+            if (compare == 0) {
+              current = current.parent;
+              break;
+            }
+          }
+          current = current.parent;
+        }
+      }
+      // descend from there like tryInsert
+      int compare;
+      int pathLength = 0;
+      while (true) {
+        pathLength++;
+        compare = data.compareTo(current.data);
+        if (compare == 0) {
+          break;
+        } else if (compare < 0) {
+          if (current.left == null) break;
+          current = current.left;
+        } else {
+          if (current.right == null) break;
+          current = current.right;
+        }
+      }
+      if (metrics != null) metrics.recordSearch(pathLength);
+      if (compare == 0) {
+        duplicates.add(data);
+        finger = current;
+      } else {
+        finger = insertLeaf(current, compare < 0, data);
+      }
+    }
+    return duplicates;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static boolean isSorted(Object[] values) {
+    for (int i = 1; i < values.length; i++) {
+      if (((Comparable<Object>) values[i - 1]).compareTo(values[i]) > 0) return false;
+    }
+    return true;
+  }
+
+  /**
+   * Links a new node holding data below parent and restores the red-black properties.
+   * @return the new node
+   */
+  private Node<T> insertLeaf(Node<T> parent, boolean asLeftChild, T data) {
+    Node<T> newNode = newNode(data);
+    if (asLeftChild) {
+      parent.left = newNode;
+    } else {
+      parent.right = newNode;
+    }
+    newNode.parent = parent;
+    this.size++;
+    this.modCount++;
+    updatePathToRoot(parent);
+    enforceRBTreePropertiesAfterInsert(newNode);
+    return newNode;
+  }
+
+  /**
+   * Performs the rotation operation on the provided nodes within this tree.
+   * When the provided child is a left child of the provided parent, this
+   * method will perform a right rotation. When the provided child is a
+   * right child of the provided parent, this method will perform a left rotation.
+   * When the provided nodes are not related in one of these ways, this method
+   * will throw an IllegalArgumentException.
+   * @param child is the node being rotated from child to parent position
+   *      (between these two node arguments)
+   * @param parent is the node being rotated from parent to child position
+   *      (between these two node arguments)
+   * @throws IllegalArgumentException when the provided child and parent
+   *      node references are not initially (pre-rotation) related that way
+   */
+  private void rotate(Node<T> child, Node<T> parent) throws IllegalArgumentException {
+
+    if (child.parent!=parent) {//check the exception
+      throw new IllegalArgumentException("The child and parent are not related");
+    }
+    if (metrics != null) metrics.rotations.increment();
+
+
+    if (child.isRightChild()) {//left rotation
+      Node <T> tempNode;//create a temporary node
+      if (child.left!=null) {
+        tempNode=child.left;
+      }
+      else {
+        tempNode=null;
+      }
+      if (parent.parent!=null) {//Check if the parent has its parent
+        child.parent=parent.parent;//connects child nodes to parent's parent node
+        if (parent.isRightChild()) {
+          parent.parent.right=child;//also connects parent's parent node to child node
+        }
+        else {
+          parent.parent.left=child;
+        }
+      }
+      else {
+        root=child;
+        child.parent=null;
+      }
+      parent.parent=child;//parent's parent's node is child node
+      child.left=parent;//child's left child is parent node
+      parent.right=null;//break the links between child and parent
+      if (tempNode!=null) {//If tempNode has a value, place the node in a right place
+        child.left.right=tempNode;
+        tempNode.parent=child.left;
+      }
+    }
+
+
+    else if (parent!=null && parent.left==child) {//right rotation
+      Node <T> tempNode;//create a temporary node
+      if (child.right!=null) {
+        tempNode=child.right;
+      }
+      else {
+        tempNode=null;
+      }
+      if (parent.parent!=null) {//Check if the parent has its parent
+        child.parent=parent.parent;//connects child nodes to parent's parent node
+        if (parent.isRightChild()) {
+          parent.parent.right = child;//also connects parent's parent node to child node
+        }
+        else {
+          parent.parent.left = child;
+        }
+      }
+      else {
+        root = child;
+        child.parent = null;
+      }
+      //sets parent and child links to rotate the node right
+      parent.parent=child;
+      child.right=parent;
+      parent.left=null;
+      if (tempNode!=null) {//If tempNode has a value, place the node in a right place
+        child.right.left=tempNode;
+        tempNode.parent=child.right;
+      }
+    }
+
+
+    else {//cause exceptions if there is any other variable arises
+      throw new IllegalArgumentException("Not valid");
+    }
+    // the parent is now below the child, so it has to be updated first
+    updateNode(parent);
+    updateNode(child);
+  }
+
+  /**
+   * Creates the node for a value inserted into this tree. Subclasses that
+   * augment the nodes with more fields return a subclass of Node here and
+   * maintain the fields in updateNode.
+   * @param data the value of the node
+   * @return a new red node without links
+   */
+  protected Node<T> newNode(T data) {
+    return new Node<>(data);
+  }
+
+  /**
+   * Creates an empty tree of the same kind as this one, which receives nodes
+   * of this tree in split, join, union, intersection and difference.
+   * Subclasses that augment the nodes return an instance of their own class,
+   * so the results keep maintaining the extra fields.
+   * @return a new empty tree
+   */
+  protected RedBlackTree<T> newEmptyTree() {
+    return new RedBlackTree<>();
+  }
+
+  /**
+   * Recomputes the fields of a node that summarize its subtree, currently its
+   * subtreeSize, from the fields of its children. This is called for every
+   * node whose children change, bottom up.
+   * @param node the node to update
+   */
+  protected void updateNode(Node<T> node) {
+    node.subtreeSize = 1 + subtreeSize(node.left) + subtreeSize(node.right);
+  }
+
+  /**
+   * Calls updateNode on node and on all of its ancestors up to the root.
+   * @param node the lowest node to update, may be null
+   */
+  protected void updatePathToRoot(Node<T> node) {
+    while (node != null) {
+      updateNode(node);
+      node = node.parent;
+    }
+  }
+
+  /**
+   * @return the number of nodes in the subtree rooted at node, 0 for null
+   */
+  protected static int subtreeSize(Node<?> node) {
+    return node == null ? 0 : node.subtreeSize;
+  }
+
+
+  /**
+   * Get the size of the tree (its number of nodes).
+   * @return the number of nodes in the tree
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Method to check if the tree is empty (does not contain any node).
+   * @return true of this.size() return 0, false if this.size() > 0
+   */
+  public boolean isEmpty() {
+    return this.size() == 0;
+  }
+
+  /**
+   * Removes the value data from the tree if the tree contains the value.
+   * After the removal, the red-black tree properties are restored through
+   * enforceRBTreePropertiesAfterRemove, so the height of the tree stays
+   * within 2*log2(n+1).
+   * @return true if the value was remove, false if it didn't exist
+   * @throws NullPointerException when the provided data argument is null
+   * @throws IllegalArgumentException when data is not stored in the tree
+   */
+  public boolean remove(T data) throws NullPointerException, IllegalArgumentException {
+    if (!tryRemove(data)) {
+      throw new IllegalArgumentException("The following value is not in the tree and cannot be deleted: " + data.toString());
+    }
+    return true;
+  }
+
+  /**
+   * Removes the value data from the tree like remove, but reports a value that
+   * is not stored in the tree through its return value instead of an exception.
+   * @param data to be removed from this tree
+   * @return true if the value was removed, false if the tree does not contain it
+   * @throws NullPointerException when the provided data argument is null
+   */
+  public boolean tryRemove(T data) throws NullPointerException {
+    // null references will not be stored within this tree
+    if (data == null) {
+      throw new NullPointerException("This RedBlackTree cannot store null references.");
+    } else {
+      Node<T> nodeWithData = this.findNodeWithData(data);
+      // nothing to remove if node with data does not exist
+      if (nodeWithData == null) {
+        return false;
+      }
+      removeNode(nodeWithData);
+      return true;
+    }
+  }
+
+  /**
+   * Helper method that removes a node of this tree and restores the red-black
+   * tree properties. When the node has two children, its data is replaced with
+   * that of its in-order successor and the successor's node is unlinked instead.
+   * @param nodeWithData the node to remove
+   */
+  protected void removeNode(Node<T> nodeWithData) {
+    boolean hasRightChild = (nodeWithData.right != null);
+    boolean hasLeftChild = (nodeWithData.left != null);
+    if (hasRightChild && hasLeftChild) {
+      // has 2 children
+      Node<T> successorNode = this.findMinOfRightSubtree(nodeWithData);
+      // replace value of node with value of successor node
+      nodeWithData.data = successorNode.data;
+      // remove successor node instead, which has at most a right child
+      nodeWithData = successorNode;
+    }
+    // the node to remove now has at most one child
+    Node<T> childNode = (nodeWithData.left != null) ? nodeWithData.left : nodeWithData.right;
+    if (childNode != null) {
+      // a single child is always a red leaf below a black node:
+      // replace the node with its child and color that child black
+      this.replaceNode(nodeWithData, childNode);
+      childNode.blackHeight = 1;
+      updatePathToRoot(childNode.parent);
+    } else if (nodeWithData.blackHeight == 0 || nodeWithData == this.root) {
+      // a red leaf or the last node can be removed without further changes
+      this.replaceNode(nodeWithData, null);
+      updatePathToRoot(nodeWithData.parent);
+    } else {
+      // a black leaf leaves a path one black node short, which has to be
+      // fixed while the leaf still marks the position of that path
+      enforceRBTreePropertiesAfterRemove(nodeWithData);
+      this.replaceNode(nodeWithData, null);
+      updatePathToRoot(nodeWithData.parent);
+    }
+    this.size--;
+    this.modCount++;
+  }
+
+  /**
+   * Checks whether the tree contains the value *data*.
+   * @param data the data value to test for
+   * @return true if *data* is in the tree, false if it is not in the tree
+   */
+  public boolean contains(T data) {
+    // null references will not be stored within this tree
+    if (data == null) {
+      throw new NullPointerException("This RedBlackTree cannot store null references.");
+    } else {
+      Node<T> nodeWithData = this.findNodeWithData(data);
+      // return false if the node is null, true otherwise
+      return (nodeWithData != null);
+    }
+  }
+
+  /**
+   * Counts the values in the tree that are smaller than data, which is the
+   * zero based position data has or would have in the sorted order.
+   * @param data the value to rank
+   * @return the number of values in the tree that are less than data
+   * @throws NullPointerException when the provided data argument is null
+   */
+  public int rank(T data) {
+    return countLessThan(data, false);
+  }
+
+  /**
+   * Finds the value at a zero based position of the sorted order, so that
+   * select(0) is the smallest value and select(size() - 1) is the largest.
+   * @param index the position of the value to return
+   * @return the value at position index
+   * @throws IndexOutOfBoundsException when index is negative or not less than size()
+   */
+  public T select(int index) throws IndexOutOfBoundsException {
+    if (index < 0 || index >= this.size) {
+      throw new IndexOutOfBoundsException("Index " + index + " is out of bounds for size " + this.size);
+    }
+    Node<T> current = this.root;
+    while (true) {
+      int leftSize = subtreeSize(current.left);
+      if (index < leftSize) {
+        current = current.left;
+      } else if (index == leftSize) {
+        return current.data;
+      } else {
+        index -= leftSize + 1;
+        current = current.right;
+      }
+    }
+  }
+
+  /**
+   * Counts the values in the tree between lo and hi, both inclusive.
+   * @param lo the lower bound of the range
+   * @param hi the upper bound of the range
+   * @return the number of values v in the tree with lo <= v <= hi, 0 when hi < lo
+   * @throws NullPointerException when lo or hi is null
+   */
+  public int countInRange(T lo, T hi) {
+    if (lo == null || hi == null) {
+      throw new NullPointerException("This RedBlackTree cannot store null references.");
+    }
+    if (hi.compareTo(lo) < 0) return 0;
+    return countLessThan(hi, true) - countLessThan(lo, false);
+  }
+
+  /**
+   * Helper method that counts the values that are less than data, or less than
+   * or equal to data when inclusive is true, in one descent from the root.
+   */
+  protected int countLessThan(T data, boolean inclusive) {
+    if (data == null) {
+      throw new NullPointerException("This RedBlackTree cannot store null references.");
+    }
+    int count = 0;
+    Node<T> current = this.root;
+    while (current != null) {
+      int compare = data.compareTo(current.data);
+      if (compare < 0 || (compare == 0 && !inclusive)) {
+        current = current.left;
+      } else {
+        // current and its left subtree are below data
+        count += subtreeSize(current.left) + 1;
+        if (compare == 0) break;
+        current = current.right;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Adds a value to the tree as specified by java.util.Set, which reports
+   * duplicates through the return value.
+   * @return true if the value was inserted, false if the tree already contains it
+   * @throws NullPointerException when the provided data argument is null
+   */
+  @Override
+  public boolean add(T data) {
+    return tryInsert(data);
+  }
+
+  /**
+   * Checks whether the tree contains a value as specified by java.util.Set.
+   * @throws ClassCastException when o cannot be compared with the values of the tree
+   * @throws NullPointerException when o is null
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public boolean contains(Object o) {
+    return contains((T) o);
+  }
+
+  /**
+   * Removes a value from the tree as specified by java.util.Set, which reports
+   * a value that is not in the tree through the return value.
+   * @throws ClassCastException when o cannot be compared with the values of the tree
+   * @throws NullPointerException when o is null
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public boolean remove(Object o) {
+    return tryRemove((T) o);
+  }
+
+  /**
+   * Removes all values from the tree.
+   */
+  @Override
+  public void clear() {
+    this.root = null;
+    this.size = 0;
+    this.modCount++;
+  }
+
+  /**
+   * @return an iterator over the values of the tree in ascending order
+   */
+  @Override
+  public Iterator<T> iterator() {
+    return new NodeIterator(firstNode(), false, null);
+  }
+
+  /**
+   * @return an iterator over the values of the tree in descending order
+   */
+  @Override
+  public Iterator<T> descendingIterator() {
+    return new NodeIterator(lastNode(), true, null);
+  }
+
+  /**
+   * Returns a spliterator over the values of the tree in ascending order. It
+   * splits at subtree roots, so parallel streams over the tree divide the work
+   * along the shape of the tree, and its sizes are exact since they come from
+   * the subtree sizes. It is ORDERED, SORTED, DISTINCT, NONNULL, SIZED and
+   * SUBSIZED, and fails fast when the tree is modified during the traversal.
+   * @return a spliterator over the values of the tree
+   */
+  @Override
+  public Spliterator<T> spliterator() {
+    return new NodeSpliterator(firstNode(), null, 0, this.size);
+  }
+
+  /**
+   * Performs an action for every value of the tree in parallel on the
+   * ForkJoinPool of the calling thread, or the common pool when called from
+   * outside of a pool. The left and right subtrees of every large enough
+   * subtree are processed concurrently, so the action must be thread-safe and
+   * is not called in any particular order. The tree must not be modified
+   * until this method returns.
+   * @param action the action to perform for each value
+   */
+  public void forEachParallel(Consumer<? super T> action) {
+    if (action == null) throw new NullPointerException("The action cannot be null.");
+    if (this.root != null) new ForEachTask(this.root, action).invoke();
+  }
+
+  /**
+   * Reduces the values of the tree in parallel, in the same way as forEachParallel
+   * divides the work. Every subtree is reduced to
+   * combiner(combiner(leftResult, accumulator(identity, data)), rightResult),
+   * so the result matches a sequential reduction in ascending order when the
+   * combiner is associative and identity is an identity for it.
+   * @param identity the result for an empty tree
+   * @param accumulator folds a value into a partial result
+   * @param combiner combines two partial results
+   * @return the result of the reduction
+   */
+  public <R> R reduce(R identity, BiFunction<R, ? super T, R> accumulator, BinaryOperator<R> combiner) {
+    if (accumulator == null || combiner == null) {
+      throw new NullPointerException("The accumulator and combiner cannot be null.");
+    }
+    if (this.root == null) return identity;
+    return new ReduceTask<>(this.root, identity, accumulator, combiner).invoke();
+  }
+
+  /**
+   * @return null, since the tree orders its values by their natural ordering
+   */
+  @Override
+  public Comparator<? super T> comparator() {
+    return null;
+  }
+
+  /**
+   * @return the smallest value in the tree
+   * @throws NoSuchElementException when the tree is empty
+   */
+  @Override
+  public T first() {
+    return dataOf(firstNode());
+  }
+
+  /**
+   * @return the largest value in the tree
+   * @throws NoSuchElementException when the tree is empty
+   */
+  @Override
+  public T last() {
+    return dataOf(lastNode());
+  }
+
+  /**
+   * @return the largest value less than data, or null if there is none
+   */
+  @Override
+  public T lower(T data) {
+    return dataOrNull(floorNode(data, false));
+  }
+
+  /**
+   * @return the largest value less than or equal to data, or null if there is none
+   */
+  @Override
+  public T floor(T data) {
+    return dataOrNull(floorNode(data, true));
+  }
+
+  /**
+   * @return the smallest value greater than or equal to data, or null if there is none
+   */
+  @Override
+  public T ceiling(T data) {
+    return dataOrNull(ceilingNode(data, true));
+  }
+
+  /**
+   * @return the smallest value greater than data, or null if there is none
+   */
+  @Override
+  public T higher(T data) {
+    return dataOrNull(ceilingNode(data, false));
+  }
+
+  /**
+   * Removes the smallest value from the tree.
+   * @return the removed value, or null if the tree is empty
+   */
+  @Override
+  public T pollFirst() {
+    return removeAndReturn(firstNode());
+  }
+
+  /**
+   * Removes the largest value from the tree.
+   * @return the removed value, or null if the tree is empty
+   */
+  @Override
+  public T pollLast() {
+    return removeAndReturn(lastNode());
+  }
+
+  /**
+   * @return a view of the values of this tree in descending order
+   */
+  @Override
+  public NavigableSet<T> descendingSet() {
+    return new SubSet(null, false, true, null, false, true, true);
+  }
+
+  /**
+   * Returns a view of the values between fromElement and toElement. The view is
+   * backed by this tree: it finds its first value in O(log n) and then iterates
+   * the nodes of the tree in place, without copying them.
+   */
+  @Override
+  public NavigableSet<T> subSet(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive) {
+    return new SubSet(null, false, true, null, false, true, false)
+        .subSet(fromElement, fromInclusive, toElement, toInclusive);
+  }
+
+  /**
+   * Returns a view of the values below toElement, backed by this tree.
+   */
+  @Override
+  public NavigableSet<T> headSet(T toElement, boolean inclusive) {
+    return new SubSet(null, false, true, null, false, true, false).headSet(toElement, inclusive);
+  }
+
+  /**
+   * Returns a view of the values above fromElement, backed by this tree.
+   */
+  @Override
+  public NavigableSet<T> tailSet(T fromElement, boolean inclusive) {
+    return new SubSet(null, false, true, null, false, true, false).tailSet(fromElement, inclusive);
+  }
+
+  @Override
+  public NavigableSet<T> subSet(T fromElement, T toElement) {
+    return subSet(fromElement, true, toElement, false);
+  }
+
+  @Override
+  public NavigableSet<T> headSet(T toElement) {
+    return headSet(toElement, false);
+  }
+
+  @Override
+  public NavigableSet<T> tailSet(T fromElement) {
+    return tailSet(fromElement, true);
+  }
+
+  /**
+   * @return the node with the smallest value, or null when the tree is empty
+   */
+  protected Node<T> firstNode() {
+    Node<T> current = this.root;
+    if (current != null) {
+      while (current.left != null) current = current.left;
+    }
+    return current;
+  }
+
+  /**
+   * @return the node with the largest value, or null when the tree is empty
+   */
+  protected Node<T> lastNode() {
+    Node<T> current = this.root;
+    if (current != null) {
+      while (current.right != null) current = current.right;
+    }
+    return current;
+  }
+
+  /**
+   * Helper method that finds the node with the smallest value greater than data,
+   * or greater than or equal to data when inclusive is true.
+   * @return that node, or null if there is none
+   */
+  protected Node<T> ceilingNode(T data, boolean inclusive) {
+    Node<T> current = this.root;
+    Node<T> ceiling = null;
+    while (current != null) {
+      int compare = data.compareTo(current.data);
+      if (compare < 0 || (compare == 0 && inclusive)) {
+        // current qualifies, but a smaller one may be in its left subtree
+        ceiling = current;
+        if (compare == 0) break;
+        current = current.left;
+      } else {
+        current = current.right;
+      }
+    }
+    return ceiling;
+  }
+
+  /**
+   * Helper method that finds the node with the largest value less than data,
+   * or less than or equal to data when inclusive is true.
+   * @return that node, or null if there is none
+   */
+  protected Node<T> floorNode(T data, boolean inclusive) {
+    Node<T> current = this.root;
+    Node<T> floor = null;
+    while (current != null) {
+      int compare = data.compareTo(current.data);
+      if (compare > 0 || (compare == 0 && inclusive)) {
+        // current qualifies, but a larger one may be in its right subtree
+        floor = current;
+        if (compare == 0) break;
+        current = current.right;
+      } else {
+        current = current.left;
+      }
+    }
+    return floor;
+  }
+
+  /**
+   * Helper method that returns the in-order successor of any node, walking
+   * up through the parent references when the node has no right child.
+   * @return the node with the next larger value, or null if node is the last
+   */
+  protected Node<T> successor(Node<T> node) {
+    if (node.right != null) {
+      Node<T> current = node.right;
+      while (current.left != null) current = current.left;
+      return current;
+    }
+    Node<T> current = node;
+    while (current.isRightChild()) current = current.parent;
+    return current.parent;
+  }
+
+  /**
+   * Helper method that returns the in-order predecessor of any node.
+   * @return the node with the next smaller value, or null if node is the first
+   */
+  protected Node<T> predecessor(Node<T> node) {
+    if (node.left != null) {
+      Node<T> current = node.left;
+      while (current.right != null) current = current.right;
+      return current;
+    }
+    Node<T> current = node;
+    while (current.isLeftChild()) current = current.parent;
+    return current.parent;
+  }
+
+  private static <T> T dataOf(Node<T> node) {
+    if (node == null) throw new NoSuchElementException("This RedBlackTree is empty.");
+    return node.data;
+  }
+
+  private static <T> T dataOrNull(Node<T> node) {
+    return node == null ? null : node.data;
+  }
+
+  private T removeAndReturn(Node<T> node) {
+    if (node == null) return null;
+    T data = node.data;
+    removeNode(node);
+    return data;
+  }
+
+  /**
+   * Helper method that will replace a node with a replacement node. The replacement
+   * node may be null to remove the node from the tree.
+   * @param nodeToReplace the node to replace
+   * @param replacementNode the replacement for the node (may be null)
+   */
+  protected void replaceNode(Node<T> nodeToReplace, Node<T> replacementNode) {
+    if (nodeToReplace == null) {
+      throw new NullPointerException("Cannot replace null node.");
+    }
+    if (nodeToReplace.parent == null) {
+      // we are replacing the root
+      if (replacementNode != null)
+        replacementNode.parent = null;
+      this.root = replacementNode;
+    } else {
+      // set the parent of the replacement node
+      if (replacementNode != null)
+        replacementNode.parent = nodeToReplace.parent;
+      // do we have to attach a new left or right child to our parent?
+      if (nodeToReplace.isRightChild()) {
+        nodeToReplace.parent.right = replacementNode;
+      } else {
+        nodeToReplace.parent.left = replacementNode;
+      }
+    }
+  }
+
+  /**
+   * Helper method that will return the inorder successor of a node with two children.
+   * @param node the node to find the successor for
+   * @return the node that is the inorder successor of node
+   */
+  protected Node<T> findMinOfRightSubtree(Node<T> node) {
+    if (node.left == null && node.right == null) {
+      throw new IllegalArgumentException("Node must have two children");
+    }
+    // take a steop to the right
+    Node<T> current = node.right;
+    while (true) {
+      // then go left as often as possible to find the successor
+      if (current.left == null) {
+        // we found the successor
+        return current;
+      } else {
+        current = current.left;
+      }
+    }
+  }
+
+  /**
+   * Helper method that will return the node in the tree that contains a specific
+   * value. Returns null if there is no node that contains the value.
+   * @return the node that contains the data, or null of no such node exists
+   */
+  protected Node<T> findNodeWithData(T data) {
+    Node<T> current = this.root;
+    int pathLength = 0;
+    while (current != null) {
+      pathLength++;
+      int compare = data.compareTo(current.data);
+      if (compare == 0) {
+        // we found our value
+        if (metrics != null) metrics.recordSearch(pathLength);
+        return current;
+      } else if (compare < 0) {
+        // keep looking in the left subtree
+        current = current.left;
+      } else {
+        // keep looking in the right subtree
+        current = current.right;
+      }
+    }
+    // we're at a null node and did not find data, so it's not in the tree
+    if (metrics != null) metrics.recordSearch(pathLength);
+    return null; 
+  }
+
+  /**
+   * Turns the metrics of this tree on or off. While they are on, the tree
+   * counts rotations, the cases of the insert fixup and the length of each
+   * search path (the number of compareTo calls), and a running JFR recording
+   * receives a redblacktree.TreeMetrics event with the counters every second.
+   * Turning metrics off drops the counters and unregisters the event, which
+   * also releases the reference JFR holds to this tree.
+   * @param enabled true to start counting, false to stop
+   */
+  public void setMetricsEnabled(boolean enabled) {
+    if (enabled && metrics == null) {
+      metrics = new TreeMetrics();
+      metricsEventHook = this::emitMetricsEvent;
+      FlightRecorder.addPeriodicEvent(TreeMetrics.MetricsEvent.class, metricsEventHook);
+    } else if (!enabled && metrics != null) {
+      FlightRecorder.removePeriodicEvent(metricsEventHook);
+      metricsEventHook = null;
+      metrics = null;
+    }
+  }
+
+  /**
+   * Emits the JFR event with the metrics counters, the size and the black
+   * height of the tree. JFR calls it from its own thread, so on a tree that
+   * is not thread-safe the size and black height are read without
+   * synchronization and may be stale or from different moments of an
+   * update in progress; ConcurrentRedBlackTree holds its read lock instead.
+   */
+  void emitMetricsEvent() {
+    TreeMetrics current = metrics;
+    if (current != null) current.emit(this, size, blackDepthOf(root));
+  }
+
+  /**
+   * Copies the metrics counters along with the current size, height and black
+   * height of the tree. Finding the height takes a walk over the whole tree.
+   * @return a snapshot of the metrics
+   * @throws IllegalStateException when metrics are not enabled
+   */
+  public TreeMetrics.Snapshot metricsSnapshot() throws IllegalStateException {
+    if (metrics == null) throw new IllegalStateException("Metrics are not enabled for this tree.");
+    return new TreeMetrics.Snapshot(metrics, size, heightOf(root), blackDepthOf(root));
+  }
+
+  /**
+   * @return the number of nodes on the longest path from node down to a leaf
+   */
+  private static int heightOf(Node<?> node) {
+    if (node == null) return 0;
+    return 1 + Math.max(heightOf(node.left), heightOf(node.right));
+  }
+
+  /**
+   * This method performs an inorder traversal of the tree. The string 
+   * representations of each data value within this tree are assembled into a
+   * comma separated string within brackets (similar to many implementations 
+   * of java.util.Collection, like java.util.ArrayList, LinkedList, etc).
+   * @return string containing the ordered values of this tree (in-order traversal)
+   */
+  public String toInOrderString() {
+    // generate a string of all values of the tree in (ordered) in-order
+    // traversal sequence, stepping to each successor through the parent
+    // references instead of keeping a stack
+    StringBuilder sb = new StringBuilder();
+    sb.append("[ ");
+    Node<T> current = firstNode();
+    while (current != null) {
+      sb.append(current.data.toString());
+      current = successor(current);
+      if (current != null) sb.append(", ");
+    }
+    sb.append(" ]");
+    return sb.toString();
+  }
+
+  /**
+   * This method performs a level order traversal of the tree. The string
+   * representations of each data value
+   * within this tree are assembled into a comma separated string within
+   * brackets (similar to many implementations of java.util.Collection).
+   * This method will be helpful as a helper for the debugging and testing
+   * of your rotation implementation.
+   * @return string containing the values of this tree in level order
+   */
+  public String toLevelOrderString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("[ ");
+    if (this.root != null) {
+      ArrayDeque<Node<T>> q = new ArrayDeque<>();
+      q.add(this.root);
+      while(!q.isEmpty()) {
+        Node<T> next = q.removeFirst();
+        if(next.left != null) q.add(next.left);
+        if(next.right != null) q.add(next.right);
+        sb.append(next.data.toString());
+        if(!q.isEmpty()) sb.append(", ");
+      }
+    }
+    sb.append(" ]");
+    return sb.toString();
+  }
+
+  public String toString() {
+    return "level order: " + this.toLevelOrderString() +
+        "\nin order: " + this.toInOrderString();
+  }
+
+
+  /**
+   * Builds a red-black tree from values that are already sorted. The tree is
+   * built bottom up in linear time without any rotations: the middle value of
+   * every range becomes the root of that range's subtree, all nodes are black
+   * except for those on the deepest level of an incomplete tree, which are red.
+   * @param sorted the values in strictly ascending order
+   * @return a balanced tree containing all of the values
+   * @throws NullPointerException when sorted or one of its values is null
+   * @throws IllegalArgumentException when the values are not sorted or contain duplicates
+   */
+  public static <T extends Comparable<T>> RedBlackTree<T> buildFromSorted(T[] sorted)
+      throws NullPointerException, IllegalArgumentException {
+    return buildFromSorted(Arrays.asList(sorted));
+  }
+
+  /**
+   * Builds a red-black tree from the values of a sorted list in linear time.
+   * @see #buildFromSorted(Comparable[])
+   */
+  public static <T extends Comparable<T>> RedBlackTree<T> buildFromSorted(List<T> sorted)
+      throws NullPointerException, IllegalArgumentException {
+    RedBlackTree<T> tree = new RedBlackTree<>();
+    tree.fillFromSorted(sorted.iterator(), sorted.size());
+    return tree;
+  }
+
+  /**
+   * Builds a red-black tree from the values of a sorted iterator in linear time.
+   * The values are buffered first, since the shape of the tree depends on their number.
+   * @see #buildFromSorted(Comparable[])
+   */
+  public static <T extends Comparable<T>> RedBlackTree<T> buildFromSorted(Iterator<T> sorted)
+      throws NullPointerException, IllegalArgumentException {
+    ArrayList<T> values = new ArrayList<>();
+    sorted.forEachRemaining(values::add);
+    return buildFromSorted(values);
+  }
+
+  /**
+   * Replaces the contents of this tree with count values taken from a sorted
+   * iterator, checking along the way that they are strictly ascending.
+   * @param sorted iterator over at least count values in ascending order
+   * @param count the number of values to take from the iterator
+   */
+  protected void fillFromSorted(Iterator<? extends T> sorted, int count) {
+    // the deepest level is red unless the tree is complete, which keeps the
+    // number of black nodes equal on every path
+    int redLevel = 0;
+    for (int m = count - 1; m >= 0; m = m / 2 - 1) redLevel++;
+    this.size = 0;
+    this.modCount++;
+    this.root = buildSubtreeFromSorted(sorted, 0, 0, count - 1, redLevel, null);
+    if (this.root != null) this.root.blackHeight = 1;
+  }
+
+  /**
+   * Recursive helper of fillFromSorted that builds the subtree holding the
+   * values with indexes lo to hi, consuming them from the iterator in order.
+   * @param previous the node holding the value just before index lo, or null
+   * @return the root of the subtree, or null when the range is empty
+   */
+  private Node<T> buildSubtreeFromSorted(Iterator<? extends T> sorted, int level, int lo, int hi,
+      int redLevel, Node<T> previous) {
+    if (hi < lo) return null;
+    int mid = (lo + hi) >>> 1;
+    Node<T> leftNode = buildSubtreeFromSorted(sorted, level + 1, lo, mid - 1, redLevel, previous);
+    if (leftNode != null) {
+      // the previous value is the largest one in the left subtree
+      previous = leftNode;
+      while (previous.right != null) previous = previous.right;
+    }
+    T data = sorted.next();
+    if (data == null) throw new NullPointerException(
+        "This RedBlackTree cannot store null references.");
+    if (previous != null && previous.data.compareTo(data) >= 0) {
+      throw new IllegalArgumentException("Values must be sorted and distinct, but "
+          + data.toString() + " follows " + previous.data.toString());
+    }
+    Node<T> node = newNode(data);
+    node.blackHeight = (byte) (level == redLevel ? 0 : 1);
+    this.size++;
+    node.left = leftNode;
+    if (leftNode != null) leftNode.parent = node;
+    Node<T> rightNode = buildSubtreeFromSorted(sorted, level + 1, mid + 1, hi, redLevel, node);
+    node.right = rightNode;
+    if (rightNode != null) rightNode.parent = node;
+    updateNode(node);
+    return node;
+  }
+
+  /**
+   * Copies the values of this tree into an immutable FrozenRedBlackTree,
+   * which answers contains, floor, ceiling and rank queries from a single
+   * array in Eytzinger order. Later changes to this tree do not affect it.
+   * @return the frozen copy of this tree
+   */
+  public FrozenRedBlackTree<T> freeze() {
+    return new FrozenRedBlackTree<>(toArray());
+  }
+
+  /**
+   * Writes the values of this tree in ascending order to a binary snapshot
+   * file, each value encoded by codec and prefixed by its length, followed by
+   * a CRC32C checksum. An existing file at path is replaced only once the new
+   * snapshot is complete.
+   * @param path the snapshot file
+   * @param codec the encoding of the values
+   * @throws IOException when the file cannot be written
+   */
+  public void writeSnapshot(Path path, KeyCodec<? super T> codec) throws IOException {
+    TreeSnapshot.write(path, iterator(), size, codec);
+  }
+
+  /**
+   * Loads a tree from a snapshot file written by writeSnapshot. The file is
+   * read through a memory map and the tree is built bottom up like in
+   * buildFromSorted, in linear time and without any rotations.
+   * @param path the snapshot file
+   * @param codec the encoding of the values
+   * @return a balanced tree containing the values of the snapshot
+   * @throws IOException when the file cannot be read, is corrupt, or does not
+   *      hold distinct values in ascending order
+   */
+  public static <T extends Comparable<T>> RedBlackTree<T> loadSnapshot(Path path, KeyCodec<T> codec)
+      throws IOException {
+    RedBlackTree<T> tree = new RedBlackTree<>();
+    tree.fillFromSnapshot(path, codec, TreeSnapshot.WINDOW_BYTES);
+    return tree;
+  }
+
+  /**
+   * Replaces the contents of this tree with the values of a snapshot file.
+   * When an IOException is thrown, the tree holds only part of the values.
+   * @param windowBytes the size of the memory-mapped windows of the file
+   */
+  void fillFromSnapshot(Path path, KeyCodec<T> codec, int windowBytes) throws IOException {
+    try (TreeSnapshot.Reader<T> reader = new TreeSnapshot.Reader<>(path, codec, windowBytes)) {
+      fillFromSorted(reader, reader.count());
+      reader.verify();
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    } catch (IllegalArgumentException | NullPointerException e) {
+      throw new IOException("Corrupt snapshot " + path + ": " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Iterator that steps from node to node through the child and parent
+   * references, optionally stopping at the end of the range of a SubSet.
+   */
+  private class NodeIterator implements Iterator<T> {
+    private Node<T> next; // the node to return next, null at the end
+    private Node<T> lastReturned; // the node returned last, null after remove
+    private final boolean descending;
+    private final SubSet range; // the view being iterated, null for the whole tree
+    private int expectedModCount = modCount;
+
+    NodeIterator(Node<T> first, boolean descending, SubSet range) {
+      this.next = first;
+      this.descending = descending;
+      this.range = range;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next != null;
+    }
+
+    @Override
+    public T next() {
+      if (next == null) throw new NoSuchElementException();
+      if (modCount != expectedModCount) throw new ConcurrentModificationException();
+      lastReturned = next;
+      next = descending ? predecessor(next) : successor(next);
+      if (next != null && range != null
+          && (descending ? range.tooLow(next.data) : range.tooHigh(next.data))) {
+        next = null;
+      }
+      return lastReturned.data;
+    }
+
+    @Override
+    public void remove() {
+      if (lastReturned == null) throw new IllegalStateException();
+      if (modCount != expectedModCount) throw new ConcurrentModificationException();
+      // removing a node with two children moves the data of its successor into
+      // it, so an ascending iteration continues at that same node
+      if (!descending && next != null && lastReturned.left != null && lastReturned.right != null) {
+        next = lastReturned;
+      }
+      removeNode(lastReturned);
+      lastReturned = null;
+      expectedModCount = modCount;
+    }
+  }
+
+  /**
+   * Helper method that computes the zero based position of a node in the sorted
+   * order from the subtree sizes along its path to the root.
+   * @param node the node to rank, or null for the position after the last value
+   * @return the number of values smaller than the value of node
+   */
+  protected int rankOfNode(Node<T> node) {
+    if (node == null) return this.size;
+    int rank = subtreeSize(node.left);
+    while (node.parent != null) {
+      if (node.isRightChild()) rank += subtreeSize(node.parent.left) + 1;
+      node = node.parent;
+    }
+    return rank;
+  }
+
+  /**
+   * Spliterator over the values from a current node up to, but excluding, a
+   * fence node. It splits off the values before the root of the subtree it is
+   * in, like java.util.TreeMap does, so the halves follow the subtrees.
+   */
+  private class NodeSpliterator implements Spliterator<T> {
+    private Node<T> current; // the next node to visit, null at the end
+    private final Node<T> fence; // the first node not to visit, null for the end of the tree
+    private int side; // 0 before the first split, -1 for a left part, 1 for a right part
+    private int remaining; // the number of values left to visit
+    private final int expectedModCount = modCount;
+
+    NodeSpliterator(Node<T> current, Node<T> fence, int side, int remaining) {
+      this.current = current;
+      this.fence = fence;
+      this.side = side;
+      this.remaining = remaining;
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+      if (modCount != expectedModCount) throw new ConcurrentModificationException();
+      Node<T> first = current;
+      Node<T> splitNode = (first == null || first == fence) ? null
+          : (side == 0) ? root
+          : (side > 0) ? first.right
+          : (fence != null) ? fence.left
+          : null;
+      if (splitNode != null && splitNode != first && splitNode != fence
+          && first.data.compareTo(splitNode.data) < 0) {
+        int prefix = rankOfNode(splitNode) - rankOfNode(first);
+        side = 1;
+        current = splitNode;
+        remaining -= prefix;
+        return new NodeSpliterator(first, splitNode, -1, prefix);
+      }
+      return null;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+      if (action == null) throw new NullPointerException();
+      if (current == null || current == fence) return false;
+      if (modCount != expectedModCount) throw new ConcurrentModificationException();
+      T data = current.data;
+      current = successor(current);
+      remaining--;
+      action.accept(data);
+      return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super T> action) {
+      if (action == null) throw new NullPointerException();
+      Node<T> node = current;
+      current = fence;
+      remaining = 0;
+      while (node != null && node != fence) {
+        action.accept(node.data);
+        node = successor(node);
+      }
+      if (modCount != expectedModCount) throw new ConcurrentModificationException();
+    }
+
+    @Override
+    public long estimateSize() {
+      return remaining;
+    }
+
+    @Override
+    public int characteristics() {
+      return Spliterator.ORDERED | Spliterator.SORTED | Spliterator.DISTINCT
+          | Spliterator.NONNULL | Spliterator.SIZED | Spliterator.SUBSIZED;
+    }
+
+    @Override
+    public Comparator<? super T> getComparator() {
+      return null;
+    }
+  }
+
+  // subtrees up to this size are processed sequentially by the fork-join tasks
+  private static final int PARALLEL_THRESHOLD = 4096;
+
+  /**
+   * Fork-join task of forEachParallel that handles one subtree.
+   */
+  private class ForEachTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final Node<T> node;
+    private final Consumer<? super T> action;
+
+    ForEachTask(Node<T> node, Consumer<? super T> action) {
+      this.node = node;
+      this.action = action;
+    }
+
+    @Override
+    protected void compute() {
+      if (node.subtreeSize <= PARALLEL_THRESHOLD) {
+        forEachInSubtree(node, action);
+        return;
+      }
+      ForEachTask leftTask = node.left == null ? null : new ForEachTask(node.left, action);
+      if (leftTask != null) leftTask.fork();
+      action.accept(node.data);
+      if (node.right != null) new ForEachTask(node.right, action).compute();
+      if (leftTask != null) leftTask.join();
+    }
+  }
+
+  /**
+   * Fork-join task of reduce that reduces one subtree.
+   */
+  private class ReduceTask<R> extends RecursiveTask<R> {
+    private static final long serialVersionUID = 1L;
+
+    private final Node<T> node;
+    private final R identity;
+    private final BiFunction<R, ? super T, R> accumulator;
+    private final BinaryOperator<R> combiner;
+
+    ReduceTask(Node<T> node, R identity, BiFunction<R, ? super T, R> accumulator, BinaryOperator<R> combiner) {
+      this.node = node;
+      this.identity = identity;
+      this.accumulator = accumulator;
+      this.combiner = combiner;
+    }
+
+    @Override
+    protected R compute() {
+      if (node.subtreeSize <= PARALLEL_THRESHOLD) {
+        R result = identity;
+        Node<T> last = lastInSubtree(node);
+        for (Node<T> current = firstInSubtree(node); ; current = successor(current)) {
+          result = accumulator.apply(result, current.data);
+          if (current == last) return result;
+        }
+      }
+      ReduceTask<R> leftTask = node.left == null ? null
+          : new ReduceTask<>(node.left, identity, accumulator, combiner);
+      if (leftTask != null) leftTask.fork();
+      R middle = accumulator.apply(identity, node.data);
+      R right = node.right == null ? identity
+          : new ReduceTask<>(node.right, identity, accumulator, combiner).compute();
+      R left = leftTask == null ? identity : leftTask.join();
+      return combiner.apply(combiner.apply(left, middle), right);
+    }
+  }
+
+  /**
+   * Calls action for the values of the subtree rooted at node in ascending order.
+   */
+  private void forEachInSubtree(Node<T> node, Consumer<? super T> action) {
+    Node<T> last = lastInSubtree(node);
+    for (Node<T> current = firstInSubtree(node); ; current = successor(current)) {
+      action.accept(current.data);
+      if (current == last) return;
+    }
+  }
+
+  private static <T> Node<T> firstInSubtree(Node<T> node) {
+    while (node.left != null) node = node.left;
+    return node;
+  }
+
+  private static <T> Node<T> lastInSubtree(Node<T> node) {
+    while (node.right != null) node = node.right;
+    return node;
+  }
+
+  /**
+   * @return a new cursor over this tree, positioned on no value
+   */
+  public Cursor cursor() {
+    return new Cursor();
+  }
+
+  /**
+   * A reusable position within the tree. It moves between neighbouring values
+   * through the child and parent references in O(1) amortized steps and never
+   * allocates, so a single cursor can scan the tree any number of times.
+   * Moving with next or prev, or reading with get, fails fast with a
+   * ConcurrentModificationException when the tree was structurally modified
+   * since the cursor was positioned with first, last or seek.
+   */
+  public class Cursor {
+    private Node<T> current; // the node the cursor is on, null when off the tree
+    private int expectedModCount = modCount;
+
+    /**
+     * Positions the cursor on the smallest value.
+     * @return true when the cursor is on a value, false when the tree is empty
+     */
+    public boolean first() {
+      expectedModCount = modCount;
+      current = firstNode();
+      return current != null;
+    }
+
+    /**
+     * Positions the cursor on the largest value.
+     * @return true when the cursor is on a value, false when the tree is empty
+     */
+    public boolean last() {
+      expectedModCount = modCount;
+      current = lastNode();
+      return current != null;
+    }
+
+    /**
+     * Positions the cursor on the smallest value greater than or equal to data.
+     * @return true when the cursor is on a value, false when there is no such value
+     */
+    public boolean seek(T data) {
+      if (data == null) throw new NullPointerException(
+          "This RedBlackTree cannot store null references.");
+      expectedModCount = modCount;
+      current = ceilingNode(data, true);
+      return current != null;
+    }
+
+    /**
+     * Moves the cursor to the next larger value.
+     * @return true when the cursor is on a value, false when it moved past the last one
+     */
+    public boolean next() {
+      checkForModification();
+      if (current != null) current = successor(current);
+      return current != null;
+    }
+
+    /**
+     * Moves the cursor to the next smaller value.
+     * @return true when the cursor is on a value, false when it moved past the first one
+     */
+    public boolean prev() {
+      checkForModification();
+      if (current != null) current = predecessor(current);
+      return current != null;
+    }
+
+    /**
+     * @return true when the cursor is positioned on a value
+     */
+    public boolean isValid() {
+      return current != null;
+    }
+
+    /**
+     * @return the value the cursor is positioned on
+     * @throws NoSuchElementException when the cursor is not on a value
+     */
+    public T get() {
+      checkForModification();
+      if (current == null) throw new NoSuchElementException("The cursor is not positioned on a value.");
+      return current.data;
+    }
+
+    private void checkForModification() {
+      if (modCount != expectedModCount) throw new ConcurrentModificationException();
+    }
+  }
+
+  /**
+   * A range view of this tree, as returned by subSet, headSet, tailSet and
+   * descendingSet. The bounds are stored in ascending order; descending views
+   * only swap the direction of their navigation methods and iterators.
+   */
+  private class SubSet extends AbstractSet<T> implements NavigableSet<T> {
+    private final T lo; // lower bound, unused when fromStart
+    private final boolean loInclusive;
+    private final boolean fromStart; // no lower bound
+    private final T hi; // upper bound, unused when toEnd
+    private final boolean hiInclusive;
+    private final boolean toEnd; // no upper bound
+    private final boolean descending;
+
+    SubSet(T lo, boolean loInclusive, boolean fromStart,
+        T hi, boolean hiInclusive, boolean toEnd, boolean descending) {
+      this.lo = lo;
+      this.loInclusive = loInclusive;
+      this.fromStart = fromStart;
+      this.hi = hi;
+      this.hiInclusive = hiInclusive;
+      this.toEnd = toEnd;
+      this.descending = descending;
+    }
+
+    boolean tooLow(T data) {
+      if (fromStart) return false;
+      int compare = data.compareTo(lo);
+      return compare < 0 || (compare == 0 && !loInclusive);
+    }
+
+    boolean tooHigh(T data) {
+      if (toEnd) return false;
+      int compare = data.compareTo(hi);
+      return compare > 0 || (compare == 0 && !hiInclusive);
+    }
+
+    boolean inRange(T data) {
+      return !tooLow(data) && !tooHigh(data);
+    }
+
+    /**
+     * @return the node with the smallest value in range, or null
+     */
+    Node<T> lowestNode() {
+      Node<T> node = fromStart ? firstNode() : ceilingNode(lo, loInclusive);
+      return (node == null || tooHigh(node.data)) ? null : node;
+    }
+
+    /**
+     * @return the node with the largest value in range, or null
+     */
+    Node<T> highestNode() {
+      Node<T> node = toEnd ? lastNode() : floorNode(hi, hiInclusive);
+      return (node == null || tooLow(node.data)) ? null : node;
+    }
+
+    Node<T> ceilingNodeInRange(T data, boolean inclusive) {
+      if (tooLow(data)) return lowestNode();
+      Node<T> node = ceilingNode(data, inclusive);
+      return (node == null || tooHigh(node.data)) ? null : node;
+    }
+
+    Node<T> floorNodeInRange(T data, boolean inclusive) {
+      if (tooHigh(data)) return highestNode();
+      Node<T> node = floorNode(data, inclusive);
+      return (node == null || tooLow(node.data)) ? null : node;
+    }
+
+    /**
+     * Counts the values in range from the subtree sizes, in O(log n).
+     */
+    @Override
+    public int size() {
+      int below = toEnd ? RedBlackTree.this.size : countLessThan(hi, hiInclusive);
+      int before = fromStart ? 0 : countLessThan(lo, !loInclusive);
+      return Math.max(0, below - before);
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return lowestNode() == null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean contains(Object o) {
+      T data = (T) o;
+      return inRange(data) && RedBlackTree.this.contains(data);
+    }
+
+    @Override
+    public boolean add(T data) {
+      if (!inRange(data)) throw new IllegalArgumentException("The value " + data + " is out of range.");
+      return RedBlackTree.this.add(data);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean remove(Object o) {
+      T data = (T) o;
+      return inRange(data) && RedBlackTree.this.tryRemove(data);
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+      return descending ? new NodeIterator(highestNode(), true, this)
+          : new NodeIterator(lowestNode(), false, this);
+    }
+
+    @Override
+    public Iterator<T> descendingIterator() {
+      return descending ? new NodeIterator(lowestNode(), false, this)
+          : new NodeIterator(highestNode(), true, this);
+    }
+
+    @Override
+    public Comparator<? super T> comparator() {
+      return descending ? Collections.reverseOrder() : null;
+    }
+
+    @Override
+    public T first() {
+      return dataOf(descending ? highestNode() : lowestNode());
+    }
+
+    @Override
+    public T last() {
+      return dataOf(descending ? lowestNode() : highestNode());
+    }
+
+    @Override
+    public T lower(T data) {
+      return dataOrNull(descending ? ceilingNodeInRange(data, false) : floorNodeInRange(data, false));
+    }
+
+    @Override
+    public T floor(T data) {
+      return dataOrNull(descending ? ceilingNodeInRange(data, true) : floorNodeInRange(data, true));
+    }
+
+    @Override
+    public T ceiling(T data) {
+      return dataOrNull(descending ? floorNodeInRange(data, true) : ceilingNodeInRange(data, true));
+    }
+
+    @Override
+    public T higher(T data) {
+      return dataOrNull(descending ? floorNodeInRange(data, false) : ceilingNodeInRange(data, false));
+    }
+
+    @Override
+    public T pollFirst() {
+      return removeAndReturn(descending ? highestNode() : lowestNode());
+    }
+
+    @Override
+    public T pollLast() {
+      return removeAndReturn(descending ? lowestNode() : highestNode());
+    }
+
+    @Override
+    public NavigableSet<T> descendingSet() {
+      return new SubSet(lo, loInclusive, fromStart, hi, hiInclusive, toEnd, !descending);
+    }
+
+    @Override
+    public NavigableSet<T> subSet(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive) {
+      if (descending) {
+        return restrict(true, toElement, toInclusive, true, fromElement, fromInclusive);
+      }
+      return restrict(true, fromElement, fromInclusive, true, toElement, toInclusive);
+    }
+
+    @Override
+    public NavigableSet<T> headSet(T toElement, boolean inclusive) {
+      return descending ? restrict(true, toElement, inclusive, false, null, false)
+          : restrict(false, null, false, true, toElement, inclusive);
+    }
+
+    @Override
+    public NavigableSet<T> tailSet(T fromElement, boolean inclusive) {
+      return descending ? restrict(false, null, false, true, fromElement, inclusive)
+          : restrict(true, fromElement, inclusive, false, null, false);
+    }
+
+    @Override
+    public NavigableSet<T> subSet(T fromElement, T toElement) {
+      return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public NavigableSet<T> headSet(T toElement) {
+      return headSet(toElement, false);
+    }
+
+    @Override
+    public NavigableSet<T> tailSet(T fromElement) {
+      return tailSet(fromElement, true);
+    }
+
+    /**
+     * Creates a view of part of this view, with new ascending bounds where
+     * setLo or setHi is true and the bounds of this view otherwise.
+     * @throws IllegalArgumentException when a new bound is outside this view,
+     *      or the new lower bound is greater than the new upper bound
+     */
+    private SubSet restrict(boolean setLo, T newLo, boolean newLoInclusive,
+        boolean setHi, T newHi, boolean newHiInclusive) {
+      if (setLo) checkBound(newLo);
+      if (setHi) checkBound(newHi);
+      if (setLo && setHi && newLo.compareTo(newHi) > 0) {
+        throw new IllegalArgumentException("The lower bound " + newLo + " is greater than the upper bound " + newHi);
+      }
+      return new SubSet(
+          setLo ? newLo : lo, setLo ? newLoInclusive && inRange(newLo) : loInclusive, setLo ? false : fromStart,
+          setHi ? newHi : hi, setHi ? newHiInclusive && inRange(newHi) : hiInclusive, setHi ? false : toEnd,
+          descending);
+    }
+
+    /**
+     * Checks that a new bound lies within the bounds of this view, where a
+     * bound may equal an exclusive bound of this view.
+     */
+    private void checkBound(T bound) {
+      if ((!fromStart && bound.compareTo(lo) < 0) || (!toEnd && bound.compareTo(hi) > 0)) {
+        throw new IllegalArgumentException("The value " + bound + " is out of range.");
+      }
+    }
+  }
+
+  /**
+   * Joins two trees and a key that lies between them into one tree. The
+   * shorter tree is attached to the spine of the taller one where the black
+   * heights match, so this takes O(|bh(left) - bh(right)| + 1) time plus
+   * O(log n) to find the black heights. The nodes of both trees are reused:
+   * left and right are empty afterwards.
+   * @param left tree whose values are all less than key
+   * @param key the value between the two trees
+   * @param right tree whose values are all greater than key
+   * @return a tree holding the values of left, key and the values of right
+   * @throws NullPointerException when key is null
+   * @throws IllegalArgumentException when key does not lie between the two
+   *      trees, or left and right are the same tree or trees of different classes
+   */
+  public static <T extends Comparable<T>> RedBlackTree<T> join(RedBlackTree<T> left, T key, RedBlackTree<T> right)
+      throws NullPointerException, IllegalArgumentException {
+    if (key == null) throw new NullPointerException(
+        "This RedBlackTree cannot store null references.");
+    if (left == right) throw new IllegalArgumentException("Cannot join a tree with itself.");
+    checkSameClass(left, right);
+    List<Node<T>> roots = left.updateBoth(right, () -> {
+      if ((!left.isEmpty() && left.last().compareTo(key) >= 0)
+          || (!right.isEmpty() && right.first().compareTo(key) <= 0)) {
+        throw new IllegalArgumentException("The value " + key.toString() + " does not lie between the two trees.");
+      }
+      return Arrays.asList(left.takeRoot(), right.takeRoot());
+    });
+    Subtree<T> leftTree = subtreeOf(roots.get(0));
+    Subtree<T> rightTree = subtreeOf(roots.get(1));
+    return left.treeOf(left.joinSubtrees(leftTree, left.newNode(key), rightTree).root);
+  }
+
+  /**
+   * Splits this tree at key in O(log n): the values less than key stay in this
+   * tree, and the values greater than or equal to key are moved into the
+   * returned tree. The nodes are reused rather than copied, and the black
+   * heights of the pieces are passed along, so the joins that put the pieces
+   * back together cost O(log n) in total.
+   * @param key the value to split at
+   * @return a tree holding the values of this tree that are at least key
+   * @throws NullPointerException when key is null
+   */
+  public RedBlackTree<T> split(T key) throws NullPointerException {
+    if (key == null) throw new NullPointerException(
+        "This RedBlackTree cannot store null references.");
+    Split<T> split = splitSubtree(subtreeOf(this.root), key);
+    Subtree<T> upper = (split.found == null) ? split.right
+        : joinSubtrees(new Subtree<>(null, 0), split.found, split.right);
+    this.root = split.left.root;
+    this.size = subtreeSize(this.root);
+    this.modCount++;
+    return treeOf(upper.root);
+  }
+
+  /**
+   * Computes the union of two trees with the join-based algorithm, in
+   * O(m log(n/m + 1)) work for trees of sizes m <= n. The two recursive
+   * halves of large subproblems run in parallel on a ForkJoinPool. The nodes
+   * of both trees are reused: a and b are empty afterwards.
+   * @return a tree holding every value that is in a or in b
+   * @throws IllegalArgumentException when a and b are the same tree or trees of different classes
+   */
+  public static <T extends Comparable<T>> RedBlackTree<T> union(RedBlackTree<T> a, RedBlackTree<T> b)
+      throws IllegalArgumentException {
+    return setOperation(UNION, a, b);
+  }
+
+  /**
+   * Computes the intersection of two trees, like union.
+   * @return a tree holding every value that is in both a and b
+   * @throws IllegalArgumentException when a and b are the same tree or trees of different classes
+   */
+  public static <T extends Comparable<T>> RedBlackTree<T> intersection(RedBlackTree<T> a, RedBlackTree<T> b)
+      throws IllegalArgumentException {
+    return setOperation(INTERSECTION, a, b);
+  }
+
+  /**
+   * Computes the difference of two trees, like union.
+   * @return a tree holding every value that is in a but not in b
+   * @throws IllegalArgumentException when a and b are the same tree or trees of different classes
+   */
+  public static <T extends Comparable<T>> RedBlackTree<T> difference(RedBlackTree<T> a, RedBlackTree<T> b)
+      throws IllegalArgumentException {
+    return setOperation(DIFFERENCE, a, b);
+  }
+
+  static final int UNION = 0;
+  static final int INTERSECTION = 1;
+  static final int DIFFERENCE = 2;
+  // subproblems with fewer values than this are not split across threads
+  private static final int SET_OPERATION_THRESHOLD = 2048;
+
+  private static <T extends Comparable<T>> RedBlackTree<T> setOperation(int operation,
+      RedBlackTree<T> a, RedBlackTree<T> b) {
+    if (a == b) throw new IllegalArgumentException("Cannot combine a tree with itself.");
+    checkSameClass(a, b);
+    List<Node<T>> roots = a.updateBoth(b, () -> Arrays.asList(a.takeRoot(), b.takeRoot()));
+    Subtree<T> first = subtreeOf(roots.get(0));
+    Subtree<T> second = subtreeOf(roots.get(1));
+    return a.treeOf(new SetOperationTask<>(operation, a, first, second).invoke().root);
+  }
+
+  /**
+   * Fork-join task that combines two detached subtrees: the second one is
+   * exposed at its root, the first one is split at that root's value, and the
+   * two pairs of halves are combined recursively and joined back together.
+   */
+  private static class SetOperationTask<T extends Comparable<T>> extends RecursiveTask<Subtree<T>> {
+    private static final long serialVersionUID = 1L;
+
+    private final int operation;
+    private final RedBlackTree<T> context; // the tree whose updateNode the joins use
+    private final Subtree<T> first;
+    private final Subtree<T> second;
+
+    SetOperationTask(int operation, RedBlackTree<T> context, Subtree<T> first, Subtree<T> second) {
+      this.operation = operation;
+      this.context = context;
+      this.first = first;
+      this.second = second;
+    }
+
+    @Override
+    protected Subtree<T> compute() {
+      return combine(operation, context, first, second);
+    }
+
+    private static <T extends Comparable<T>> Subtree<T> combine(int operation, RedBlackTree<T> context,
+        Subtree<T> first, Subtree<T> second) {
+      if (first.root == null) return operation == UNION ? second : first;
+      if (second.root == null) return operation == INTERSECTION ? second : first;
+      boolean parallel = subtreeSize(first.root) + subtreeSize(second.root) > SET_OPERATION_THRESHOLD;
+      Node<T> pivot = second.root;
+      Subtree<T> secondLeft = childOf(pivot.left, second.height);
+      Subtree<T> secondRight = childOf(pivot.right, second.height);
+      Split<T> split = context.splitSubtree(first, pivot.data);
+      Subtree<T> left;
+      Subtree<T> right;
+      if (parallel) {
+        SetOperationTask<T> leftTask = new SetOperationTask<>(operation, context, split.left, secondLeft);
+        leftTask.fork();
+        right = combine(operation, context, split.right, secondRight);
+        left = leftTask.join();
+      } else {
+        left = combine(operation, context, split.left, secondLeft);
+        right = combine(operation, context, split.right, secondRight);
+      }
+      boolean keep = (split.found == null) ? operation == UNION
+          : context.keepMatch(operation, split.found, pivot);
+      if (keep) return context.joinSubtrees(left, pivot, right);
+      return context.joinSubtrees(left, right);
+    }
+  }
+
+  /**
+   * Decides whether a value that is in both trees of a set operation stays in
+   * the result, where it is held by the node of the second tree. Subclasses
+   * whose nodes carry more than the value merge the fields of first into
+   * second here.
+   * @param operation UNION, INTERSECTION or DIFFERENCE
+   * @param first the node of the value in the first tree, which is dropped
+   * @param second the node of the value in the second tree
+   * @return true to keep second in the result
+   */
+  boolean keepMatch(int operation, Node<T> first, Node<T> second) {
+    return operation != DIFFERENCE;
+  }
+
+  /**
+   * A detached subtree, whose root is black and has no parent, along with its
+   * black height. The join helpers pass the black heights along instead of
+   * counting them again, so each join costs O(|bh(left) - bh(right)| + 1).
+   */
+  private static final class Subtree<T> {
+    final Node<T> root;
+    final int height; // the number of black nodes on each path from root down to a leaf
+
+    Subtree(Node<T> root, int height) {
+      this.root = root;
+      this.height = height;
+    }
+  }
+
+  /**
+   * Detaches a whole tree from its root, counting its black height once.
+   */
+  private static <T> Subtree<T> subtreeOf(Node<T> root) {
+    detach(root);
+    return new Subtree<>(root, blackDepthOf(root));
+  }
+
+  /**
+   * Detaches a child of the black root of a subtree whose black height is
+   * parentHeight. A black child has one black node less on each path; a red
+   * child has as many once detach has colored it black.
+   */
+  private static <T> Subtree<T> childOf(Node<T> child, int parentHeight) {
+    int height = isBlack(child) ? parentHeight - 1 : parentHeight;
+    return new Subtree<>(detach(child), height);
+  }
+
+  /**
+   * The result of splitting a subtree at a key: the subtrees of the smaller
+   * and of the greater values, and the node holding the key if there was one.
+   */
+  private static class Split<T> {
+    final Subtree<T> left;
+    final Node<T> found;
+    final Subtree<T> right;
+
+    Split(Subtree<T> left, Node<T> found, Subtree<T> right) {
+      this.left = left;
+      this.found = found;
+      this.right = right;
+    }
+  }
+
+  /**
+   * Splits a detached subtree at key, reusing its nodes.
+   */
+  private Split<T> splitSubtree(Subtree<T> tree, T key) {
+    Node<T> node = tree.root;
+    if (node == null) return new Split<>(tree, null, tree);
+    Subtree<T> left = childOf(node.left, tree.height);
+    Subtree<T> right = childOf(node.right, tree.height);
+    int compare = key.compareTo(node.data);
+    if (compare == 0) {
+      return new Split<>(left, node, right);
+    } else if (compare < 0) {
+      Split<T> split = splitSubtree(left, key);
+      return new Split<>(split.left, split.found, joinSubtrees(split.right, node, right));
+    } else {
+      Split<T> split = splitSubtree(right, key);
+      return new Split<>(joinSubtrees(left, node, split.left), split.found, split.right);
+    }
+  }
+
+  /**
+   * Splits the node with the largest value off a detached subtree that is
+   * not empty, joining the rest back together on the way up the right spine.
+   * @return the rest as left and the node of the largest value as found
+   */
+  private Split<T> splitLast(Subtree<T> tree) {
+    Node<T> node = tree.root;
+    Subtree<T> left = childOf(node.left, tree.height);
+    if (node.right == null) return new Split<>(left, node, null);
+    Split<T> split = splitLast(childOf(node.right, tree.height));
+    return new Split<>(joinSubtrees(left, node, split.left), split.found, null);
+  }
+
+  /**
+   * Joins two detached subtrees and a middle node whose value lies between
+   * them. When the black heights differ, the middle node is attached as a red
+   * node to the spine of the taller subtree, next to the black node whose black
+   * height matches the shorter subtree, and red-red violations are repaired
+   * with rotations on the way back up the spine. The fields of the nodes are
+   * maintained with the updateNode of this tree, which is otherwise unchanged.
+   * @return the joined subtree
+   */
+  private Subtree<T> joinSubtrees(Subtree<T> left, Node<T> middle, Subtree<T> right) {
+    middle.parent = null;
+    if (left.height == right.height) {
+      link(middle, left.root, right.root);
+      middle.blackHeight = 1;
+      updateNode(middle);
+      return new Subtree<>(middle, left.height + 1);
+    }
+    Node<T> joined = (left.height > right.height)
+        ? joinRight(left.root, left.height, middle, right.root, right.height)
+        : joinLeft(left.root, middle, right.root, right.height, left.height);
+    joined.parent = null;
+    int height = Math.max(left.height, right.height);
+    if (joined.blackHeight == 0) {
+      // a red root, possibly with a red child, is fixed by coloring it black
+      joined.blackHeight = 1;
+      height++;
+    }
+    return new Subtree<>(joined, height);
+  }
+
+  /**
+   * Attaches middle and right below the right spine of the subtree rooted at
+   * node, whose black height is height, at the black node whose black height
+   * matches right, and repairs red-red violations on the way back up: a black
+   * node whose red right child has a red right child is rotated below that
+   * child, which turns the red grandchild black. Each level costs O(1).
+   * @return the new root of the subtree, which may be red and have a red child
+   */
+  private Node<T> joinRight(Node<T> node, int height, Node<T> middle, Node<T> right, int rightHeight) {
+    if (isBlack(node) && height == rightHeight) {
+      link(middle, node, right);
+      middle.blackHeight = 0;
+      updateNode(middle);
+      return middle;
+    }
+    Node<T> child = joinRight(node.right, height - node.blackHeight, middle, right, rightHeight);
+    node.right = child;
+    child.parent = node;
+    if (node.blackHeight == 1 && child.blackHeight == 0 && !isBlack(child.right)) {
+      child.right.blackHeight = 1;
+      return rotateLeft(node);
+    }
+    updateNode(node);
+    return node;
+  }
+
+  /**
+   * Mirror image of joinRight, attaching left and middle below the left spine
+   * of the subtree rooted at node.
+   */
+  private Node<T> joinLeft(Node<T> left, Node<T> middle, Node<T> node, int height, int leftHeight) {
+    if (isBlack(node) && height == leftHeight) {
+      link(middle, left, node);
+      middle.blackHeight = 0;
+      updateNode(middle);
+      return middle;
+    }
+    Node<T> child = joinLeft(left, middle, node.left, height - node.blackHeight, leftHeight);
+    node.left = child;
+    child.parent = node;
+    if (node.blackHeight == 1 && child.blackHeight == 0 && !isBlack(child.left)) {
+      child.left.blackHeight = 1;
+      return rotateRight(node);
+    }
+    updateNode(node);
+    return node;
+  }
+
+  /**
+   * Rotates the right child of a detached node above it, leaving the link
+   * from the parent of node to the caller.
+   * @return the child, which is now the root of the subtree
+   */
+  private Node<T> rotateLeft(Node<T> node) {
+    if (metrics != null) metrics.rotations.increment();
+    Node<T> child = node.right;
+    node.right = child.left;
+    if (child.left != null) child.left.parent = node;
+    child.left = node;
+    child.parent = node.parent;
+    node.parent = child;
+    updateNode(node);
+    updateNode(child);
+    return child;
+  }
+
+  /**
+   * Mirror image of rotateLeft.
+   */
+  private Node<T> rotateRight(Node<T> node) {
+    if (metrics != null) metrics.rotations.increment();
+    Node<T> child = node.left;
+    node.left = child.right;
+    if (child.right != null) child.right.parent = node;
+    child.right = node;
+    child.parent = node.parent;
+    node.parent = child;
+    updateNode(node);
+    updateNode(child);
+    return child;
+  }
+
+  /**
+   * Makes left and right the children of middle.
+   */
+  private static <T> void link(Node<T> middle, Node<T> left, Node<T> right) {
+    middle.left = left;
+    middle.right = right;
+    if (left != null) left.parent = middle;
+    if (right != null) right.parent = middle;
+  }
+
+  /**
+   * Joins two detached subtrees whose values are all ordered, without a middle
+   * value: the node of the largest value of left is split off and used as
+   * the middle node.
+   */
+  private Subtree<T> joinSubtrees(Subtree<T> left, Subtree<T> right) {
+    if (left.root == null) return right;
+    if (right.root == null) return left;
+    Split<T> last = splitLast(left);
+    return joinSubtrees(last.left, last.found, right);
+  }
+
+  /**
+   * Turns a subtree into a stand-alone tree by unlinking it from its parent
+   * and coloring its root black, which keeps it a valid red-black tree.
+   */
+  private static <T> Node<T> detach(Node<T> node) {
+    if (node != null) {
+      node.parent = null;
+      node.blackHeight = 1;
+    }
+    return node;
+  }
+
+  /**
+   * @return the number of black nodes on each path from node down to a leaf
+   */
+  private static int blackDepthOf(Node<?> node) {
+    int height = 0;
+    for (; node != null; node = node.left) height += node.blackHeight;
+    return height;
+  }
+
+  /**
+   * Rejects combining the nodes of trees of different classes, since their
+   * nodes may carry different fields.
+   */
+  private static void checkSameClass(RedBlackTree<?> a, RedBlackTree<?> b) {
+    if (a.getClass() != b.getClass()) throw new IllegalArgumentException(
+        "Cannot combine a " + a.getClass().getSimpleName() + " with a " + b.getClass().getSimpleName());
+  }
+
+  /**
+   * Runs an update of this tree and another tree of the same class, for join
+   * and the set operations, which take the nodes of both.
+   * ConcurrentRedBlackTree runs it while holding the write locks of both trees.
+   */
+  <R> R updateBoth(RedBlackTree<T> other, Supplier<R> update) {
+    return update.get();
+  }
+
+  /**
+   * Empties this tree and returns its former root, whose nodes then belong to
+   * the caller alone. Only detach the root once it is taken, since readers of
+   * a ConcurrentRedBlackTree may still walk the tree until then.
+   */
+  private Node<T> takeRoot() {
+    Node<T> root = this.root;
+    clear();
+    return root;
+  }
+
+  /**
+   * Wraps a detached subtree of this tree into a new tree of the same kind.
+   */
+  private RedBlackTree<T> treeOf(Node<T> root) {
+    RedBlackTree<T> tree = newEmptyTree();
+    tree.root = detach(root);
+    tree.size = subtreeSize(root);
+    return tree;
+  }
+
+  /**
+   * This method is used to enforce the red-black tree properties after insertion of a new node.
+   * The method takes a single argument, a Node object representing the newly inserted node.
+   * The implementation uses a series of conditional statements to handle 3 cases that
+   * may arise during the enforcement of the red-black tree properties.
+   * @param newNode
+   */
+  protected void enforceRBTreePropertiesAfterInsert(Node <T> newNode) {
+
+    if (newNode.parent.blackHeight==1) {
+      return;
+    }
+
+    else {
+      if (newNode.isLeftChild()) {
+        //when parent node is left child of the root.
+        if (newNode.parent.isLeftChild()) {
+          //case 1: parent's sibling is black and opposite side
+          if (newNode.parent.parent.right==null || newNode.parent.parent.right.blackHeight==1) {
+            if (metrics != null) metrics.insertCase1.increment();
+            rotate(newNode.parent,newNode.parent.parent);
+            newNode.parent.blackHeight=1;
+            newNode.parent.right.blackHeight=0;
+          }
+
+          else {
+            //case 3: parent's sibling is red
+            if (metrics != null) metrics.insertCase3.increment();
+            newNode.parent.blackHeight=1;
+            newNode.parent.parent.blackHeight=0;
+            newNode.parent.parent.right.blackHeight=1;
+            if (newNode.parent.parent.parent!=null) {
+              if (newNode.parent.parent.parent.blackHeight==1) {
+                root.blackHeight=1;
+                return;
+              }
+              else {
+                if (metrics != null) metrics.insertCase3Recursions.increment();
+                enforceRBTreePropertiesAfterInsert(newNode.parent.parent);
+              }
+            }
+            else {
+              root.blackHeight=1;
+              return;
+            }
+          }
+        }
+
+        else if (newNode.parent.isRightChild()){//parent node is right child.
+
+          if (newNode.parent.parent.left == null) {
+            //case 2: when parent's sibling is null on same side.
+            if (metrics != null) metrics.insertCase2.increment();
+            rotate(newNode, newNode.parent);
+            rotate(newNode, newNode.parent);
+            newNode.blackHeight = 1;
+            newNode.left.blackHeight = 0;
+          }
+
+          else if (newNode.parent.parent.left.blackHeight==1) {
+            //case 2: parent's sibling is black and same side
+            if (metrics != null) metrics.insertCase2.increment();
+            rotate(newNode, newNode.parent);
+            rotate(newNode, newNode.parent);
+            newNode.blackHeight=1;
+            newNode.left.blackHeight=0;
+          }
+
+          else {
+            //case 3: parent's sibling is red
+            if (metrics != null) metrics.insertCase3.increment();
+            newNode.parent.blackHeight=1;   
+            newNode.parent.parent.blackHeight=0;
+            newNode.parent.parent.left.blackHeight=1;
+            if (newNode.parent.parent.parent!=null) {
+              if (newNode.parent.parent.parent.blackHeight==1) {
+                root.blackHeight=1;
+                return;
+              }
+              else {
+                if (metrics != null) metrics.insertCase3Recursions.increment();
+                enforceRBTreePropertiesAfterInsert(newNode.parent.parent);
+              }
+            }
+            else {
+              root.blackHeight=1;
+              return;
+            }
+          }
+        }
+      }
+
+      else if (newNode.isRightChild()) {
+
+        //when parent node is left child
+        if (newNode.parent.isLeftChild()) {
+
+          if (newNode.parent.parent.right == null) {
+            //case 2: when parent's sibling is null on same side.
+            if (metrics != null) metrics.insertCase2.increment();
+            rotate(newNode, newNode.parent);
+            rotate(newNode, newNode.parent);
+            newNode.blackHeight = 1;
+            newNode.right.blackHeight = 0;
+          }
+
+          else if (newNode.parent.parent.right.blackHeight==1) {
+            //case 2: parent's sibling is black and same side
+            if (metrics != null) metrics.insertCase2.increment();
+            rotate(newNode, newNode.parent);
+            rotate(newNode, newNode.parent);
+            newNode.blackHeight=1;
+            newNode.right.blackHeight=0;
+          }
+
+          else {
+            //case 3: parent's sibling is red.
+            if (metrics != null) metrics.insertCase3.increment();
+            newNode.parent.blackHeight=1;
+            newNode.parent.parent.blackHeight=0;
+            newNode.parent.parent.right.blackHeight=1;
+            if (newNode.parent.parent.parent!=null) {
+              if (newNode.parent.parent.parent.blackHeight==1) {
+                root.blackHeight=1;
+                return;
+              }
+              else {
+                if (metrics != null) metrics.insertCase3Recursions.increment();
+                enforceRBTreePropertiesAfterInsert(newNode.parent.parent);
+              }
+            }
+            else {
+              root.blackHeight=1;
+              return;
+            }
+          }
+        }
+
+        else if (newNode.parent.isRightChild()) {//parent node is right child
+          //case 1: parent's sibling is black and opposite side
+          if (newNode.parent.parent.left==null || newNode.parent.parent.left.blackHeight==1) {
+            if (metrics != null) metrics.insertCase1.increment();
+            rotate(newNode.parent,newNode.parent.parent);
+            newNode.parent.blackHeight=1;
+            newNode.parent.left.blackHeight=0;
+          }
+
+          else {
+            //case 3: parent's sibling is red
+            if (metrics != null) metrics.insertCase3.increment();
+            newNode.parent.blackHeight=1;
+            newNode.parent.parent.blackHeight=0;
+            newNode.parent.parent.left.blackHeight=1;
+            if (newNode.parent.parent.parent!=null) {
+              if (newNode.parent.parent.parent.blackHeight==1) {
+                root.blackHeight=1;
+                return;
+              }
+              else {
+                if (metrics != null) metrics.insertCase3Recursions.increment();
+                enforceRBTreePropertiesAfterInsert(newNode.parent.parent);
+              }
+            }
+            else {
+              root.blackHeight=1;
+              return;
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * This method is used to enforce the red-black tree properties before a black
+   * leaf is removed. Every path through that leaf is one black node short once
+   * it is gone, so the leaf is treated as "double black" and the extra black is
+   * pushed up or absorbed through the following cases, where the sibling is the
+   * other child of the double black node's parent:
+   * case 1: the sibling is red,
+   * case 2: the sibling is black and both of its children are black,
+   * case 3: the sibling is black and only its child nearer to the node is red,
+   * case 4: the sibling is black and its child farther from the node is red.
+   * @param doubleBlackNode the black node carrying an extra black
+   */
+  protected void enforceRBTreePropertiesAfterRemove(Node<T> doubleBlackNode) {
+    if (doubleBlackNode == root) {
+      // the extra black can simply be dropped at the root
+      return;
+    }
+    Node<T> parent = doubleBlackNode.parent;
+    boolean isLeft = doubleBlackNode.isLeftChild();
+    Node<T> sibling = isLeft ? parent.right : parent.left;
+    if (sibling.blackHeight == 0) {
+      //case 1: sibling is red, rotate it above the parent and retry with a black sibling
+      rotate(sibling, parent);
+      sibling.blackHeight = 1;
+      parent.blackHeight = 0;
+      enforceRBTreePropertiesAfterRemove(doubleBlackNode);
+      return;
+    }
+    Node<T> nearChild = isLeft ? sibling.left : sibling.right;
+    Node<T> farChild = isLeft ? sibling.right : sibling.left;
+    if (isBlack(nearChild) && isBlack(farChild)) {
+      //case 2: sibling and its children are black, recolor the sibling red
+      sibling.blackHeight = 0;
+      if (parent.blackHeight == 0) {
+        // a red parent absorbs the extra black
+        parent.blackHeight = 1;
+      } else {
+        enforceRBTreePropertiesAfterRemove(parent);
+      }
+    } else if (isBlack(farChild)) {
+      //case 3: near child is red, rotate it above the sibling to get case 4
+      rotate(nearChild, sibling);
+      nearChild.blackHeight = 1;
+      sibling.blackHeight = 0;
+      enforceRBTreePropertiesAfterRemove(doubleBlackNode);
+    } else {
+      //case 4: far child is red, rotate the sibling above the parent
+      rotate(sibling, parent);
+      sibling.blackHeight = parent.blackHeight;
+      parent.blackHeight = 1;
+      farChild.blackHeight = 1;
+    }
+  }
+
+  /**
+   * @return true when node is black, which includes the null leaves
+   */
+  private static boolean isBlack(Node<?> node) {
+    return node == null || node.blackHeight == 1;
+  }
+
+  /**
+   * Main method to run tests. Comment out the lines for each test
+   * to run them.
+   * @param args
+   */
+  public static void main(String[] args) {
+    RedBlackTree<Integer> test3 = new RedBlackTree<Integer>();
+    test3.insert(45);
+    test3.insert(26);
+    test3.insert(72);
+    test3.insert(18);
+    test3.insert(100);
+    test3.insert(2);
+    test3.insert(1);
+    test3.insert(3);
+    test3.insert(5);
+
+    String test3tree = test3.toLevelOrderString();
+    System.out.println(test3tree);
+  }
+}
\ No newline at end of file
@@ -0,0 +1,661 @@
+package redblacktree;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Sorted map from keys to values, stored as entries in a RedBlackTree and
+ * ordered by key. get, put, remove, putIfAbsent, computeIfAbsent and merge
+ * each find or create the entry of their key in a single descent of the tree,
+ * through RedBlackTree.findOrInsert and findNodeWithData, and change or unlink
+ * the node they found directly. The rotations and fixups are those of
+ * RedBlackTree.
+ * Keys must not be null; values may be null. Range views (subMap, headMap,
+ * tailMap, descendingMap) and key sets are live views backed by the same
+ * tree, and their iterators are fail-fast.
+ */
+public class RedBlackTreeMap<K extends Comparable<K>, V> extends AbstractMap<K, V>
+    implements NavigableMap<K, V> {
+
+  /**
+   * The entry stored in each node: a key, which decides the order of the
+   * entries, and a value that can be changed in place. Removing a node with
+   * two children moves its successor's entry into it, so an entry keeps its
+   * identity for as long as it is in the map.
+   */
+  static final class TreeEntry<K extends Comparable<K>, V>
+      implements Map.Entry<K, V>, Comparable<TreeEntry<K, V>> {
+    final K key;
+    V value;
+
+    TreeEntry(K key, V value) {
+      this.key = key;
+      this.value = value;
+    }
+
+    @Override
+    public K getKey() {
+      return key;
+    }
+
+    @Override
+    public V getValue() {
+      return value;
+    }
+
+    @Override
+    public V setValue(V value) {
+      V oldValue = this.value;
+      this.value = value;
+      return oldValue;
+    }
+
+    @Override
+    public int compareTo(TreeEntry<K, V> other) {
+      return key.compareTo(other.key);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Map.Entry)) return false;
+      Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+      return key.equals(entry.getKey()) && Objects.equals(value, entry.getValue());
+    }
+
+    @Override
+    public int hashCode() {
+      return key.hashCode() ^ Objects.hashCode(value);
+    }
+
+    @Override
+    public String toString() {
+      return key + "=" + value;
+    }
+  }
+
+  final RedBlackTree<TreeEntry<K, V>> tree; // shared by the map and all of its views
+  // the key range of this view, in ascending order
+  private final K lo; // lower bound, unused when fromStart
+  private final boolean loInclusive;
+  private final boolean fromStart; // no lower bound
+  private final K hi; // upper bound, unused when toEnd
+  private final boolean hiInclusive;
+  private final boolean toEnd; // no upper bound
+  private final boolean descending;
+  // the entries of the tree within the range, in the order of this view
+  private final NavigableSet<TreeEntry<K, V>> entries;
+
+  /**
+   * Creates an empty map ordered by the natural ordering of its keys.
+   */
+  public RedBlackTreeMap() {
+    this(new RedBlackTree<>(), null, false, true, null, false, true, false);
+  }
+
+  /**
+   * Creates a view of the entries of tree within a key range.
+   */
+  private RedBlackTreeMap(RedBlackTree<TreeEntry<K, V>> tree, K lo, boolean loInclusive,
+      boolean fromStart, K hi, boolean hiInclusive, boolean toEnd, boolean descending) {
+    this.tree = tree;
+    this.lo = lo;
+    this.loInclusive = loInclusive;
+    this.fromStart = fromStart;
+    this.hi = hi;
+    this.hiInclusive = hiInclusive;
+    this.toEnd = toEnd;
+    this.descending = descending;
+    NavigableSet<TreeEntry<K, V>> inRange = tree;
+    if (!fromStart && !toEnd) {
+      inRange = tree.subSet(probe(lo), loInclusive, probe(hi), hiInclusive);
+    } else if (!fromStart) {
+      inRange = tree.tailSet(probe(lo), loInclusive);
+    } else if (!toEnd) {
+      inRange = tree.headSet(probe(hi), hiInclusive);
+    }
+    this.entries = descending ? inRange.descendingSet() : inRange;
+  }
+
+  /**
+   * @return the value mapped to key, or null if there is none
+   * @throws NullPointerException when key is null
+   * @throws ClassCastException when key cannot be compared with the keys of the map
+   */
+  @Override
+  public V get(Object key) {
+    RedBlackTree.Node<TreeEntry<K, V>> node = findNode(key);
+    return node == null ? null : node.data.value;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return findNode(key) != null;
+  }
+
+  /**
+   * Maps key to value, replacing the value of an existing mapping.
+   * @return the previous value of key, or null if there was none
+   * @throws NullPointerException when key is null
+   * @throws IllegalArgumentException when key is outside the range of this view
+   */
+  @Override
+  public V put(K key, V value) {
+    checkInRange(key);
+    TreeEntry<K, V> entry = new TreeEntry<>(key, value);
+    RedBlackTree.Node<TreeEntry<K, V>> node = tree.findOrInsert(entry);
+    if (node.data == entry) return null;
+    return node.data.setValue(value);
+  }
+
+  /**
+   * Maps key to value unless key is already mapped to a non-null value.
+   * @return the previous value of key, or null if there was none
+   */
+  @Override
+  public V putIfAbsent(K key, V value) {
+    checkInRange(key);
+    TreeEntry<K, V> entry = new TreeEntry<>(key, value);
+    RedBlackTree.Node<TreeEntry<K, V>> node = tree.findOrInsert(entry);
+    if (node.data == entry) return null;
+    V oldValue = node.data.value;
+    if (oldValue == null) node.data.value = value;
+    return oldValue;
+  }
+
+  /**
+   * Returns the value of key, first computing it with mappingFunction when key
+   * is not mapped to a non-null value yet. The entry is inserted before the
+   * function runs, and unlinked again if the function returns null or throws.
+   * The function must not modify this map.
+   * @return the current (existing or computed) value of key, or null
+   */
+  @Override
+  public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+    Objects.requireNonNull(mappingFunction);
+    checkInRange(key);
+    TreeEntry<K, V> entry = new TreeEntry<>(key, null);
+    RedBlackTree.Node<TreeEntry<K, V>> node = tree.findOrInsert(entry);
+    if (node.data.value != null) return node.data.value;
+    V value;
+    try {
+      value = mappingFunction.apply(key);
+    } catch (RuntimeException | Error e) {
+      if (node.data == entry) tree.removeNode(node);
+      throw e;
+    }
+    if (value != null) {
+      node.data.value = value;
+    } else if (node.data == entry) {
+      tree.removeNode(node);
+    }
+    return value;
+  }
+
+  /**
+   * Maps key to value if it is not mapped to a non-null value yet, and
+   * otherwise to the result of remappingFunction on the old value and value,
+   * removing the mapping when that result is null. The function must not
+   * modify this map.
+   * @return the new value of key, or null if the mapping was removed
+   */
+  @Override
+  public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+    Objects.requireNonNull(value);
+    Objects.requireNonNull(remappingFunction);
+    checkInRange(key);
+    TreeEntry<K, V> entry = new TreeEntry<>(key, value);
+    RedBlackTree.Node<TreeEntry<K, V>> node = tree.findOrInsert(entry);
+    if (node.data == entry) return value;
+    V oldValue = node.data.value;
+    V newValue = (oldValue == null) ? value : remappingFunction.apply(oldValue, value);
+    if (newValue == null) {
+      tree.removeNode(node);
+    } else {
+      node.data.value = newValue;
+    }
+    return newValue;
+  }
+
+  /**
+   * Removes the mapping of key.
+   * @return the value key was mapped to, or null if there was none
+   */
+  @Override
+  public V remove(Object key) {
+    RedBlackTree.Node<TreeEntry<K, V>> node = findNode(key);
+    if (node == null) return null;
+    V oldValue = node.data.value;
+    tree.removeNode(node);
+    return oldValue;
+  }
+
+  @Override
+  public int size() {
+    return entries.size();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return entries.isEmpty();
+  }
+
+  @Override
+  public void clear() {
+    if (fromStart && toEnd) {
+      tree.clear();
+    } else {
+      entries.clear();
+    }
+  }
+
+  @Override
+  public Comparator<? super K> comparator() {
+    return descending ? Collections.reverseOrder() : null;
+  }
+
+  @Override
+  public Map.Entry<K, V> firstEntry() {
+    return exportEntry(entries.isEmpty() ? null : entries.first());
+  }
+
+  @Override
+  public Map.Entry<K, V> lastEntry() {
+    return exportEntry(entries.isEmpty() ? null : entries.last());
+  }
+
+  @Override
+  public Map.Entry<K, V> pollFirstEntry() {
+    return exportEntry(entries.pollFirst());
+  }
+
+  @Override
+  public Map.Entry<K, V> pollLastEntry() {
+    return exportEntry(entries.pollLast());
+  }
+
+  @Override
+  public K firstKey() {
+    return keyOf(entries.first());
+  }
+
+  @Override
+  public K lastKey() {
+    return keyOf(entries.last());
+  }
+
+  @Override
+  public Map.Entry<K, V> lowerEntry(K key) {
+    return exportEntry(entries.lower(probe(key)));
+  }
+
+  @Override
+  public K lowerKey(K key) {
+    return keyOrNull(entries.lower(probe(key)));
+  }
+
+  @Override
+  public Map.Entry<K, V> floorEntry(K key) {
+    return exportEntry(entries.floor(probe(key)));
+  }
+
+  @Override
+  public K floorKey(K key) {
+    return keyOrNull(entries.floor(probe(key)));
+  }
+
+  @Override
+  public Map.Entry<K, V> ceilingEntry(K key) {
+    return exportEntry(entries.ceiling(probe(key)));
+  }
+
+  @Override
+  public K ceilingKey(K key) {
+    return keyOrNull(entries.ceiling(probe(key)));
+  }
+
+  @Override
+  public Map.Entry<K, V> higherEntry(K key) {
+    return exportEntry(entries.higher(probe(key)));
+  }
+
+  @Override
+  public K higherKey(K key) {
+    return keyOrNull(entries.higher(probe(key)));
+  }
+
+  /**
+   * @return a set view of the mappings in the order of this map, whose entries
+   *      write setValue through to the map
+   */
+  @Override
+  public Set<Map.Entry<K, V>> entrySet() {
+    return new AbstractSet<Map.Entry<K, V>>() {
+      @Override
+      @SuppressWarnings({ "unchecked", "rawtypes" })
+      public Iterator<Map.Entry<K, V>> iterator() {
+        return (Iterator) entries.iterator();
+      }
+
+      @Override
+      public int size() {
+        return entries.size();
+      }
+
+      @Override
+      public boolean contains(Object o) {
+        if (!(o instanceof Map.Entry)) return false;
+        Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+        RedBlackTree.Node<TreeEntry<K, V>> node = findNode(entry.getKey());
+        return node != null && Objects.equals(node.data.value, entry.getValue());
+      }
+
+      @Override
+      public boolean remove(Object o) {
+        if (!contains(o)) return false;
+        RedBlackTreeMap.this.remove(((Map.Entry<?, ?>) o).getKey());
+        return true;
+      }
+
+      @Override
+      public void clear() {
+        RedBlackTreeMap.this.clear();
+      }
+    };
+  }
+
+  @Override
+  public Set<K> keySet() {
+    return navigableKeySet();
+  }
+
+  @Override
+  public NavigableSet<K> navigableKeySet() {
+    return new KeySet<>(this);
+  }
+
+  @Override
+  public NavigableSet<K> descendingKeySet() {
+    return descendingMap().navigableKeySet();
+  }
+
+  @Override
+  public NavigableMap<K, V> descendingMap() {
+    return new RedBlackTreeMap<>(tree, lo, loInclusive, fromStart, hi, hiInclusive, toEnd, !descending);
+  }
+
+  @Override
+  public NavigableMap<K, V> subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+    if (descending ? fromKey.compareTo(toKey) < 0 : fromKey.compareTo(toKey) > 0) {
+      throw new IllegalArgumentException("fromKey " + fromKey + " is beyond toKey " + toKey);
+    }
+    return descending ? restrict(toKey, toInclusive, false, fromKey, fromInclusive, false)
+        : restrict(fromKey, fromInclusive, false, toKey, toInclusive, false);
+  }
+
+  @Override
+  public NavigableMap<K, V> headMap(K toKey, boolean inclusive) {
+    return descending ? restrict(toKey, inclusive, false, null, false, true)
+        : restrict(null, false, true, toKey, inclusive, false);
+  }
+
+  @Override
+  public NavigableMap<K, V> tailMap(K fromKey, boolean inclusive) {
+    return descending ? restrict(null, false, true, fromKey, inclusive, false)
+        : restrict(fromKey, inclusive, false, null, false, true);
+  }
+
+  @Override
+  public SortedMap<K, V> subMap(K fromKey, K toKey) {
+    return subMap(fromKey, true, toKey, false);
+  }
+
+  @Override
+  public SortedMap<K, V> headMap(K toKey) {
+    return headMap(toKey, false);
+  }
+
+  @Override
+  public SortedMap<K, V> tailMap(K fromKey) {
+    return tailMap(fromKey, true);
+  }
+
+  /**
+   * Creates a view of this map narrowed to new ascending bounds, which must lie
+   * within the range of this map. A missing new bound keeps the current one.
+   */
+  private RedBlackTreeMap<K, V> restrict(K newLo, boolean newLoInclusive, boolean noNewLo,
+      K newHi, boolean newHiInclusive, boolean noNewHi) {
+    if (!noNewLo && !inRange(newLo, newLoInclusive)) {
+      throw new IllegalArgumentException("The key " + newLo + " is out of range.");
+    }
+    if (!noNewHi && !inRange(newHi, newHiInclusive)) {
+      throw new IllegalArgumentException("The key " + newHi + " is out of range.");
+    }
+    return new RedBlackTreeMap<>(tree,
+        noNewLo ? lo : newLo, noNewLo ? loInclusive : newLoInclusive, noNewLo && fromStart,
+        noNewHi ? hi : newHi, noNewHi ? hiInclusive : newHiInclusive, noNewHi && toEnd,
+        descending);
+  }
+
+  /**
+   * @return true when key lies within the range of this map; a bound that is
+   *      not inclusive may itself be used as an exclusive bound of a view
+   */
+  private boolean inRange(K key, boolean inclusive) {
+    if (!fromStart) {
+      int compare = key.compareTo(lo);
+      if (compare < 0 || (compare == 0 && !loInclusive && inclusive)) return false;
+    }
+    if (!toEnd) {
+      int compare = key.compareTo(hi);
+      if (compare > 0 || (compare == 0 && !hiInclusive && inclusive)) return false;
+    }
+    return true;
+  }
+
+  private void checkInRange(K key) {
+    if (key == null) throw new NullPointerException(
+        "This RedBlackTreeMap cannot store null keys.");
+    if (!inRange(key, true)) {
+      throw new IllegalArgumentException("The key " + key + " is out of range.");
+    }
+  }
+
+  /**
+   * Finds the node of a key within the range of this map in a single descent.
+   * @return the node, or null if the key is not mapped
+   */
+  @SuppressWarnings("unchecked")
+  private RedBlackTree.Node<TreeEntry<K, V>> findNode(Object key) {
+    K k = (K) key;
+    if (k == null) throw new NullPointerException(
+        "This RedBlackTreeMap cannot store null keys.");
+    if (!inRange(k, true)) return null;
+    return tree.findNodeWithData(probe(k));
+  }
+
+  /**
+   * @return an entry with the given key, to search the tree with
+   */
+  private static <K extends Comparable<K>, V> TreeEntry<K, V> probe(K key) {
+    if (key == null) throw new NullPointerException(
+        "This RedBlackTreeMap cannot store null keys.");
+    return new TreeEntry<>(key, null);
+  }
+
+  /**
+   * @return an immutable copy of entry, as returned by the NavigableMap
+   *      methods that return single entries, or null
+   */
+  private static <K extends Comparable<K>, V> Map.Entry<K, V> exportEntry(TreeEntry<K, V> entry) {
+    return entry == null ? null : new AbstractMap.SimpleImmutableEntry<>(entry.key, entry.value);
+  }
+
+  private static <K extends Comparable<K>> K keyOf(TreeEntry<K, ?> entry) {
+    if (entry == null) throw new NoSuchElementException("This RedBlackTreeMap is empty.");
+    return entry.key;
+  }
+
+  private static <K extends Comparable<K>> K keyOrNull(TreeEntry<K, ?> entry) {
+    return entry == null ? null : entry.key;
+  }
+
+  /**
+   * The keys of a map as a NavigableSet, backed by the map.
+   */
+  private static final class KeySet<K extends Comparable<K>> extends AbstractSet<K> implements NavigableSet<K> {
+    private final RedBlackTreeMap<K, ?> map;
+
+    KeySet(RedBlackTreeMap<K, ?> map) {
+      this.map = map;
+    }
+
+    @Override
+    public Iterator<K> iterator() {
+      Iterator<? extends TreeEntry<K, ?>> iterator = map.entries.iterator();
+      return new Iterator<K>() {
+        @Override
+        public boolean hasNext() {
+          return iterator.hasNext();
+        }
+
+        @Override
+        public K next() {
+          return iterator.next().key;
+        }
+
+        @Override
+        public void remove() {
+          iterator.remove();
+        }
+      };
+    }
+
+    @Override
+    public Iterator<K> descendingIterator() {
+      return descendingSet().iterator();
+    }
+
+    @Override
+    public int size() {
+      return map.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return map.isEmpty();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+      return map.containsKey(o);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+      if (!map.containsKey(o)) return false;
+      map.remove(o);
+      return true;
+    }
+
+    @Override
+    public void clear() {
+      map.clear();
+    }
+
+    @Override
+    public Comparator<? super K> comparator() {
+      return map.comparator();
+    }
+
+    @Override
+    public K first() {
+      return map.firstKey();
+    }
+
+    @Override
+    public K last() {
+      return map.lastKey();
+    }
+
+    @Override
+    public K lower(K key) {
+      return map.lowerKey(key);
+    }
+
+    @Override
+    public K floor(K key) {
+      return map.floorKey(key);
+    }
+
+    @Override
+    public K ceiling(K key) {
+      return map.ceilingKey(key);
+    }
+
+    @Override
+    public K higher(K key) {
+      return map.higherKey(key);
+    }
+
+    @Override
+    public K pollFirst() {
+      Map.Entry<K, ?> entry = map.pollFirstEntry();
+      return entry == null ? null : entry.getKey();
+    }
+
+    @Override
+    public K pollLast() {
+      Map.Entry<K, ?> entry = map.pollLastEntry();
+      return entry == null ? null : entry.getKey();
+    }
+
+    @Override
+    public NavigableSet<K> descendingSet() {
+      return new KeySet<>((RedBlackTreeMap<K, ?>) map.descendingMap());
+    }
+
+    @Override
+    public NavigableSet<K> subSet(K fromElement, boolean fromInclusive, K toElement, boolean toInclusive) {
+      return new KeySet<>((RedBlackTreeMap<K, ?>) map.subMap(fromElement, fromInclusive, toElement, toInclusive));
+    }
+
+    @Override
+    public NavigableSet<K> headSet(K toElement, boolean inclusive) {
+      return new KeySet<>((RedBlackTreeMap<K, ?>) map.headMap(toElement, inclusive));
+    }
+
+    @Override
+    public NavigableSet<K> tailSet(K fromElement, boolean inclusive) {
+      return new KeySet<>((RedBlackTreeMap<K, ?>) map.tailMap(fromElement, inclusive));
+    }
+
+    @Override
+    public SortedSet<K> subSet(K fromElement, K toElement) {
+      return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public SortedSet<K> headSet(K toElement) {
+      return headSet(toElement, false);
+    }
+
+    @Override
+    public SortedSet<K> tailSet(K fromElement) {
+      return tailSet(fromElement, true);
+    }
+  }
+}
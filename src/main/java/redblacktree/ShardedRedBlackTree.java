@@ -0,0 +1,375 @@
+package redblacktree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Thread-safe sorted collection that partitions its values by range into
+ * shards. Each shard is a RedBlackTree with its own lock, so writers that
+ * touch different key ranges do not contend with each other. A shard that
+ * grows well beyond its share of the values is split at its median, and two
+ * neighbouring shards that both become small are merged, so the number of
+ * shards follows the distribution of the keys.
+ * Operations find their shard in an immutable directory of shards. A shard
+ * that is split or merged is retired under its lock and replaced in a new
+ * directory, and an operation that finds its shard retired simply retries.
+ */
+public class ShardedRedBlackTree<T extends Comparable<T>> implements SortedCollectionInterface<T>, Iterable<T> {
+
+  // shards are never split below twice this size
+  private static final int MIN_SHARD_SIZE = 1024;
+
+  /**
+   * A range of the values, held in its own tree and guarded by its own lock.
+   */
+  private static class Shard<T extends Comparable<T>> {
+    final T lowerBound; // the smallest value the shard may hold, null for the first shard
+    final RedBlackTree<T> tree;
+    final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    boolean retired = false; // set under the write lock once the shard is replaced
+
+    Shard(T lowerBound, RedBlackTree<T> tree) {
+      this.lowerBound = lowerBound;
+      this.tree = tree;
+    }
+  }
+
+  private final int targetShards; // the number of shards the values are spread over
+  private volatile Shard<T>[] shards; // sorted by lowerBound, replaced as a whole
+  private final Object directoryLock = new Object(); // serializes splits and merges
+  private final AtomicInteger size = new AtomicInteger(); // the number of values in all shards
+
+  /**
+   * Creates an empty tree that spreads its values over about targetShards shards
+   * once it holds enough values. A good choice is the number of writer threads.
+   * @param targetShards the number of shards to aim for
+   * @throws IllegalArgumentException when targetShards is not positive
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  public ShardedRedBlackTree(int targetShards) {
+    if (targetShards <= 0) throw new IllegalArgumentException(
+        "The number of shards must be positive: " + targetShards);
+    this.targetShards = targetShards;
+    this.shards = (Shard<T>[]) new Shard[] { new Shard<T>(null, new RedBlackTree<>()) };
+  }
+
+  /**
+   * Inserts a value into the shard whose range contains it.
+   * @return true if the value was inserted
+   * @throws NullPointerException when the provided data argument is null
+   * @throws IllegalArgumentException when data is already contained in the tree
+   */
+  @Override
+  public boolean insert(T data) throws NullPointerException, IllegalArgumentException {
+    if (!tryInsert(data)) {
+      throw new IllegalArgumentException("This ShardedRedBlackTree already contains value " + data.toString());
+    }
+    return true;
+  }
+
+  /**
+   * Inserts a value like insert, but reports a duplicate through the return value.
+   * @return true if the value was inserted, false if the tree already contains it
+   * @throws NullPointerException when the provided data argument is null
+   */
+  public boolean tryInsert(T data) throws NullPointerException {
+    checkNotNull(data);
+    while (true) {
+      Shard<T> shard = shardFor(data);
+      boolean inserted;
+      int shardSize;
+      shard.lock.writeLock().lock();
+      try {
+        if (shard.retired) continue;
+        inserted = shard.tree.tryInsert(data);
+        if (inserted) size.incrementAndGet();
+        shardSize = shard.tree.size();
+      } finally {
+        shard.lock.writeLock().unlock();
+      }
+      if (inserted && shardSize > splitThreshold()) split(shard);
+      return inserted;
+    }
+  }
+
+  /**
+   * Removes a value from the shard whose range contains it.
+   * @return true if the value was removed
+   * @throws NullPointerException when the provided data argument is null
+   * @throws IllegalArgumentException when data is not stored in the tree
+   */
+  @Override
+  public boolean remove(T data) throws NullPointerException, IllegalArgumentException {
+    if (!tryRemove(data)) {
+      throw new IllegalArgumentException("The following value is not in the tree and cannot be deleted: " + data.toString());
+    }
+    return true;
+  }
+
+  /**
+   * Removes a value like remove, but reports a missing value through the return value.
+   * @return true if the value was removed, false if the tree does not contain it
+   * @throws NullPointerException when the provided data argument is null
+   */
+  public boolean tryRemove(T data) throws NullPointerException {
+    checkNotNull(data);
+    while (true) {
+      Shard<T> shard = shardFor(data);
+      boolean removed;
+      int shardSize;
+      shard.lock.writeLock().lock();
+      try {
+        if (shard.retired) continue;
+        removed = shard.tree.tryRemove(data);
+        if (removed) size.decrementAndGet();
+        shardSize = shard.tree.size();
+      } finally {
+        shard.lock.writeLock().unlock();
+      }
+      if (removed && shardSize < splitThreshold() / 4 && mergeLikely(shard, data)) merge(shard);
+      return removed;
+    }
+  }
+
+  /**
+   * Checks whether the tree contains the value *data*.
+   * @throws NullPointerException when the provided data argument is null
+   */
+  @Override
+  public boolean contains(T data) {
+    checkNotNull(data);
+    while (true) {
+      Shard<T> shard = shardFor(data);
+      shard.lock.readLock().lock();
+      try {
+        if (shard.retired) continue;
+        return shard.tree.contains(data);
+      } finally {
+        shard.lock.readLock().unlock();
+      }
+    }
+  }
+
+  /**
+   * @return the number of values in all shards
+   */
+  @Override
+  public int size() {
+    return size.get();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  /**
+   * @return the current number of shards
+   */
+  public int shardCount() {
+    return shards.length;
+  }
+
+  /**
+   * Returns an iterator over all values in ascending order. It copies the
+   * values of one shard at a time under that shard's read lock and continues
+   * after the last value it returned, so it stays ordered and returns no value
+   * twice even when shards are split or merged during the iteration. Values
+   * inserted or removed during the iteration may or may not be seen.
+   * @return an iterator over the values of the tree in ascending order
+   */
+  @Override
+  public Iterator<T> iterator() {
+    return new Iterator<T>() {
+      private final List<T> buffer = new ArrayList<>();
+      private int position = 0;
+      private T last = null; // the last value copied into the buffer
+      private boolean exhausted = false;
+
+      @Override
+      public boolean hasNext() {
+        if (position == buffer.size() && !exhausted) fill();
+        return position < buffer.size();
+      }
+
+      @Override
+      public T next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        return buffer.get(position++);
+      }
+
+      /**
+       * Copies the values after last from the first shard that has any.
+       */
+      private void fill() {
+        buffer.clear();
+        position = 0;
+        retry:
+        while (true) {
+          Shard<T>[] directory = shards;
+          for (int i = (last == null) ? 0 : shardIndex(directory, last); i < directory.length; i++) {
+            Shard<T> shard = directory[i];
+            shard.lock.readLock().lock();
+            try {
+              if (shard.retired) continue retry;
+              buffer.addAll(last == null ? shard.tree : shard.tree.tailSet(last, false));
+            } finally {
+              shard.lock.readLock().unlock();
+            }
+            if (!buffer.isEmpty()) {
+              last = buffer.get(buffer.size() - 1);
+              return;
+            }
+          }
+          exhausted = true;
+          return;
+        }
+      }
+    };
+  }
+
+  /**
+   * This method performs an inorder traversal of all shards.
+   * @return string containing the ordered values of this tree
+   */
+  public String toInOrderString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("[ ");
+    Iterator<T> iterator = iterator();
+    while (iterator.hasNext()) {
+      sb.append(iterator.next().toString());
+      if (iterator.hasNext()) sb.append(", ");
+    }
+    sb.append(" ]");
+    return sb.toString();
+  }
+
+  public String toString() {
+    return toInOrderString();
+  }
+
+  /**
+   * A shard splits once it holds more than twice its share of the values.
+   */
+  private int splitThreshold() {
+    return Math.max(2 * MIN_SHARD_SIZE, 2 * (size.get() / targetShards));
+  }
+
+  private Shard<T> shardFor(T data) {
+    Shard<T>[] directory = shards;
+    return directory[shardIndex(directory, data)];
+  }
+
+  /**
+   * @return the index of the last shard whose lower bound is not above data
+   */
+  private static <T extends Comparable<T>> int shardIndex(Shard<T>[] directory, T data) {
+    int lo = 1;
+    int hi = directory.length - 1;
+    int found = 0; // the first shard has no lower bound
+    while (lo <= hi) {
+      int mid = (lo + hi) >>> 1;
+      if (directory[mid].lowerBound.compareTo(data) <= 0) {
+        found = mid;
+        lo = mid + 1;
+      } else {
+        hi = mid - 1;
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Splits a shard at its median into two shards, if it is still in use and
+   * still too large once the directory lock is held.
+   */
+  private void split(Shard<T> shard) {
+    synchronized (directoryLock) {
+      shard.lock.writeLock().lock();
+      try {
+        int shardSize = shard.tree.size();
+        if (shard.retired || shardSize <= splitThreshold()) return;
+        List<T> values = new ArrayList<>(shard.tree);
+        int mid = shardSize / 2;
+        Shard<T> lower = new Shard<>(shard.lowerBound, RedBlackTree.buildFromSorted(values.subList(0, mid)));
+        Shard<T> upper = new Shard<>(values.get(mid), RedBlackTree.buildFromSorted(values.subList(mid, shardSize)));
+        replace(shard, shard, Arrays.asList(lower, upper));
+      } finally {
+        shard.lock.writeLock().unlock();
+      }
+    }
+  }
+
+  /**
+   * Checks without any lock whether a shard and the neighbour merge would
+   * pair it with are small enough to merge. A small shard next to a large one
+   * stays small, so without this check every remove from it would take the
+   * directory lock and two write locks only to have the merge rejected. The
+   * sizes are read racily, which only decides whether merge is tried: merge
+   * checks them again under the locks.
+   * @param data a value in the range of shard, to find it in the directory
+   */
+  private boolean mergeLikely(Shard<T> shard, T data) {
+    Shard<T>[] directory = shards;
+    int index = shardIndex(directory, data);
+    if (directory[index] != shard || directory.length == 1) return false;
+    int first = (index + 1 < directory.length) ? index : index - 1;
+    return directory[first].tree.size() + directory[first + 1].tree.size() <= splitThreshold() / 2;
+  }
+
+  /**
+   * Merges a shard with a neighbour, if both are still in use and still small
+   * once the directory lock is held.
+   */
+  private void merge(Shard<T> shard) {
+    synchronized (directoryLock) {
+      Shard<T>[] directory = shards;
+      int index = Arrays.asList(directory).indexOf(shard);
+      if (index < 0 || directory.length == 1) return;
+      // merge with the next shard, or the previous one for the last shard
+      int first = (index + 1 < directory.length) ? index : index - 1;
+      Shard<T> lower = directory[first];
+      Shard<T> upper = directory[first + 1];
+      lower.lock.writeLock().lock();
+      upper.lock.writeLock().lock();
+      try {
+        if (lower.tree.size() + upper.tree.size() > splitThreshold() / 2) return;
+        List<T> values = new ArrayList<>(lower.tree);
+        values.addAll(upper.tree);
+        replace(lower, upper,
+            Collections.singletonList(new Shard<>(lower.lowerBound, RedBlackTree.buildFromSorted(values))));
+      } finally {
+        upper.lock.writeLock().unlock();
+        lower.lock.writeLock().unlock();
+      }
+    }
+  }
+
+  /**
+   * Publishes a new directory in which the shards from first to last are
+   * replaced by the given shards, and retires the replaced shards. The caller
+   * holds the directory lock and the write locks of the replaced shards.
+   */
+  private void replace(Shard<T> first, Shard<T> last, List<Shard<T>> replacements) {
+    Shard<T>[] directory = shards;
+    List<Shard<T>> updated = new ArrayList<>(Arrays.asList(directory));
+    int from = updated.indexOf(first);
+    int to = updated.indexOf(last);
+    List<Shard<T>> replaced = updated.subList(from, to + 1);
+    for (Shard<T> shard : replaced) shard.retired = true;
+    replaced.clear();
+    updated.addAll(from, replacements);
+    shards = updated.toArray(Arrays.copyOf(directory, 0));
+  }
+
+  private static void checkNotNull(Object data) {
+    if (data == null) throw new NullPointerException(
+        "This ShardedRedBlackTree cannot store null references.");
+  }
+}
@@ -1,3 +1,5 @@
+package redblacktree;
+
 public interface SortedCollectionInterface<T extends Comparable<T>>{
 
     public boolean insert(T data) throws NullPointerException, IllegalArgumentException;
@@ -0,0 +1,192 @@
+package redblacktree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Red-Black Tree that keeps only the capacity largest values offered to it,
+ * for tracking the top K of a stream. The tree caches its first and last
+ * nodes, so once it is full, a candidate that is not larger than the
+ * smallest value kept (the threshold) is rejected with a single compareTo,
+ * without touching the tree. A larger candidate is inserted and the smallest
+ * value is evicted right away through the cached node, which has no left
+ * child and is therefore unlinked without searching.
+ * The caches are tagged with the modCount they were computed at, so changes
+ * made through the other methods of RedBlackTree (remove, range views, ...)
+ * only cost one walk down the tree to refresh them. To keep the smallest
+ * values instead, give the values a reversed compareTo.
+ */
+public class TopKRedBlackTree<T extends Comparable<T>> extends RedBlackTree<T> {
+
+  private static final int KEPT = 0;
+  private static final int REJECTED = 1;
+  private static final int DUPLICATE = 2;
+
+  private final int capacity;
+  private Node<T> minNode; // the node of the smallest value, valid while cacheModCount == modCount
+  private Node<T> maxNode; // the node of the largest value, valid while cacheModCount == modCount
+  private int cacheModCount = -1;
+
+  /**
+   * Creates an empty tree that keeps at most capacity values.
+   * @param capacity the number of values to keep
+   * @throws IllegalArgumentException when capacity is not positive
+   */
+  public TopKRedBlackTree(int capacity) {
+    if (capacity <= 0) throw new IllegalArgumentException("The capacity must be positive: " + capacity);
+    this.capacity = capacity;
+  }
+
+  /**
+   * @return the largest number of values this tree keeps
+   */
+  public int capacity() {
+    return capacity;
+  }
+
+  /**
+   * Returns the value a candidate has to exceed to be kept: the smallest
+   * value while the tree is full, or null while it has room.
+   * @return the threshold, or null if every value is kept
+   */
+  public T threshold() {
+    if (size < capacity) return null;
+    refreshCache();
+    return minNode.data;
+  }
+
+  /**
+   * Offers a candidate to the tree. While the tree has room every new value
+   * is kept. Once it is full, a candidate not larger than the threshold is
+   * rejected in constant time, and a larger one replaces the smallest value.
+   * @param data the candidate
+   * @return true if the candidate was kept, false if it was rejected or is
+   *      already in the tree
+   * @throws NullPointerException when the provided data argument is null
+   */
+  public boolean offer(T data) throws NullPointerException {
+    return admit(data) == KEPT;
+  }
+
+  /**
+   * Inserts a value like offer.
+   * @return true if the value was kept, false if it was rejected
+   * @throws NullPointerException when the provided data argument is null
+   * @throws IllegalArgumentException when data is already contained in the tree
+   */
+  @Override
+  public boolean insert(T data) throws NullPointerException, IllegalArgumentException {
+    int outcome = admit(data);
+    if (outcome == DUPLICATE) {
+      throw new IllegalArgumentException("This RedBlackTree already contains value " + data.toString());
+    }
+    return outcome == KEPT;
+  }
+
+  /**
+   * Inserts a value like offer, so add and the other inserting methods of
+   * RedBlackTree respect the capacity as well.
+   * @return true if the value was kept, false if it was rejected or is already in the tree
+   * @throws NullPointerException when the provided data argument is null
+   */
+  @Override
+  public boolean tryInsert(T data) throws NullPointerException {
+    return admit(data) == KEPT;
+  }
+
+  /**
+   * Offers all values of a batch, largest first, so once the tree is full
+   * the rest of the batch is rejected by the threshold check alone.
+   * @param values the candidates
+   * @return the candidates that were not kept because they were already in
+   *      the tree or appear more than once in the batch, in ascending order
+   * @throws NullPointerException when values contains null, in which case
+   *      nothing is inserted
+   */
+  @Override
+  public List<T> insertAll(Collection<? extends T> values) throws NullPointerException {
+    Object[] batch = values.toArray();
+    for (Object value : batch) {
+      if (value == null) throw new NullPointerException(
+          "This RedBlackTree cannot store null references.");
+    }
+    Arrays.sort(batch, Collections.reverseOrder());
+    List<T> duplicates = new ArrayList<>();
+    for (Object value : batch) {
+      @SuppressWarnings("unchecked")
+      T data = (T) value;
+      if (admit(data) == DUPLICATE) duplicates.add(data);
+    }
+    Collections.reverse(duplicates);
+    return duplicates;
+  }
+
+  /**
+   * @return the smallest value in the tree
+   * @throws NoSuchElementException when the tree is empty
+   */
+  @Override
+  public T first() {
+    refreshCache();
+    if (minNode == null) throw new NoSuchElementException("This RedBlackTree is empty.");
+    return minNode.data;
+  }
+
+  /**
+   * @return the largest value in the tree
+   * @throws NoSuchElementException when the tree is empty
+   */
+  @Override
+  public T last() {
+    refreshCache();
+    if (maxNode == null) throw new NoSuchElementException("This RedBlackTree is empty.");
+    return maxNode.data;
+  }
+
+  /**
+   * Keeps, rejects or reports a candidate as duplicate, maintaining the
+   * cached nodes and evicting the smallest value when the tree overflows.
+   * @return KEPT, REJECTED or DUPLICATE
+   */
+  private int admit(T data) {
+    if (data == null) throw new NullPointerException(
+        "This RedBlackTree cannot store null references.");
+    refreshCache();
+    if (size == capacity) {
+      int compare = data.compareTo(minNode.data);
+      if (compare < 0) return REJECTED;
+      if (compare == 0) return DUPLICATE;
+    }
+    int sizeBefore = size;
+    Node<T> node = findOrInsert(data);
+    if (size == sizeBefore) return DUPLICATE;
+    // the fixup only rotates, so the cached nodes still hold the extremes
+    if (minNode == null || data.compareTo(minNode.data) < 0) minNode = node;
+    if (maxNode == null || data.compareTo(maxNode.data) > 0) maxNode = node;
+    if (size > capacity) {
+      // the smallest node has no left child, so removeNode unlinks that very
+      // node and leaves its successor in place
+      Node<T> next = successor(minNode);
+      removeNode(minNode);
+      minNode = next;
+    }
+    cacheModCount = modCount;
+    return KEPT;
+  }
+
+  /**
+   * Finds the first and last nodes again when the tree has changed since
+   * they were cached.
+   */
+  private void refreshCache() {
+    if (cacheModCount != modCount) {
+      minNode = firstNode();
+      maxNode = lastNode();
+      cacheModCount = modCount;
+    }
+  }
+}
@@ -0,0 +1,167 @@
+package redblacktree;
+
+import java.util.concurrent.atomic.LongAdder;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+
+/**
+ * Counters of the work done by a RedBlackTree: rotations, the cases taken by
+ * the insert fixup, and the length of every search path, which is also the
+ * number of compareTo calls of that search. A tree only has a TreeMetrics
+ * while metrics are enabled (see RedBlackTree.setMetricsEnabled), so with
+ * metrics off the hot paths pay a single null check. The counters, including
+ * every bucket of the search path histogram, are LongAdders, so concurrent
+ * readers of a ConcurrentRedBlackTree can record their searches without
+ * contention.
+ */
+public final class TreeMetrics {
+
+  // search paths of this length or longer share the last histogram bucket
+  static final int MAX_PATH_LENGTH = 64;
+
+  final LongAdder rotations = new LongAdder();
+  final LongAdder insertCase1 = new LongAdder(); // single rotation, the aunt is black
+  final LongAdder insertCase2 = new LongAdder(); // double rotation, the aunt is black
+  final LongAdder insertCase3 = new LongAdder(); // recolor, the aunt is red
+  final LongAdder insertCase3Recursions = new LongAdder(); // recolors that continue at the grandparent
+  final LongAdder searches = new LongAdder();
+  final LongAdder comparisons = new LongAdder();
+  final LongAdder[] pathLengths = new LongAdder[MAX_PATH_LENGTH + 1];
+
+  TreeMetrics() {
+    for (int i = 0; i < pathLengths.length; i++) pathLengths[i] = new LongAdder();
+  }
+
+  /**
+   * Records a search that visited pathLength nodes, calling compareTo once on each.
+   */
+  void recordSearch(int pathLength) {
+    searches.increment();
+    comparisons.add(pathLength);
+    pathLengths[Math.min(pathLength, MAX_PATH_LENGTH)].increment();
+  }
+
+  /**
+   * An immutable copy of the counters together with the shape of the tree at
+   * the time of the copy.
+   */
+  public static final class Snapshot {
+    public final long rotations;
+    public final long insertCase1;
+    public final long insertCase2;
+    public final long insertCase3;
+    public final long insertCase3Recursions;
+    public final long searches;
+    public final long comparisons;
+    // pathLengths[i] counts the searches that visited i nodes, the last
+    // bucket also counts every longer search
+    public final long[] pathLengths;
+    public final int size;
+    public final int height;
+    public final int blackHeight;
+
+    Snapshot(TreeMetrics metrics, int size, int height, int blackHeight) {
+      this.rotations = metrics.rotations.sum();
+      this.insertCase1 = metrics.insertCase1.sum();
+      this.insertCase2 = metrics.insertCase2.sum();
+      this.insertCase3 = metrics.insertCase3.sum();
+      this.insertCase3Recursions = metrics.insertCase3Recursions.sum();
+      this.searches = metrics.searches.sum();
+      this.comparisons = metrics.comparisons.sum();
+      this.pathLengths = new long[MAX_PATH_LENGTH + 1];
+      for (int i = 0; i < pathLengths.length; i++) pathLengths[i] = metrics.pathLengths[i].sum();
+      this.size = size;
+      this.height = height;
+      this.blackHeight = blackHeight;
+    }
+
+    /**
+     * @return the average number of compareTo calls per search
+     */
+    public double comparisonsPerSearch() {
+      return searches == 0 ? 0 : (double) comparisons / searches;
+    }
+
+    /**
+     * @return the length of the longest search path seen so far
+     */
+    public int maxPathLength() {
+      for (int i = pathLengths.length - 1; i > 0; i--) {
+        if (pathLengths[i] != 0) return i;
+      }
+      return 0;
+    }
+
+    @Override
+    public String toString() {
+      return "size: " + size + ", height: " + height + ", black height: " + blackHeight
+          + "\nrotations: " + rotations
+          + "\ninsert fixups: case 1: " + insertCase1 + ", case 2: " + insertCase2
+          + ", case 3: " + insertCase3 + " (" + insertCase3Recursions + " recursions)"
+          + "\nsearches: " + searches + ", comparisons per search: "
+          + String.format("%.2f", comparisonsPerSearch()) + ", longest path: " + maxPathLength();
+    }
+  }
+
+  /**
+   * JFR event with the counters of one tree, emitted once per period for every
+   * tree with metrics enabled while a recording is running.
+   */
+  @Name("redblacktree.TreeMetrics")
+  @Label("Red-Black Tree Metrics")
+  @Category("Red-Black Tree")
+  @Description("Counters of rotations, insert fixup cases and search paths of a RedBlackTree")
+  @Period("1 s")
+  @StackTrace(false)
+  static final class MetricsEvent extends Event {
+    @Label("Tree Identity")
+    int treeIdentity;
+    @Label("Size")
+    int size;
+    @Label("Black Height")
+    int blackHeight;
+    @Label("Rotations")
+    long rotations;
+    @Label("Insert Case 1")
+    long insertCase1;
+    @Label("Insert Case 2")
+    long insertCase2;
+    @Label("Insert Case 3")
+    long insertCase3;
+    @Label("Searches")
+    long searches;
+    @Label("Comparisons")
+    long comparisons;
+    @Label("Longest Search Path")
+    int maxPathLength;
+  }
+
+  /**
+   * Emits a MetricsEvent for a tree. Height is left out because it takes a
+   * walk over the whole tree; the longest search path stands in for it.
+   */
+  void emit(Object tree, int size, int blackHeight) {
+    MetricsEvent event = new MetricsEvent();
+    event.treeIdentity = System.identityHashCode(tree);
+    event.size = size;
+    event.blackHeight = blackHeight;
+    event.rotations = rotations.sum();
+    event.insertCase1 = insertCase1.sum();
+    event.insertCase2 = insertCase2.sum();
+    event.insertCase3 = insertCase3.sum();
+    event.searches = searches.sum();
+    event.comparisons = comparisons.sum();
+    for (int i = MAX_PATH_LENGTH; i > 0; i--) {
+      if (pathLengths[i].sum() != 0) {
+        event.maxPathLength = i;
+        break;
+      }
+    }
+    event.commit();
+  }
+}
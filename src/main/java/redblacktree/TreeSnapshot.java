@@ -0,0 +1,277 @@
+package redblacktree;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.zip.CRC32C;
+
+/**
+ * The binary snapshot file of a tree. All numbers are big-endian ints:
+ *   header   magic "RBTS", format version, number of values
+ *   records  per value in ascending order: length of its encoding, encoding
+ *   trailer  CRC32C of the header and all records
+ * The file is written to a temporary sibling first and then moved over the
+ * target, so a crash while writing leaves the previous snapshot intact.
+ * The Reader maps the file into memory in windows of up to 1 GB and decodes
+ * the records in order, so a tree can be bulk built from it in one pass.
+ */
+final class TreeSnapshot {
+
+  static final int MAGIC = 0x52425453; // "RBTS"
+  static final int VERSION = 1;
+  static final int HEADER_BYTES = 3 * Integer.BYTES;
+  static final int TRAILER_BYTES = Integer.BYTES;
+  // the size of one memory-mapped window of the Reader
+  static final int WINDOW_BYTES = 1 << 30;
+  private static final int WRITE_BUFFER_BYTES = 1 << 16;
+
+  private TreeSnapshot() {
+  }
+
+  /**
+   * Writes count values in ascending order to a snapshot file at path,
+   * replacing any file that is already there. The temporary file is deleted
+   * when writing fails, and the directory is synced after the move so the
+   * new file survives a crash of the machine.
+   * @throws ConcurrentModificationException when values does not yield exactly count values
+   */
+  static <T> void write(Path path, Iterator<? extends T> values, int count, KeyCodec<? super T> codec)
+      throws IOException {
+    write(path, values, count, codec, false);
+  }
+
+  /**
+   * Writes a snapshot file like write. When durable is true, the file must
+   * replace the old one atomically and the directory must be synced: if the
+   * file system cannot do either, this fails instead of falling back, since
+   * a caller that discards data once the snapshot is written would lose it.
+   * @throws AtomicMoveNotSupportedException when durable is true and the
+   *      file cannot be moved atomically
+   */
+  static <T> void write(Path path, Iterator<? extends T> values, int count, KeyCodec<? super T> codec,
+      boolean durable) throws IOException {
+    Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+    try {
+      writeFile(temporary, values, count, codec);
+      try {
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        if (durable) throw e;
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } catch (IOException | RuntimeException | Error e) {
+      try {
+        Files.deleteIfExists(temporary);
+      } catch (IOException suppressed) {
+        e.addSuppressed(suppressed);
+      }
+      throw e;
+    }
+    syncDirectory(path.toAbsolutePath().getParent(), durable);
+  }
+
+  /**
+   * Writes the snapshot file itself and syncs it to the disk.
+   */
+  private static <T> void writeFile(Path file, Iterator<? extends T> values, int count, KeyCodec<? super T> codec)
+      throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES);
+      CRC32C checksum = new CRC32C();
+      buffer.putInt(MAGIC).putInt(VERSION).putInt(count);
+      int written = 0;
+      while (values.hasNext()) {
+        byte[] bytes = codec.encode(values.next());
+        if (buffer.remaining() < Integer.BYTES) flush(channel, buffer, checksum);
+        buffer.putInt(bytes.length);
+        for (int offset = 0; offset < bytes.length; ) {
+          if (!buffer.hasRemaining()) flush(channel, buffer, checksum);
+          int length = Math.min(buffer.remaining(), bytes.length - offset);
+          buffer.put(bytes, offset, length);
+          offset += length;
+        }
+        written++;
+      }
+      if (written != count) throw new ConcurrentModificationException(
+          "The tree changed while its snapshot was written.");
+      flush(channel, buffer, checksum);
+      buffer.putInt((int) checksum.getValue());
+      flush(channel, buffer, null);
+      channel.force(true);
+    }
+  }
+
+  /**
+   * Syncs a directory, which makes the renames within it durable. Some
+   * platforms cannot open a directory for reading; there the rename is left
+   * to the file system unless required is true.
+   */
+  private static void syncDirectory(Path directory, boolean required) throws IOException {
+    FileChannel channel;
+    try {
+      channel = FileChannel.open(directory, StandardOpenOption.READ);
+    } catch (IOException | UnsupportedOperationException e) {
+      if (required) throw new IOException("Cannot sync the directory " + directory, e);
+      return;
+    }
+    try (FileChannel open = channel) {
+      open.force(true);
+    }
+  }
+
+  /**
+   * Writes the filled part of buffer to channel, adding it to checksum unless
+   * checksum is null, and clears the buffer.
+   */
+  private static void flush(FileChannel channel, ByteBuffer buffer, CRC32C checksum) throws IOException {
+    buffer.flip();
+    if (checksum != null) checksum.update(buffer.duplicate());
+    while (buffer.hasRemaining()) channel.write(buffer);
+    buffer.clear();
+  }
+
+  /**
+   * Iterator over the values of a snapshot file, read through a memory map.
+   * The checksum is computed while the values are read and compared by
+   * verify, after the last value. Since Iterator cannot throw IOException,
+   * next reports read errors and corrupt records as UncheckedIOException.
+   */
+  static final class Reader<T> implements Iterator<T>, Closeable {
+    private final Path path;
+    private final KeyCodec<T> codec;
+    private final int windowBytes;
+    private final FileChannel channel;
+    private final long fileSize;
+    private final CRC32C checksum = new CRC32C();
+    private MappedByteBuffer window; // null before the first map
+    private long windowStart; // the file offset of the start of window
+    private final int count;
+    private int read = 0; // the number of values returned by next
+
+    /**
+     * Opens a snapshot file and checks its header.
+     * @param windowBytes the size of the memory-mapped windows
+     * @throws IOException when the file cannot be read or is not a snapshot
+     */
+    Reader(Path path, KeyCodec<T> codec, int windowBytes) throws IOException {
+      this.path = path;
+      this.codec = codec;
+      this.windowBytes = windowBytes;
+      this.channel = FileChannel.open(path, StandardOpenOption.READ);
+      try {
+        this.fileSize = channel.size();
+        if (fileSize < HEADER_BYTES + TRAILER_BYTES) throw corrupt("the file is too short");
+        ensure(HEADER_BYTES);
+        checksumNext(HEADER_BYTES);
+        if (window.getInt() != MAGIC) throw corrupt("the file is not a snapshot");
+        int version = window.getInt();
+        if (version != VERSION) throw corrupt("unsupported version " + version);
+        this.count = window.getInt();
+        if (count < 0) throw corrupt("negative number of values");
+      } catch (IOException | RuntimeException e) {
+        channel.close();
+        throw e;
+      }
+    }
+
+    /**
+     * @return the number of values in the snapshot
+     */
+    int count() {
+      return count;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return read < count;
+    }
+
+    @Override
+    public T next() {
+      if (read == count) throw new NoSuchElementException();
+      try {
+        ensure(Integer.BYTES);
+        checksumNext(Integer.BYTES);
+        int length = window.getInt();
+        if (length < 0 || length > fileSize - TRAILER_BYTES - (windowStart + window.position())) {
+          throw corrupt("record " + read + " has an invalid length of " + length);
+        }
+        ensure(length);
+        checksumNext(length);
+        int start = window.position();
+        int limit = window.limit();
+        window.limit(start + length);
+        T value;
+        try {
+          value = codec.decode(window);
+        } catch (RuntimeException e) {
+          throw (IOException) corrupt("record " + read + " cannot be decoded").initCause(e);
+        }
+        window.limit(limit).position(start + length);
+        read++;
+        return value;
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    /**
+     * Checks, after the last value was read, that the trailer ends the file
+     * and holds the checksum of everything before it.
+     * @throws IOException when the checksum does not match
+     */
+    void verify() throws IOException {
+      if (read != count) throw new IllegalStateException("Not all values were read.");
+      ensure(TRAILER_BYTES);
+      if (windowStart + window.position() + TRAILER_BYTES != fileSize) {
+        throw corrupt("unexpected bytes after the last record");
+      }
+      if (window.getInt() != (int) checksum.getValue()) throw corrupt("checksum mismatch");
+    }
+
+    @Override
+    public void close() throws IOException {
+      channel.close();
+    }
+
+    /**
+     * Maps a new window starting at the current position unless the current
+     * window holds at least bytes more bytes.
+     */
+    private void ensure(int bytes) throws IOException {
+      if (window != null && window.remaining() >= bytes) return;
+      long position = window == null ? 0 : windowStart + window.position();
+      if (fileSize - position < bytes) throw corrupt("the file is truncated");
+      long length = Math.min(fileSize - position, Math.max(windowBytes, bytes));
+      window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+      windowStart = position;
+    }
+
+    /**
+     * Adds the next bytes of the window to the checksum without consuming them.
+     */
+    private void checksumNext(int bytes) {
+      int start = window.position();
+      int limit = window.limit();
+      window.limit(start + bytes);
+      checksum.update(window);
+      window.limit(limit).position(start);
+    }
+
+    private IOException corrupt(String reason) {
+      return new IOException("Corrupt snapshot " + path + ": " + reason);
+    }
+  }
+}
@@ -0,0 +1,132 @@
+package redblacktree;
+
+/*** JUnit imports ***/
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+/*** JUnit imports end  ***/
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * JUnit tests for ComparatorRedBlackTree.
+ */
+public class ComparatorRedBlackTreeTest {
+
+  /**
+   * Random strings over an alphabet with shared prefixes, the zero character
+   * and characters that do not fit into a byte, so that many comparisons are
+   * decided by the comparator rather than the prefixes.
+   */
+  private static String randomString(Random random) {
+    char[] alphabet = { 'a', 'b', '\0', 'þ', 'ÿ', 'Ā', '￿' };
+    StringBuilder sb = new StringBuilder(random.nextBoolean() ? "https://" : "");
+    int length = random.nextInt(12);
+    for (int i = 0; i < length; i++) sb.append(alphabet[random.nextInt(alphabet.length)]);
+    return sb.toString();
+  }
+
+  private static void assertMatchesTreeSet(ComparatorRedBlackTree<String> tree) {
+    TreeSet<String> expected = new TreeSet<>(tree.comparator());
+    Random random = new Random(400);
+    for (int i = 0; i < 20000; i++) {
+      String value = randomString(random);
+      if (expected.add(value)) {
+        assertTrue(tree.tryInsert(value));
+      } else if (random.nextBoolean()) {
+        assertFalse(tree.tryInsert(value));
+      } else {
+        assertTrue(tree.tryRemove(value));
+        assertFalse(tree.contains(value));
+        expected.remove(value);
+      }
+      if (i % 100 == 0) assertTrue(tree.checkedBlackHeight() > 0);
+      assertEquals(expected.size(), tree.size());
+    }
+    assertTrue(tree.checkedBlackHeight() > 0);
+    List<String> values = new ArrayList<>();
+    for (String value : tree) values.add(value);
+    assertEquals(new ArrayList<>(expected), values);
+  }
+
+  @Test
+  public void testComparatorMatchesTreeSet() {
+    assertMatchesTreeSet(new ComparatorRedBlackTree<>(Comparator.<String>naturalOrder()));
+  }
+
+  @Test
+  public void testStringPrefixMatchesTreeSet() {
+    assertMatchesTreeSet(new ComparatorRedBlackTree<>(Comparator.<String>naturalOrder(),
+        ComparatorRedBlackTree.STRING_PREFIX));
+  }
+
+  @Test
+  public void testReversedComparator() {
+    ComparatorRedBlackTree<String> tree = new ComparatorRedBlackTree<>(Comparator.<String>reverseOrder());
+    tree.insert("a");
+    tree.insert("c");
+    tree.insert("b");
+    assertEquals("[ c, b, a ]", tree.toInOrderString());
+  }
+
+  @Test
+  public void testBytesPrefix() {
+    ComparatorRedBlackTree<byte[]> tree = new ComparatorRedBlackTree<>(Arrays::compareUnsigned,
+        ComparatorRedBlackTree.BYTES_PREFIX);
+    Random random = new Random(400);
+    List<byte[]> inserted = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      byte[] value = new byte[random.nextInt(12)];
+      for (int j = 0; j < value.length; j++) value[j] = (byte) (random.nextInt(4) * 85 - 128);
+      if (tree.tryInsert(value)) inserted.add(value);
+    }
+    assertTrue(tree.checkedBlackHeight() > 0);
+    inserted.sort(Arrays::compareUnsigned);
+    int index = 0;
+    for (byte[] value : tree) assertEquals(0, Arrays.compareUnsigned(inserted.get(index++), value));
+    assertEquals(inserted.size(), index);
+    for (byte[] value : inserted) assertTrue(tree.contains(value.clone()));
+  }
+
+  @Test
+  public void testPrefixTiesFallBackToComparator() {
+    ComparatorRedBlackTree<String> tree = new ComparatorRedBlackTree<>(Comparator.<String>naturalOrder(),
+        ComparatorRedBlackTree.STRING_PREFIX);
+    // each pair has the same prefix
+    String[] values = { "a", "a\0", "abcdefgh", "abcdefghi", "ÿ", "Ā", "ÿĀ" };
+    for (String value : values) tree.insert(value);
+    Arrays.sort(values);
+    assertEquals(Arrays.toString(values).replace("[", "[ ").replace("]", " ]"), tree.toInOrderString());
+    for (String value : values) assertTrue(tree.remove(value));
+    assertTrue(tree.isEmpty());
+  }
+
+  @Test
+  public void testByKey() {
+    ComparatorRedBlackTree<String[]> tree = ComparatorRedBlackTree.byKey(pair -> pair[0],
+        ComparatorRedBlackTree.STRING_PREFIX);
+    tree.insert(new String[] { "https://b", "2" });
+    tree.insert(new String[] { "https://a", "1" });
+    assertFalse(tree.tryInsert(new String[] { "https://b", "3" }));
+    assertTrue(tree.contains(new String[] { "https://a", "ignored" }));
+    assertEquals("1", tree.iterator().next()[1]);
+    assertTrue(tree.checkedBlackHeight() > 0);
+  }
+
+  @Test
+  public void testDuplicatesMissesAndNull() {
+    ComparatorRedBlackTree<String> tree = ComparatorRedBlackTree.byKey(String::length);
+    tree.insert("ab");
+    assertThrows(IllegalArgumentException.class, () -> tree.insert("cd"));
+    assertThrows(IllegalArgumentException.class, () -> tree.remove("abc"));
+    assertThrows(NullPointerException.class, () -> tree.insert(null));
+    assertThrows(NullPointerException.class, () -> new ComparatorRedBlackTree<String>(null));
+  }
+}
@@ -0,0 +1,146 @@
+package redblacktree;
+
+/*** JUnit imports ***/
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+/*** JUnit imports end  ***/
+
+/**
+ * JUnit tests for ConcurrentRedBlackTree.
+ */
+public class ConcurrentRedBlackTreeTest extends RedBlackTreeTest {
+
+  /**
+   * These test methods are JUnit tests. The tests inherited from RedBlackTree
+   * run against a ConcurrentRedBlackTree as well.
+   */
+  @BeforeEach
+  @Override
+  public void createInstance() {
+    rbt = new ConcurrentRedBlackTree<Integer>();
+  }
+
+  @Test
+  public void testConcurrentReadersAndWriters() throws InterruptedException {
+    ConcurrentRedBlackTree<Integer> tree = new ConcurrentRedBlackTree<>();
+    for (int i = 0; i < 1000; i += 2) tree.insert(i);
+    Thread[] threads = new Thread[4];
+    boolean[] readersFailed = new boolean[1];
+    for (int t = 0; t < threads.length; t++) {
+      int id = t;
+      threads[t] = new Thread(() -> {
+        java.util.Random random = new java.util.Random(id);
+        for (int i = 0; i < 50000; i++) {
+          int value = random.nextInt(1000);
+          if (id == 0) {
+            // the writer toggles odd values, even values are never touched
+            if (value % 2 == 1 && !tree.tryInsert(value)) tree.tryRemove(value);
+          } else if (value % 2 == 0 && !tree.contains(value)) {
+            readersFailed[0] = true;
+          }
+        }
+      });
+      threads[t].start();
+    }
+    for (Thread thread : threads) thread.join();
+    assertEquals(false, readersFailed[0]);
+    int evens = 0;
+    for (int value : tree) if (value % 2 == 0) evens++;
+    assertEquals(500, evens);
+  }
+
+  @Test
+  public void testRemoveIfAlongsideOptimisticReads() throws InterruptedException {
+    ConcurrentRedBlackTree<Integer> tree = new ConcurrentRedBlackTree<>();
+    for (int i = 0; i < 1000; i++) tree.insert(i);
+    boolean[] readersFailed = new boolean[1];
+    Thread writer = new Thread(() -> {
+      for (int round = 0; round < 200; round++) {
+        // removeIf and the iterator removals rotate the tree under the write lock
+        tree.removeIf(value -> value < 1000 && value % 2 == 1);
+        java.util.Iterator<Integer> iterator = tree.iterator();
+        iterator.next();
+        iterator.remove();
+        tree.add(0);
+        for (int i = 1; i < 1000; i += 2) tree.add(i);
+      }
+    });
+    // a second writer toggles the values from 1000 on and remembers what it left
+    java.util.TreeSet<Integer> toggled = new java.util.TreeSet<>();
+    Thread toggler = new Thread(() -> {
+      java.util.Random random = new java.util.Random(-1);
+      while (writer.isAlive()) {
+        int value = 1000 + random.nextInt(1000);
+        if (tree.tryInsert(value)) {
+          toggled.add(value);
+        } else {
+          tree.tryRemove(value);
+          toggled.remove(value);
+        }
+      }
+    });
+    Thread[] readers = new Thread[3];
+    for (int t = 0; t < readers.length; t++) {
+      int id = t;
+      readers[t] = new Thread(() -> {
+        java.util.Random random = new java.util.Random(id);
+        while (writer.isAlive()) {
+          int value = 2 + 2 * random.nextInt(499);
+          if (!tree.contains(value) || tree.contains(-value)) readersFailed[0] = true;
+        }
+      });
+    }
+    writer.start();
+    toggler.start();
+    for (Thread reader : readers) reader.start();
+    writer.join();
+    toggler.join();
+    for (Thread reader : readers) reader.join();
+    assertEquals(false, readersFailed[0]);
+    java.util.TreeSet<Integer> expected = new java.util.TreeSet<>(toggled);
+    for (int i = 0; i < 1000; i++) expected.add(i);
+    assertValidTree(tree, expected);
+  }
+
+  @Test
+  public void testSplitJoinAndSetOperationsReturnConcurrentTrees() {
+    ConcurrentRedBlackTree<Integer> tree = new ConcurrentRedBlackTree<>();
+    for (int i = 0; i < 100; i++) tree.insert(i);
+    RedBlackTree<Integer> upper = tree.split(50);
+    assertEquals(ConcurrentRedBlackTree.class, upper.getClass());
+    upper.remove(50);
+    RedBlackTree<Integer> joined = RedBlackTree.join(tree, 50, upper);
+    assertEquals(ConcurrentRedBlackTree.class, joined.getClass());
+    ConcurrentRedBlackTree<Integer> other = new ConcurrentRedBlackTree<>();
+    for (int i = 50; i < 150; i++) other.insert(i);
+    RedBlackTree<Integer> union = RedBlackTree.union(joined, other);
+    assertEquals(ConcurrentRedBlackTree.class, union.getClass());
+    assertEquals(150, union.size());
+    assertEquals(0, joined.size() + other.size());
+  }
+
+  @Test
+  public void testSetOperationAlongsideWriter() throws InterruptedException {
+    for (int round = 0; round < 100; round++) {
+      ConcurrentRedBlackTree<Integer> a = new ConcurrentRedBlackTree<>();
+      ConcurrentRedBlackTree<Integer> b = new ConcurrentRedBlackTree<>();
+      for (int i = 0; i < 5000; i++) {
+        a.insert(2 * i);
+        b.insert(2 * i + 1);
+      }
+      // every odd value from 10001 on ends up either in the union or in a
+      Thread writer = new Thread(() -> {
+        for (int i = 0; i < 400; i++) a.insert(10001 + 2 * i);
+      });
+      writer.start();
+      RedBlackTree<Integer> union = RedBlackTree.union(a, b);
+      writer.join();
+      java.util.TreeSet<Integer> values = new java.util.TreeSet<>(union);
+      values.addAll(a);
+      assertEquals(union.size() + a.size(), values.size());
+      assertEquals(10400, values.size());
+      assertValidTree(union, new java.util.TreeSet<>(union));
+    }
+  }
+}
@@ -0,0 +1,173 @@
+package redblacktree;
+
+/*** JUnit imports ***/
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+/*** JUnit imports end  ***/
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * JUnit tests for DurableRedBlackTree.
+ */
+public class DurableRedBlackTreeTest {
+
+  @TempDir
+  Path directory;
+
+  /**
+   * Applies random inserts and removes to tree and expected alike.
+   */
+  private static void randomOperations(DurableRedBlackTree<Integer> tree, TreeSet<Integer> expected, int count) {
+    Random random = new Random(count);
+    for (int i = 0; i < count; i++) {
+      int value = random.nextInt(500);
+      if (random.nextInt(3) > 0) {
+        assertEquals(expected.add(value), tree.tryInsert(value));
+      } else {
+        assertEquals(expected.remove(value), tree.tryRemove(value));
+      }
+    }
+  }
+
+  private static void assertContents(TreeSet<Integer> expected, DurableRedBlackTree<Integer> tree) {
+    List<Integer> values = new ArrayList<>();
+    for (int value : tree) values.add(value);
+    assertEquals(new ArrayList<>(expected), values);
+    assertEquals(expected.size(), tree.size());
+  }
+
+  @Test
+  public void testRecoversWithEverySyncPolicy() throws Exception {
+    DurableRedBlackTree.SyncPolicy[] policies = { DurableRedBlackTree.SyncPolicy.EVERY_OPERATION,
+        DurableRedBlackTree.SyncPolicy.OS, DurableRedBlackTree.SyncPolicy.everyMillis(5) };
+    for (DurableRedBlackTree.SyncPolicy policy : policies) {
+      Path treeDirectory = directory.resolve(String.valueOf(policy.intervalMillis));
+      TreeSet<Integer> expected = new TreeSet<>();
+      try (DurableRedBlackTree<Integer> tree = new DurableRedBlackTree<>(treeDirectory, KeyCodec.INTEGER, policy)) {
+        randomOperations(tree, expected, 2000);
+      }
+      try (DurableRedBlackTree<Integer> tree = new DurableRedBlackTree<>(treeDirectory, KeyCodec.INTEGER, policy)) {
+        assertContents(expected, tree);
+        tree.insert(-1);
+        expected.add(-1);
+      }
+      try (DurableRedBlackTree<Integer> tree = new DurableRedBlackTree<>(treeDirectory, KeyCodec.INTEGER, policy)) {
+        assertContents(expected, tree);
+      }
+    }
+  }
+
+  @Test
+  public void testCompactionAndTornLog() throws Exception {
+    TreeSet<Integer> expected = new TreeSet<>();
+    try (DurableRedBlackTree<Integer> tree = new DurableRedBlackTree<>(directory, KeyCodec.INTEGER,
+        DurableRedBlackTree.SyncPolicy.EVERY_OPERATION, 1000)) {
+      randomOperations(tree, expected, 3000);
+      assertTrue(Files.exists(directory.resolve(DurableRedBlackTree.CHECKPOINT_FILE)));
+      assertTrue(Files.size(directory.resolve(DurableRedBlackTree.LOG_FILE)) < 1000);
+    }
+    // a record cut off by a crash is dropped along with anything after it
+    Path log = directory.resolve(DurableRedBlackTree.LOG_FILE);
+    long validBytes = Files.size(log);
+    Files.write(log, new byte[] { 0, 0, 0, 4, 1, 0, 0 }, StandardOpenOption.APPEND);
+    try (DurableRedBlackTree<Integer> tree = new DurableRedBlackTree<>(directory, KeyCodec.INTEGER,
+        DurableRedBlackTree.SyncPolicy.EVERY_OPERATION, 1000)) {
+      assertContents(expected, tree);
+      assertEquals(validBytes, Files.size(log));
+    }
+  }
+
+  @Test
+  public void testCrashDuringCheckpointReplaysLog() throws Exception {
+    TreeSet<Integer> expected = new TreeSet<>();
+    Path log = directory.resolve(DurableRedBlackTree.LOG_FILE);
+    byte[] logBeforeCheckpoint;
+    try (DurableRedBlackTree<Integer> tree = new DurableRedBlackTree<>(directory, KeyCodec.INTEGER,
+        DurableRedBlackTree.SyncPolicy.EVERY_OPERATION)) {
+      randomOperations(tree, expected, 1000);
+      logBeforeCheckpoint = Files.readAllBytes(log);
+      tree.checkpoint();
+      assertEquals(0, Files.size(log));
+    }
+    // the checkpoint was written but the log was not emptied
+    Files.write(log, logBeforeCheckpoint);
+    try (DurableRedBlackTree<Integer> tree = new DurableRedBlackTree<>(directory, KeyCodec.INTEGER,
+        DurableRedBlackTree.SyncPolicy.EVERY_OPERATION)) {
+      assertContents(expected, tree);
+    }
+  }
+
+  @Test
+  public void testConcurrentWritersShareSyncs() throws Exception {
+    try (DurableRedBlackTree<Integer> tree = new DurableRedBlackTree<>(directory, KeyCodec.INTEGER,
+        DurableRedBlackTree.SyncPolicy.EVERY_OPERATION)) {
+      Thread[] threads = new Thread[4];
+      for (int t = 0; t < threads.length; t++) {
+        int id = t;
+        threads[t] = new Thread(() -> {
+          for (int i = 0; i < 500; i++) tree.insert(i * threads.length + id);
+        });
+        threads[t].start();
+      }
+      for (Thread thread : threads) thread.join();
+      assertEquals(2000, tree.size());
+    }
+    try (DurableRedBlackTree<Integer> tree = new DurableRedBlackTree<>(directory, KeyCodec.INTEGER,
+        DurableRedBlackTree.SyncPolicy.OS)) {
+      assertEquals(2000, tree.size());
+      for (int i = 0; i < 2000; i++) assertTrue(tree.contains(i));
+    }
+  }
+
+  @Test
+  public void testDuplicatesMissesAndClose() throws Exception {
+    DurableRedBlackTree<String> tree = new DurableRedBlackTree<>(directory, KeyCodec.STRING,
+        DurableRedBlackTree.SyncPolicy.EVERY_OPERATION);
+    tree.insert("b");
+    assertThrows(IllegalArgumentException.class, () -> tree.insert("b"));
+    assertThrows(IllegalArgumentException.class, () -> tree.remove("a"));
+    assertThrows(NullPointerException.class, () -> tree.insert(null));
+    assertFalse(tree.contains("a"));
+    tree.close();
+    assertThrows(IllegalStateException.class, () -> tree.insert("c"));
+    assertEquals("[ b ]", tree.toInOrderString());
+  }
+
+  @Test
+  public void testValueThatCannotBeEncodedIsNotApplied() throws Exception {
+    KeyCodec<String> failing = new KeyCodec<String>() {
+      @Override
+      public byte[] encode(String value) {
+        if (value.equals("bad")) throw new IllegalStateException("cannot encode " + value);
+        return KeyCodec.STRING.encode(value);
+      }
+
+      @Override
+      public String decode(java.nio.ByteBuffer buffer) {
+        return KeyCodec.STRING.decode(buffer);
+      }
+    };
+    try (DurableRedBlackTree<String> tree = new DurableRedBlackTree<>(directory, failing,
+        DurableRedBlackTree.SyncPolicy.EVERY_OPERATION)) {
+      tree.insert("a");
+      assertThrows(IllegalStateException.class, () -> tree.insert("bad"));
+      assertFalse(tree.contains("bad"));
+      tree.insert("c");
+    }
+    try (DurableRedBlackTree<String> tree = new DurableRedBlackTree<>(directory, failing,
+        DurableRedBlackTree.SyncPolicy.EVERY_OPERATION)) {
+      assertEquals("[ a, c ]", tree.toInOrderString());
+    }
+  }
+}
@@ -0,0 +1,89 @@
+package redblacktree;
+
+/*** JUnit imports ***/
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+/*** JUnit imports end  ***/
+
+/**
+ * JUnit tests for IntRedBlackTree.
+ */
+public class IntRedBlackTreeTest {
+
+  /**
+   * These test methods are JUnit tests.
+   */
+  protected IntRedBlackTree tree = null;
+
+  @BeforeEach
+  public void createInstance() {
+    tree = new IntRedBlackTree();
+  }
+
+  @Test
+  public void testInsertRemoveKeepsProperties() {
+    java.util.Random random = new java.util.Random(400);
+    java.util.TreeSet<Integer> expected = new java.util.TreeSet<>();
+    for (int i = 0; i < 20000; i++) {
+      int value = random.nextInt(2000);
+      if (expected.add(value)) {
+        assertTrue(tree.insert(value));
+      } else {
+        assertTrue(tree.remove(value));
+        expected.remove(value);
+      }
+      assertTrue(tree.checkedBlackHeight() > 0);
+      assertEquals(expected.size(), tree.size());
+    }
+    assertEquals(expected.toString().replace("[", "[ ").replace("]", " ]"), tree.toInOrderString());
+    // removed slots are reused rather than growing the arrays
+    assertTrue(tree.capacity() < 4000);
+  }
+
+  @Test
+  public void testDuplicatesAndMisses() {
+    tree.insert(5);
+    tree.insert(-3);
+    assertThrows(IllegalArgumentException.class, () -> tree.insert(5));
+    assertThrows(IllegalArgumentException.class, () -> tree.remove(7));
+    assertTrue(tree.contains(-3));
+    assertFalse(tree.contains(7));
+    assertEquals("[ -3, 5 ]", tree.toInOrderString());
+  }
+
+  @Test
+  public void testFreeze() {
+    java.util.Random random = new java.util.Random(400);
+    java.util.TreeSet<Integer> expected = new java.util.TreeSet<>();
+    for (int value : new int[] { Integer.MIN_VALUE, Integer.MAX_VALUE, -1, 0 }) {
+      expected.add(value);
+      tree.insert(value);
+    }
+    for (int i = 0; i < 1000; i++) {
+      int value = random.nextInt();
+      if (expected.add(value)) tree.insert(value);
+    }
+    FrozenIntRedBlackTree frozen = tree.freeze();
+    assertEquals(expected.size(), frozen.size());
+    int[] probes = new int[3000];
+    for (int i = 0; i < probes.length; i++) probes[i] = random.nextInt();
+    probes[0] = Integer.MIN_VALUE;
+    probes[1] = Integer.MAX_VALUE;
+    for (int i = 2; i < 1000; i++) probes[i] = expected.higher(probes[i] | Integer.MIN_VALUE);
+    for (int key : probes) {
+      assertEquals(expected.contains(key), frozen.contains(key));
+      assertEquals(expected.headSet(key).size(), frozen.rank(key));
+      if (expected.floor(key) != null) assertEquals((int) expected.floor(key), frozen.floor(key));
+      if (expected.ceiling(key) != null) assertEquals((int) expected.ceiling(key), frozen.ceiling(key));
+      if (expected.lower(key) != null) assertEquals((int) expected.lower(key), frozen.lower(key));
+      if (expected.higher(key) != null) assertEquals((int) expected.higher(key), frozen.higher(key));
+    }
+    assertThrows(java.util.NoSuchElementException.class, () -> frozen.lower(Integer.MIN_VALUE));
+    assertThrows(java.util.NoSuchElementException.class, () -> frozen.higher(Integer.MAX_VALUE));
+    assertFalse(new IntRedBlackTree().freeze().contains(0));
+  }
+}
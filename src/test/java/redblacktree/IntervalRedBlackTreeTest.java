@@ -0,0 +1,139 @@
+package redblacktree;
+
+/*** JUnit imports ***/
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+/*** JUnit imports end  ***/
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import redblacktree.IntervalRedBlackTree.Interval;
+
+/**
+ * JUnit tests for IntervalRedBlackTree.
+ */
+public class IntervalRedBlackTreeTest {
+
+  @Test
+  public void testQueriesMatchFullScan() {
+    IntervalRedBlackTree tree = new IntervalRedBlackTree();
+    TreeSet<Interval> expected = new TreeSet<>();
+    Random random = new Random(400);
+    for (int i = 0; i < 5000; i++) {
+      long start = random.nextInt(10000);
+      // mostly short intervals with a few long ones
+      Interval interval = new Interval(start, start + (random.nextInt(10) == 0 ? random.nextInt(3000) : random.nextInt(50)));
+      if (random.nextInt(4) == 0 && !expected.isEmpty()) {
+        Interval removed = expected.ceiling(interval);
+        if (removed == null) removed = expected.first();
+        expected.remove(removed);
+        assertTrue(tree.remove(removed));
+      } else if (expected.add(interval)) {
+        tree.insert(interval);
+      }
+      if (i % 250 == 0) {
+        assertTrue(tree.maxEndsMatch());
+        for (int query = 0; query < 50; query++) {
+          long from = random.nextInt(11000) - 500;
+          long to = from + random.nextInt(random.nextBoolean() ? 5 : 500);
+          List<Interval> scan = expected.stream().filter(x -> x.overlaps(from, to)).collect(Collectors.toList());
+          assertEquals(scan, tree.overlapping(from, to).collect(Collectors.toList()));
+          assertEquals(expected.stream().filter(x -> x.overlaps(from, from)).collect(Collectors.toList()),
+              tree.stabbing(from).collect(Collectors.toList()));
+          Interval any = tree.anyOverlapping(from, to);
+          if (scan.isEmpty()) {
+            assertNull(any);
+          } else {
+            assertTrue(any.overlaps(from, to) && expected.contains(any));
+          }
+        }
+      }
+    }
+    assertTrue(tree.maxEndsMatch());
+  }
+
+  @Test
+  public void testBulkInsertKeepsMaxEnds() {
+    IntervalRedBlackTree tree = new IntervalRedBlackTree();
+    List<Interval> batch = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) batch.add(new Interval(i, i + (i * 7919) % 100));
+    tree.insertAll(batch);
+    assertTrue(tree.maxEndsMatch());
+    assertEquals(batch.stream().filter(x -> x.overlaps(500, 500)).count(), tree.stabbing(500).count());
+    tree.pollFirst();
+    tree.pollLast();
+    assertTrue(tree.maxEndsMatch());
+  }
+
+  @Test
+  public void testSplitJoinAndSetOperationsKeepMaxEnds() {
+    Random random = new Random(24);
+    TreeSet<Interval> expectedA = new TreeSet<>();
+    TreeSet<Interval> expectedB = new TreeSet<>();
+    IntervalRedBlackTree a = new IntervalRedBlackTree();
+    IntervalRedBlackTree b = new IntervalRedBlackTree();
+    for (int i = 0; i < 3000; i++) {
+      long start = random.nextInt(5000);
+      Interval interval = new Interval(start, start + random.nextInt(random.nextInt(20) == 0 ? 2000 : 20));
+      if (random.nextBoolean()) {
+        if (expectedA.add(interval)) a.insert(interval);
+      } else if (expectedB.add(interval)) {
+        b.insert(interval);
+      }
+    }
+    TreeSet<Interval> expected = new TreeSet<>(expectedA);
+    expected.addAll(expectedB);
+    IntervalRedBlackTree union = (IntervalRedBlackTree) RedBlackTree.union(a, b);
+    assertTrue(union.maxEndsMatch());
+    assertEquals(new ArrayList<>(expected), new ArrayList<>(union));
+
+    Interval key = new Interval(2500, 2500);
+    IntervalRedBlackTree upper = (IntervalRedBlackTree) union.split(key);
+    assertTrue(union.maxEndsMatch() && upper.maxEndsMatch());
+    assertEquals(new ArrayList<>(expected.headSet(key, false)), new ArrayList<>(union));
+    assertEquals(expected.tailSet(key, true).stream().filter(x -> x.overlaps(3000, 3000)).collect(Collectors.toList()),
+        upper.stabbing(3000).collect(Collectors.toList()));
+    upper.tryRemove(key);
+    IntervalRedBlackTree joined = (IntervalRedBlackTree) RedBlackTree.join(union, key, upper);
+    expected.add(key);
+    assertTrue(joined.maxEndsMatch());
+    assertEquals(expected.stream().filter(x -> x.overlaps(2400, 2600)).collect(Collectors.toList()),
+        joined.overlapping(2400, 2600).collect(Collectors.toList()));
+
+    TreeSet<Interval> expectedDifference = new TreeSet<>(expected);
+    expectedDifference.removeAll(expectedB);
+    IntervalRedBlackTree others = new IntervalRedBlackTree();
+    for (Interval interval : expectedB) others.insert(interval);
+    IntervalRedBlackTree difference = (IntervalRedBlackTree) RedBlackTree.difference(joined, others);
+    assertTrue(difference.maxEndsMatch());
+    assertEquals(new ArrayList<>(expectedDifference), new ArrayList<>(difference));
+    assertThrows(IllegalArgumentException.class,
+        () -> RedBlackTree.union(difference, new RedBlackTree<Interval>()));
+  }
+
+  @Test
+  public void testEdgeCases() {
+    IntervalRedBlackTree tree = new IntervalRedBlackTree();
+    assertEquals(0, tree.overlapping(0, 10).count());
+    assertNull(tree.anyOverlapping(0, 10));
+    tree.insert(new Interval(Long.MIN_VALUE, Long.MAX_VALUE));
+    tree.insert(new Interval(5, 5));
+    tree.insert(new Interval(5, 9));
+    assertEquals("[[-9223372036854775808, 9223372036854775807], [5, 5], [5, 9]]",
+        tree.stabbing(5).collect(Collectors.toList()).toString());
+    assertEquals(2, tree.overlapping(6, 6).count());
+    assertThrows(IllegalArgumentException.class, () -> new Interval(2, 1));
+    assertThrows(IllegalArgumentException.class, () -> tree.overlapping(2, 1));
+    Iterator<Interval> results = tree.overlapping(0, 10).iterator();
+    results.next();
+    tree.insert(new Interval(7, 8));
+    assertThrows(java.util.ConcurrentModificationException.class, () -> results.next());
+  }
+}
@@ -0,0 +1,57 @@
+package redblacktree;
+
+/*** JUnit imports ***/
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+/*** JUnit imports end  ***/
+
+/**
+ * JUnit tests for LongRedBlackTree.
+ */
+public class LongRedBlackTreeTest {
+
+  /**
+   * These test methods are JUnit tests.
+   */
+  protected LongRedBlackTree tree = null;
+
+  @BeforeEach
+  public void createInstance() {
+    tree = new LongRedBlackTree();
+  }
+
+  @Test
+  public void testInsertRemoveKeepsProperties() {
+    java.util.Random random = new java.util.Random(400);
+    java.util.TreeSet<Long> expected = new java.util.TreeSet<>();
+    for (int i = 0; i < 20000; i++) {
+      long value = random.nextInt(2000) * 3_000_000_000L;
+      if (expected.add(value)) {
+        assertTrue(tree.insert(value));
+      } else {
+        assertTrue(tree.remove(value));
+        expected.remove(value);
+      }
+      assertTrue(tree.checkedBlackHeight() > 0);
+      assertEquals(expected.size(), tree.size());
+    }
+    assertEquals(expected.toString().replace("[", "[ ").replace("]", " ]"), tree.toInOrderString());
+    // removed slots are reused rather than growing the arrays
+    assertTrue(tree.capacity() < 4000);
+  }
+
+  @Test
+  public void testDuplicatesAndMisses() {
+    tree.insert(5L << 40);
+    tree.insert(-3);
+    assertThrows(IllegalArgumentException.class, () -> tree.insert(5L << 40));
+    assertThrows(IllegalArgumentException.class, () -> tree.remove(7));
+    assertTrue(tree.contains(-3));
+    assertFalse(tree.contains(7));
+    assertEquals("[ -3, " + (5L << 40) + " ]", tree.toInOrderString());
+  }
+}
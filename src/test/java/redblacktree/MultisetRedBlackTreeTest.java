@@ -0,0 +1,171 @@
+package redblacktree;
+
+/*** JUnit imports ***/
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+/*** JUnit imports end  ***/
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * JUnit tests for MultisetRedBlackTree.
+ */
+public class MultisetRedBlackTreeTest {
+
+  @Test
+  public void testCountsMatchTreeMap() {
+    MultisetRedBlackTree<Integer> tree = new MultisetRedBlackTree<>();
+    TreeMap<Integer, Integer> expected = new TreeMap<>();
+    long total = 0;
+    Random random = new Random(400);
+    for (int i = 0; i < 20000; i++) {
+      int value = random.nextInt(300);
+      if (random.nextInt(3) > 0) {
+        assertTrue(tree.insert(value));
+        expected.merge(value, 1, Integer::sum);
+        total++;
+      } else {
+        boolean present = expected.containsKey(value);
+        assertEquals(present, tree.tryRemove(value));
+        if (present) {
+          expected.computeIfPresent(value, (key, count) -> count == 1 ? null : count - 1);
+          total--;
+        }
+      }
+      if (i % 500 == 0) {
+        assertTrue(tree.subtreeCountsMatch());
+        assertEquals(expected.size(), tree.distinctSize());
+        assertEquals(expected.size(), tree.size());
+        assertEquals(total, tree.totalSize());
+        long occurrences = 0;
+        for (int key = -1; key <= 300; key++) {
+          assertEquals(expected.getOrDefault(key, 0), tree.count(key));
+          assertEquals(occurrences, tree.weightedRank(key));
+          occurrences += expected.getOrDefault(key, 0);
+        }
+        long index = 0;
+        for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+          assertEquals(entry.getKey(), tree.weightedSelect(index));
+          assertEquals(entry.getKey(), tree.weightedSelect(index + entry.getValue() - 1));
+          index += entry.getValue();
+        }
+      }
+    }
+    assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(tree));
+  }
+
+  @Test
+  public void testRemovingNodesMovesCounts() {
+    MultisetRedBlackTree<Integer> tree = new MultisetRedBlackTree<>();
+    tree.insertAll(Arrays.asList(4, 2, 6, 1, 3, 5, 7, 5, 5, 7, 3));
+    assertEquals(11, tree.totalSize());
+    // removing all occurrences of the root, which has two children
+    int root = tree.select(tree.size() / 2);
+    while (tree.count(root) > 0) tree.remove(root);
+    assertTrue(tree.subtreeCountsMatch());
+    assertEquals(3, tree.count(5));
+    assertEquals(2, tree.count(7));
+    assertEquals(1, tree.pollFirst());
+    // polling removes every occurrence
+    assertEquals(7, tree.pollLast());
+    assertEquals(0, tree.count(7));
+    assertTrue(tree.subtreeCountsMatch());
+    Iterator<Integer> iterator = tree.iterator();
+    while (iterator.hasNext()) {
+      if (iterator.next() == 5) iterator.remove();
+    }
+    assertTrue(tree.subtreeCountsMatch());
+    assertEquals(0, tree.count(5));
+    assertEquals(tree.totalSize(), tree.weightedRank(100));
+  }
+
+  @Test
+  public void testEdgeCases() {
+    MultisetRedBlackTree<String> tree = new MultisetRedBlackTree<>();
+    assertEquals(0, tree.totalSize());
+    assertFalse(tree.tryRemove("a"));
+    assertThrows(IllegalArgumentException.class, () -> tree.remove("a"));
+    assertThrows(IndexOutOfBoundsException.class, () -> tree.weightedSelect(0));
+    assertThrows(NullPointerException.class, () -> tree.insert(null));
+    assertTrue(tree.add("a"));
+    assertTrue(tree.add("a"));
+    assertEquals(2, tree.count("a"));
+    assertEquals(1, tree.size());
+  }
+
+  /**
+   * Builds a multiset and its expected counts from random values.
+   */
+  private static MultisetRedBlackTree<Integer> randomMultiset(Random random, TreeMap<Integer, Integer> expected) {
+    MultisetRedBlackTree<Integer> tree = new MultisetRedBlackTree<>();
+    for (int i = 0; i < 3000; i++) {
+      int value = random.nextInt(1000);
+      tree.insert(value);
+      expected.merge(value, 1, Integer::sum);
+    }
+    return tree;
+  }
+
+  private static void assertCounts(TreeMap<Integer, Integer> expected, MultisetRedBlackTree<Integer> tree) {
+    assertTrue(tree.subtreeCountsMatch());
+    assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(tree));
+    for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+      assertEquals(entry.getValue(), tree.count(entry.getKey()));
+    }
+    assertEquals(expected.values().stream().mapToLong(Integer::longValue).sum(), tree.totalSize());
+  }
+
+  @Test
+  public void testSetOperationsCombineCounts() {
+    Random random = new Random(25);
+    for (int operation = 0; operation < 3; operation++) {
+      TreeMap<Integer, Integer> expectedA = new TreeMap<>();
+      TreeMap<Integer, Integer> expectedB = new TreeMap<>();
+      MultisetRedBlackTree<Integer> a = randomMultiset(random, expectedA);
+      MultisetRedBlackTree<Integer> b = randomMultiset(random, expectedB);
+      TreeMap<Integer, Integer> expected = new TreeMap<>();
+      RedBlackTree<Integer> combined;
+      if (operation == 0) {
+        expected.putAll(expectedA);
+        expectedB.forEach((value, count) -> expected.merge(value, count, Integer::sum));
+        combined = RedBlackTree.union(a, b);
+      } else if (operation == 1) {
+        expectedA.forEach((value, count) -> {
+          if (expectedB.containsKey(value)) expected.put(value, Math.min(count, expectedB.get(value)));
+        });
+        combined = RedBlackTree.intersection(a, b);
+      } else {
+        expectedA.forEach((value, count) -> {
+          int left = count - expectedB.getOrDefault(value, 0);
+          if (left > 0) expected.put(value, left);
+        });
+        combined = RedBlackTree.difference(a, b);
+      }
+      assertCounts(expected, (MultisetRedBlackTree<Integer>) combined);
+    }
+    assertThrows(IllegalArgumentException.class,
+        () -> RedBlackTree.union(new MultisetRedBlackTree<Integer>(), new RedBlackTree<Integer>()));
+  }
+
+  @Test
+  public void testSplitAndJoinKeepCounts() {
+    TreeMap<Integer, Integer> expected = new TreeMap<>();
+    MultisetRedBlackTree<Integer> tree = randomMultiset(new Random(26), expected);
+    MultisetRedBlackTree<Integer> upper = (MultisetRedBlackTree<Integer>) tree.split(500);
+    assertCounts(new TreeMap<>(expected.headMap(500, false)), tree);
+    assertCounts(new TreeMap<>(expected.tailMap(500, true)), upper);
+    while (upper.tryRemove(500)) continue;
+    MultisetRedBlackTree<Integer> joined = (MultisetRedBlackTree<Integer>) RedBlackTree.join(tree, 500, upper);
+    expected.put(500, 1);
+    // the joined key is a new node that occurs once
+    assertCounts(expected, joined);
+  }
+}
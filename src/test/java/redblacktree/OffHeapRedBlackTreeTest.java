@@ -0,0 +1,87 @@
+package redblacktree;
+
+/*** JUnit imports ***/
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+/*** JUnit imports end  ***/
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * JUnit tests for OffHeapRedBlackTree.
+ */
+public class OffHeapRedBlackTreeTest {
+
+  @Test
+  public void testLongKeysMatchTreeSet() {
+    try (OffHeapRedBlackTree tree = new OffHeapRedBlackTree(8)) {
+      Random random = new Random(400);
+      TreeSet<Long> expected = new TreeSet<>();
+      // enough operations to need more than one chunk
+      for (int i = 0; i < 200000; i++) {
+        long value = random.nextInt(100000) - 50000L;
+        if (expected.add(value)) {
+          assertTrue(tree.insert(value));
+        } else if (i % 3 == 0) {
+          assertTrue(tree.remove(value));
+          expected.remove(value);
+        } else {
+          assertTrue(tree.contains(value));
+        }
+      }
+      assertEquals(expected.size(), tree.size());
+      for (long value = -50000; value < 50000; value++) {
+        assertEquals(expected.contains(value), tree.contains(value));
+      }
+    }
+  }
+
+  @Test
+  public void testByteArrayKeys() {
+    try (OffHeapRedBlackTree tree = new OffHeapRedBlackTree(3)) {
+      tree.insert(new byte[] {1, 2, 3});
+      tree.insert(new byte[] {(byte) 0xFF, 0, 0});
+      assertTrue(tree.contains(new byte[] {1, 2, 3}));
+      assertFalse(tree.contains(new byte[] {1, 2, 4}));
+      assertThrows(IllegalArgumentException.class, () -> tree.insert(new byte[] {1, 2, 3}));
+      assertThrows(IllegalArgumentException.class, () -> tree.insert(new byte[] {1, 2}));
+      assertThrows(IllegalArgumentException.class, () -> tree.insert(5L));
+      assertTrue(tree.remove(new byte[] {1, 2, 3}));
+      assertEquals(1, tree.size());
+    }
+  }
+
+  @Test
+  public void testClose() {
+    OffHeapRedBlackTree tree = new OffHeapRedBlackTree(8);
+    tree.insert(1L);
+    tree.close();
+    tree.close();
+    assertThrows(IllegalStateException.class, () -> tree.contains(1L));
+  }
+
+  @Test
+  public void testKeyWidthLimitsAndGrowth() {
+    assertThrows(IllegalArgumentException.class, () -> new OffHeapRedBlackTree(0));
+    assertThrows(IllegalArgumentException.class, () -> new OffHeapRedBlackTree(OffHeapRedBlackTree.MAX_KEY_WIDTH + 1));
+    assertThrows(IllegalArgumentException.class, () -> new OffHeapRedBlackTree(1 << 16));
+    // the first chunk grows from a few nodes, copying the nodes it holds
+    try (OffHeapRedBlackTree tree = new OffHeapRedBlackTree(256)) {
+      byte[] key = new byte[256];
+      for (int i = 0; i < 1000; i++) {
+        key[0] = (byte) (i >> 8);
+        key[255] = (byte) i;
+        tree.insert(key);
+      }
+      for (int i = 0; i < 1000; i++) {
+        key[0] = (byte) (i >> 8);
+        key[255] = (byte) i;
+        assertTrue(tree.contains(key));
+      }
+      assertEquals(1000, tree.size());
+    }
+  }
+}
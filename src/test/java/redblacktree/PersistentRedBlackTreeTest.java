@@ -0,0 +1,59 @@
+package redblacktree;
+
+/*** JUnit imports ***/
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+/*** JUnit imports end  ***/
+import java.util.Iterator;
+
+/**
+ * JUnit tests for PersistentRedBlackTree.
+ */
+public class PersistentRedBlackTreeTest {
+
+  /**
+   * These test methods are JUnit tests.
+   */
+  @Test
+  public void testInsertRemoveKeepsProperties() {
+    PersistentRedBlackTree<Integer> tree = new PersistentRedBlackTree<>();
+    java.util.Random random = new java.util.Random(400);
+    java.util.TreeSet<Integer> expected = new java.util.TreeSet<>();
+    for (int i = 0; i < 20000; i++) {
+      int value = random.nextInt(1000);
+      if (expected.add(value)) {
+        tree.insert(value);
+      } else {
+        tree.remove(value);
+        expected.remove(value);
+      }
+      assertEquals(expected.size(), tree.size());
+      assertEquals(true, tree.checkedBlackHeight() > 0);
+    }
+    assertEquals(expected.toString().replace("[", "[ ").replace("]", " ]"), tree.toInOrderString());
+    assertThrows(IllegalArgumentException.class, () -> tree.insert(expected.first()));
+    assertThrows(IllegalArgumentException.class, () -> tree.remove(-1));
+  }
+
+  @Test
+  public void testSnapshotsAreIndependent() {
+    PersistentRedBlackTree<Integer> tree = new PersistentRedBlackTree<>();
+    for (int i = 0; i < 10; i++) tree.insert(i);
+    PersistentRedBlackTree<Integer> snapshot = tree.snapshot();
+    Iterator<Integer> iterator = tree.iterator();
+    tree.remove(3);
+    tree.insert(42);
+    snapshot.insert(-1);
+    assertEquals("[ -1, 0, 1, 2, 3, 4, 5, 6, 7, 8, 9 ]", snapshot.toInOrderString());
+    assertEquals("[ 0, 1, 2, 4, 5, 6, 7, 8, 9, 42 ]", tree.toInOrderString());
+    assertEquals(11, snapshot.size());
+    // an iterator keeps reading the version it started on
+    int count = 0;
+    while (iterator.hasNext()) {
+      iterator.next();
+      count++;
+    }
+    assertEquals(10, count);
+  }
+}
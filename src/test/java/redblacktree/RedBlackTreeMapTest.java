@@ -0,0 +1,119 @@
+package redblacktree;
+
+/*** JUnit imports ***/
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+/*** JUnit imports end  ***/
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * JUnit tests for RedBlackTreeMap.
+ */
+public class RedBlackTreeMapTest {
+
+  @Test
+  public void testUpdatesMatchTreeMap() {
+    RedBlackTreeMap<Integer, Integer> map = new RedBlackTreeMap<>();
+    TreeMap<Integer, Integer> expected = new TreeMap<>();
+    Random random = new Random(18);
+    for (int i = 0; i < 20000; i++) {
+      int key = random.nextInt(500);
+      int value = random.nextInt(10);
+      switch (random.nextInt(7)) {
+        case 0:
+          assertEquals(expected.put(key, value), map.put(key, value));
+          break;
+        case 1:
+          assertEquals(expected.remove(key), map.remove(key));
+          break;
+        case 2:
+          assertEquals(expected.putIfAbsent(key, value), map.putIfAbsent(key, value));
+          break;
+        case 3:
+          assertEquals(expected.computeIfAbsent(key, k -> value == 0 ? null : k + value),
+              map.computeIfAbsent(key, k -> value == 0 ? null : k + value));
+          break;
+        case 4:
+          // a sum of 0 mod 3 removes the mapping
+          assertEquals(expected.merge(key, value, (a, b) -> (a + b) % 3 == 0 ? null : a + b),
+              map.merge(key, value, (a, b) -> (a + b) % 3 == 0 ? null : a + b));
+          break;
+        case 5:
+          assertEquals(expected.get(key), map.get(key));
+          assertEquals(expected.containsKey(key), map.containsKey(key));
+          break;
+        default:
+          assertEquals(expected.floorEntry(key), map.floorEntry(key));
+          assertEquals(expected.higherKey(key), map.higherKey(key));
+          break;
+      }
+      assertEquals(expected.size(), map.size());
+    }
+    assertEquals(expected, map);
+    assertEquals(new ArrayList<>(expected.entrySet()), new ArrayList<>(map.entrySet()));
+    assertEquals(expected.firstEntry(), map.firstEntry());
+    assertEquals(expected.lastKey(), map.lastKey());
+  }
+
+  @Test
+  public void testUpdatesDescendOnce() {
+    RedBlackTreeMap<Integer, String> map = new RedBlackTreeMap<>();
+    for (int i = 0; i < 1000; i++) map.put(i, "v" + i);
+    map.tree.setMetricsEnabled(true);
+    map.put(500, "x");
+    map.putIfAbsent(1500, "y");
+    map.computeIfAbsent(2000, k -> "z");
+    map.merge(500, "!", String::concat);
+    map.get(17);
+    map.remove(17);
+    assertEquals(6, map.tree.metricsSnapshot().searches);
+    assertEquals("x!", map.get(500));
+    assertEquals(1001, map.size());
+  }
+
+  @Test
+  public void testViewsMatchTreeMap() {
+    RedBlackTreeMap<Integer, Integer> map = new RedBlackTreeMap<>();
+    TreeMap<Integer, Integer> expected = new TreeMap<>();
+    for (int i = 0; i < 100; i += 3) {
+      map.put(i, -i);
+      expected.put(i, -i);
+    }
+    NavigableMap<Integer, Integer> view = map.subMap(10, true, 60, false).descendingMap();
+    NavigableMap<Integer, Integer> expectedView = expected.subMap(10, true, 60, false).descendingMap();
+    assertEquals(new ArrayList<>(expectedView.keySet()), new ArrayList<>(view.keySet()));
+    assertEquals(expectedView.firstKey(), view.firstKey());
+    assertEquals(expectedView.ceilingKey(40), view.ceilingKey(40));
+    assertEquals(expectedView.headMap(30, true), view.headMap(30, true));
+    assertEquals(expectedView.tailMap(30, false).size(), view.tailMap(30, false).size());
+    assertEquals(new ArrayList<>(expectedView.navigableKeySet().descendingSet()),
+        new ArrayList<>(view.navigableKeySet().descendingSet()));
+    assertThrows(IllegalArgumentException.class, () -> view.put(70, 0));
+    assertThrows(IllegalArgumentException.class, () -> view.headMap(5, true));
+    view.put(11, 11);
+    expected.put(11, 11);
+    assertEquals(expectedView.pollFirstEntry(), view.pollFirstEntry());
+    assertEquals(expected, map);
+
+    // entries write through, and iterator removal unlinks them from the tree
+    Iterator<Map.Entry<Integer, Integer>> iterator = map.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<Integer, Integer> entry = iterator.next();
+      if (entry.getKey() % 2 == 0) {
+        iterator.remove();
+      } else {
+        entry.setValue(1);
+      }
+    }
+    expected.keySet().removeIf(key -> key % 2 == 0);
+    expected.replaceAll((key, value) -> 1);
+    assertEquals(expected, map);
+    assertThrows(NullPointerException.class, () -> map.put(null, 0));
+  }
+}
@@ -0,0 +1,563 @@
+package redblacktree;
+
+/*** JUnit imports ***/
+//We will use the BeforeEach and Test annotation types to mark methods in
+//our test class.
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+//The Assertions class that we import from here includes assertion methods like assertEquals()
+//which we will used in test1000Inserts().
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+//More details on each of the imported elements can be found here:
+//https://junit.org/junit5/docs/current/api/org.junit.jupiter.api/org/junit/jupiter/api/package-summary.html
+/*** JUnit imports end  ***/
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Spliterator;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * JUnit tests for RedBlackTree.
+ */
+public class RedBlackTreeTest {
+
+  /**
+   * These test methods are JUnit tests.
+   */
+  protected RedBlackTree rbt = null;//instance
+
+  @BeforeEach
+  public void createInstance() {
+    rbt = new RedBlackTree<Integer>();
+  }
+
+  @Test
+  public void JUnitTest1() {//This test causes case 1: parent's sibling is black and opposite side.
+    /**
+     *             50(1)
+     *            /  \
+     *          10(1)  70(1)
+     *        /  \
+     *      1(0)  30(0)
+     */
+    int[] dataSet = {50, 30, 70, 10, 1};
+    int[] blackHeightSet = {1, 0, 1, 1, 0};
+    for (int data : dataSet) {
+      rbt.insert(data);
+    }
+    String str = "level order: [ 50, 10, 70, 1, 30 ]" + "\nin order: [ 1, 10, 30, 50, 70 ]";
+    assertEquals(str, rbt.toString());
+    for (int i = 0; i < dataSet.length; i++) {
+      RedBlackTree.Node<Integer> node = rbt.findNodeWithData(dataSet[i]);
+      assertEquals(blackHeightSet[i], node.blackHeight);
+    }
+  }
+  @Test
+  public void JUnitTest2() {//This test causes case 3: parent's sibling is red.
+    /**
+     *             20(1)
+     *            /  \
+     *          10(0)  30(1)
+     *        /  \
+     *      1(1)  12(1)
+     *            /
+     *          11(0)
+     */
+    int[] dataSet = {20, 10, 30, 1, 12, 11};
+    int[] blackHeightSet = {1, 0, 1, 1, 1, 0};
+    for (int data : dataSet) {
+      rbt.insert(data);
+    }
+    String str = "level order: [ 20, 10, 30, 1, 12, 11 ]" + "\nin order: [ 1, 10, 11, 12, 20, 30 ]";
+    assertEquals(str, rbt.toString());
+    for (int i = 0; i < dataSet.length; i++) {
+      RedBlackTree.Node<Integer> node = rbt.findNodeWithData(dataSet[i]);
+      assertEquals(blackHeightSet[i], node.blackHeight);
+    }
+  }
+
+  @Test
+  public void JUnitTest3 () {//This test causes multiple cases and rotations.
+    /**
+     *             7(1)
+     *         /        \
+     *       4(0)       10(0)
+     *       /  \      /   \
+     *    1(1)  5(1)  8(1)  12(1)
+     *           \          /
+     *           6(0)     11(0)
+     */
+    int[] dataSet = {10, 4, 12, 1, 7, 11, 5, 8, 6};
+    int[] blackHeightSet = {0, 0, 1, 1, 1, 0, 1, 1, 0};
+    for (int data : dataSet) {
+      rbt.insert(data);
+    }
+    String str = "level order: [ 7, 4, 10, 1, 5, 8, 12, 6, 11 ]" + "\nin order: [ 1, 4, 5, 6, 7, 8, 10, 11, 12 ]";
+    assertEquals(str, rbt.toString());
+    for (int i = 0; i < dataSet.length; i++) {
+      RedBlackTree.Node<Integer> node = rbt.findNodeWithData(dataSet[i]);
+      assertEquals(blackHeightSet[i], node.blackHeight);
+    }
+  }
+
+  @Test
+  public void JUnitTest4() {//This test removes black leaves, which needs the remove fixup.
+    /**
+     *             20(1)                    20(1)
+     *            /  \                     /  \
+     *          10(0)  30(1)   remove 1   11(0)  30(1)
+     *        /  \                       /  \
+     *      1(1)  12(1)                 10(1) 12(1)
+     *            /
+     *          11(0)
+     */
+    int[] dataSet = {20, 10, 30, 1, 12, 11};
+    for (int data : dataSet) {
+      rbt.insert(data);
+    }
+    rbt.remove(1);
+    String str = "level order: [ 20, 11, 30, 10, 12 ]" + "\nin order: [ 10, 11, 12, 20, 30 ]";
+    assertEquals(str, rbt.toString());
+    assertEquals(0, rbt.findNodeWithData(11).blackHeight);
+    assertEquals(3, blackHeightOf(rbt.root));
+    rbt.remove(30);
+    rbt.remove(20);
+    assertEquals("[ 10, 11, 12 ]", rbt.toInOrderString());
+    assertEquals(3, blackHeightOf(rbt.root));
+  }
+
+  @Test
+  public void JUnitTest5() {//This test keeps the red-black properties through random inserts and removes.
+    RedBlackTree<Integer> tree = new RedBlackTree<>();
+    java.util.Random random = new java.util.Random(400);
+    java.util.TreeSet<Integer> expected = new java.util.TreeSet<>();
+    for (int i = 0; i < 20000; i++) {
+      int value = random.nextInt(1000);
+      if (expected.add(value)) {
+        tree.insert(value);
+      } else {
+        tree.remove(value);
+        expected.remove(value);
+      }
+      assertEquals(expected.size(), tree.size());
+      if (tree.root != null) assertEquals(1, tree.root.blackHeight);
+      assertEquals(true, blackHeightOf(tree.root) > 0);
+    }
+    assertEquals(expected.toString().replace("[", "[ ").replace("]", " ]"), tree.toInOrderString());
+  }
+
+  @Test
+  public void JUnitTest6() {//This test reports duplicates and misses without exceptions.
+    RedBlackTree<Integer> tree = new RedBlackTree<>();
+    assertEquals(true, tree.tryInsert(10));
+    assertEquals(true, tree.tryInsert(5));
+    assertEquals(false, tree.tryInsert(10));
+    assertEquals(2, tree.size());
+    assertEquals(false, tree.tryRemove(7));
+    assertEquals(true, tree.tryRemove(5));
+    assertEquals(false, tree.tryRemove(5));
+    assertEquals("[ 10 ]", tree.toInOrderString());
+    assertThrows(IllegalArgumentException.class, () -> tree.insert(10));
+    assertThrows(IllegalArgumentException.class, () -> tree.remove(5));
+  }
+
+  @Test
+  public void JUnitTest7() {//This test builds trees from sorted values without any insert.
+    for (int n = 0; n <= 100; n++) {
+      Integer[] values = new Integer[n];
+      for (int i = 0; i < n; i++) values[i] = i * 2;
+      RedBlackTree<Integer> tree = RedBlackTree.buildFromSorted(values);
+      assertEquals(n, tree.size());
+      assertEquals(true, blackHeightOf(tree.root) > 0);
+      assertEquals(Arrays.asList(values).toString().replace("[", "[ ").replace("]", " ]"),
+          tree.toInOrderString());
+      // the built tree keeps working as a red-black tree
+      tree.insert(1);
+      if (n > 0) tree.remove(0);
+      assertEquals(true, blackHeightOf(tree.root) > 0);
+    }
+    RedBlackTree<Integer> tree = RedBlackTree.buildFromSorted(List.of(1, 2, 3).iterator());
+    assertEquals("[ 1, 2, 3 ]", tree.toInOrderString());
+    assertThrows(IllegalArgumentException.class, () -> RedBlackTree.buildFromSorted(List.of(1, 3, 2)));
+    assertThrows(IllegalArgumentException.class, () -> RedBlackTree.buildFromSorted(List.of(1, 2, 2)));
+  }
+
+  @Test
+  public void JUnitTest8() {//This test answers rank, select and range counts from subtree sizes.
+    RedBlackTree<Integer> tree = new RedBlackTree<>();
+    java.util.Random random = new java.util.Random(400);
+    java.util.TreeSet<Integer> expected = new java.util.TreeSet<>();
+    for (int i = 0; i < 5000; i++) {
+      int value = random.nextInt(500);
+      if (expected.add(value)) {
+        tree.insert(value);
+      } else {
+        tree.remove(value);
+        expected.remove(value);
+      }
+      assertEquals(true, subtreeSizesMatch(tree.root));
+    }
+    Integer[] sorted = expected.toArray(new Integer[0]);
+    for (int i = 0; i < sorted.length; i++) {
+      assertEquals(sorted[i], tree.select(i));
+      assertEquals(i, tree.rank(sorted[i]));
+    }
+    assertEquals(expected.headSet(250).size(), tree.rank(250));
+    assertEquals(expected.subSet(100, true, 300, true).size(), tree.countInRange(100, 300));
+    assertEquals(0, tree.countInRange(300, 100));
+    assertThrows(IndexOutOfBoundsException.class, () -> tree.select(expected.size()));
+    RedBlackTree<Integer> built = RedBlackTree.buildFromSorted(sorted);
+    assertEquals(true, subtreeSizesMatch(built.root));
+  }
+
+  /**
+   * @return true when the subtreeSize of every node in the subtree is correct
+   */
+  private static boolean subtreeSizesMatch(RedBlackTree.Node<?> node) {
+    if (node == null) return true;
+    return node.subtreeSize == 1 + RedBlackTree.subtreeSize(node.left) + RedBlackTree.subtreeSize(node.right)
+        && subtreeSizesMatch(node.left) && subtreeSizesMatch(node.right);
+  }
+
+  @Test
+  public void JUnitTest9() {//This test compares navigation and range views with java.util.TreeSet.
+    RedBlackTree<Integer> tree = new RedBlackTree<>();
+    java.util.TreeSet<Integer> expected = new java.util.TreeSet<>();
+    java.util.Random random = new java.util.Random(400);
+    for (int i = 0; i < 300; i++) {
+      int value = random.nextInt(1000);
+      assertEquals(expected.add(value), tree.add(value));
+    }
+    assertEquals(expected.first(), tree.first());
+    assertEquals(expected.last(), tree.last());
+    for (int i = -10; i < 1010; i += 7) {
+      assertEquals(expected.floor(i), tree.floor(i));
+      assertEquals(expected.ceiling(i), tree.ceiling(i));
+      assertEquals(expected.lower(i), tree.lower(i));
+      assertEquals(expected.higher(i), tree.higher(i));
+    }
+    NavigableSet<Integer> view = tree.subSet(200, false, 700, true);
+    NavigableSet<Integer> expectedView = expected.subSet(200, false, 700, true);
+    assertEquals(new ArrayList<>(expectedView), new ArrayList<>(view));
+    assertEquals(expectedView.size(), view.size());
+    assertEquals(new ArrayList<>(expectedView.descendingSet().headSet(400)),
+        new ArrayList<>(view.descendingSet().headSet(400)));
+    assertEquals(expectedView.descendingSet().ceiling(450), view.descendingSet().ceiling(450));
+    assertEquals(new ArrayList<>(expected.headSet(300, false).tailSet(100, false)),
+        new ArrayList<>(tree.headSet(300).tailSet(100, false)));
+    assertThrows(IllegalArgumentException.class, () -> view.add(100));
+    assertThrows(IllegalArgumentException.class, () -> view.subSet(100, 300));
+    // the views are backed by the tree
+    tree.add(201);
+    expected.add(201);
+    assertEquals(expectedView.first(), view.first());
+    assertEquals(expected.pollFirst(), tree.pollFirst());
+    assertEquals(expected.pollLast(), tree.pollLast());
+    // removing through an iterator, including nodes with two children
+    Iterator<Integer> iterator = tree.iterator();
+    while (iterator.hasNext()) {
+      if (iterator.next() % 3 == 0) iterator.remove();
+    }
+    expected.removeIf(value -> value % 3 == 0);
+    assertEquals(new ArrayList<>(expected), new ArrayList<>(tree));
+    view.clear();
+    expectedView.clear();
+    assertEquals(new ArrayList<>(expected), new ArrayList<>(tree));
+    assertEquals(true, blackHeightOf(tree.root) > 0);
+    assertEquals(true, subtreeSizesMatch(tree.root));
+  }
+
+  @Test
+  public void JUnitTest10() {//This test walks the tree with a cursor and checks fail-fast iteration.
+    RedBlackTree<Integer> tree = RedBlackTree.buildFromSorted(new Integer[] {10, 20, 30, 40, 50});
+    RedBlackTree<Integer>.Cursor cursor = tree.cursor();
+    assertEquals(false, cursor.isValid());
+    assertEquals(true, cursor.seek(25));
+    assertEquals(30, cursor.get());
+    assertEquals(true, cursor.prev());
+    assertEquals(20, cursor.get());
+    StringBuilder values = new StringBuilder();
+    for (boolean valid = cursor.first(); valid; valid = cursor.next()) values.append(cursor.get()).append(' ');
+    assertEquals("10 20 30 40 50 ", values.toString());
+    assertEquals(true, cursor.last());
+    assertEquals(false, cursor.next());
+    assertEquals(false, cursor.seek(51));
+    cursor.first();
+    tree.add(35);
+    assertThrows(java.util.ConcurrentModificationException.class, () -> cursor.next());
+    assertEquals(true, cursor.seek(35));
+    Iterator<Integer> iterator = tree.iterator();
+    iterator.next();
+    tree.remove(Integer.valueOf(50));
+    assertThrows(java.util.ConcurrentModificationException.class, () -> iterator.next());
+  }
+
+  @Test
+  public void JUnitTest11() {//This test splits the tree for parallel streams and fork-join reductions.
+    Integer[] values = new Integer[50000];
+    for (int i = 0; i < values.length; i++) values[i] = i;
+    RedBlackTree<Integer> tree = RedBlackTree.buildFromSorted(values);
+    Spliterator<Integer> right = tree.spliterator();
+    Spliterator<Integer> left = right.trySplit();
+    assertEquals(tree.size(), left.estimateSize() + right.estimateSize());
+    assertEquals(tree.rank(tree.root.data), left.estimateSize());
+    assertEquals(true, right.hasCharacteristics(Spliterator.SORTED | Spliterator.DISTINCT));
+    long expectedSum = (long) values.length * (values.length - 1) / 2;
+    assertEquals(expectedSum, tree.stream().parallel().mapToLong(Integer::longValue).sum());
+    assertEquals(java.util.Arrays.asList(values),
+        tree.stream().parallel().collect(java.util.stream.Collectors.toList()));
+    assertEquals(expectedSum, (long) tree.reduce(0L, (sum, value) -> sum + value, Long::sum));
+    java.util.concurrent.atomic.LongAdder adder = new java.util.concurrent.atomic.LongAdder();
+    tree.forEachParallel(adder::add);
+    assertEquals(expectedSum, adder.sum());
+  }
+
+  @Test
+  public void JUnitTest12() {//This test joins, splits and combines trees against TreeSet.
+    java.util.Random random = new java.util.Random(14);
+    for (int round = 0; round < 20; round++) {
+      java.util.TreeSet<Integer> expectedA = new java.util.TreeSet<>();
+      java.util.TreeSet<Integer> expectedB = new java.util.TreeSet<>();
+      int sizeA = random.nextInt(round < 10 ? 50 : 20000);
+      int sizeB = random.nextInt(round < 10 ? 50 : 5000);
+      for (int i = 0; i < sizeA; i++) expectedA.add(random.nextInt(40000));
+      for (int i = 0; i < sizeB; i++) expectedB.add(random.nextInt(40000));
+      java.util.TreeSet<Integer> expected = new java.util.TreeSet<>(expectedA);
+      int operation = round % 3;
+      RedBlackTree<Integer> combined;
+      if (operation == 0) {
+        expected.addAll(expectedB);
+        combined = RedBlackTree.union(treeOfSet(expectedA), treeOfSet(expectedB));
+      } else if (operation == 1) {
+        expected.retainAll(expectedB);
+        combined = RedBlackTree.intersection(treeOfSet(expectedA), treeOfSet(expectedB));
+      } else {
+        expected.removeAll(expectedB);
+        combined = RedBlackTree.difference(treeOfSet(expectedA), treeOfSet(expectedB));
+      }
+      assertValidTree(combined, expected);
+
+      int key = random.nextInt(40000);
+      RedBlackTree<Integer> upper = combined.split(key);
+      assertValidTree(combined, expected.headSet(key, false));
+      assertValidTree(upper, expected.tailSet(key, true));
+      upper.tryRemove(key);
+      RedBlackTree<Integer> joined = RedBlackTree.join(combined, key, upper);
+      assertEquals(true, combined.isEmpty() && upper.isEmpty());
+      expected.add(key);
+      assertValidTree(joined, expected);
+    }
+    // splitting at every position exercises joins of every pair of black heights
+    java.util.TreeSet<Integer> values = new java.util.TreeSet<>();
+    for (int i = 0; i < 300; i++) values.add(2 * random.nextInt(1000));
+    for (int key = -1; key <= 2001; key += 7) {
+      RedBlackTree<Integer> lower = treeOfSet(values);
+      RedBlackTree<Integer> upper = lower.split(key);
+      assertValidTree(lower, values.headSet(key, false));
+      assertValidTree(upper, values.tailSet(key, true));
+      upper.tryRemove(key);
+      java.util.TreeSet<Integer> expected = new java.util.TreeSet<>(values);
+      expected.add(key);
+      assertValidTree(RedBlackTree.join(lower, key, upper), expected);
+    }
+    RedBlackTree<Integer> small = RedBlackTree.buildFromSorted(new Integer[] { 1, 2, 3 });
+    assertThrows(IllegalArgumentException.class,
+        () -> RedBlackTree.join(small, 2, new RedBlackTree<Integer>()));
+    assertThrows(IllegalArgumentException.class, () -> RedBlackTree.union(small, small));
+  }
+
+  @Test
+  public void JUnitTest13() {//This test inserts clustered and unsorted batches with duplicates.
+    java.util.TreeSet<Integer> expected = new java.util.TreeSet<>();
+    java.util.Random random = new java.util.Random(15);
+    for (int round = 0; round < 30; round++) {
+      List<Integer> batch = new ArrayList<>();
+      int start = random.nextInt(100000);
+      for (int i = 0; i < 500; i++) batch.add(start + random.nextInt(2000));
+      if (round % 2 == 0) Collections.sort(batch);
+      List<Integer> expectedDuplicates = new ArrayList<>();
+      java.util.TreeSet<Integer> seen = new java.util.TreeSet<>(expected);
+      List<Integer> sortedBatch = new ArrayList<>(batch);
+      Collections.sort(sortedBatch);
+      for (Integer value : sortedBatch) if (!seen.add(value)) expectedDuplicates.add(value);
+      expected.addAll(batch);
+      assertEquals(expectedDuplicates, rbt.insertAll(batch));
+    }
+    assertEquals(new ArrayList<>(expected), new ArrayList<Integer>(rbt));
+    assertEquals(expected.size(), rbt.size());
+    assertEquals(true, blackHeightOf(rbt.root) > 0);
+    assertEquals(true, subtreeSizesMatch(rbt.root));
+    int sizeBefore = rbt.size();
+    assertThrows(NullPointerException.class, () -> rbt.insertAll(Arrays.asList(-1, null)));
+    assertEquals(sizeBefore, rbt.size());
+  }
+
+  @Test
+  public void JUnitTest14() throws Exception {//This test counts rotations, fixup cases and search paths.
+    assertThrows(IllegalStateException.class, () -> rbt.metricsSnapshot());
+    rbt.setMetricsEnabled(true);
+    for (int data : new int[] {50, 30, 70, 10, 1}) {
+      rbt.insert(data); // 10 recolors with case 3, 1 rotates with case 1
+    }
+    assertEquals(true, rbt.contains(1));
+    TreeMetrics.Snapshot snapshot = rbt.metricsSnapshot();
+    assertEquals(1, snapshot.rotations);
+    assertEquals(1, snapshot.insertCase1);
+    assertEquals(0, snapshot.insertCase2);
+    assertEquals(1, snapshot.insertCase3);
+    assertEquals(0, snapshot.insertCase3Recursions);
+    // the first insert needs no search, the others visit 1, 1, 2 and 3 nodes
+    // and contains(1) visits 50, 10 and 1
+    assertEquals(5, snapshot.searches);
+    assertEquals(10, snapshot.comparisons);
+    assertEquals(2, snapshot.pathLengths[1]);
+    assertEquals(2, snapshot.pathLengths[3]);
+    assertEquals(3, snapshot.maxPathLength());
+    assertEquals(5, snapshot.size);
+    assertEquals(3, snapshot.height);
+    assertEquals(2, snapshot.blackHeight);
+
+    // a running recording receives the periodic event
+    Path file = Files.createTempFile("metrics", ".jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable("redblacktree.TreeMetrics").withPeriod(Duration.ofMillis(10));
+      recording.start();
+      Thread.sleep(200);
+      recording.stop();
+      recording.dump(file);
+      List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+      assertEquals(true, events.stream().anyMatch(event -> event.getLong("rotations") == 1
+          && event.getInt("treeIdentity") == System.identityHashCode(rbt)));
+    } finally {
+      Files.delete(file);
+    }
+    rbt.setMetricsEnabled(false);
+    assertThrows(IllegalStateException.class, () -> rbt.metricsSnapshot());
+  }
+
+  @Test
+  public void JUnitTest15() throws Exception {//This test writes snapshots and loads them back.
+    java.util.TreeSet<Integer> expected = new java.util.TreeSet<>();
+    java.util.Random random = new java.util.Random(400);
+    for (int i = 0; i < 5000; i++) {
+      int value = random.nextInt(100000) - 50000;
+      if (expected.add(value)) rbt.insert(value);
+    }
+    Path file = Files.createTempFile("tree", ".snapshot");
+    try {
+      rbt.writeSnapshot(file, KeyCodec.INTEGER);
+      assertValidTree(RedBlackTree.loadSnapshot(file, KeyCodec.INTEGER), expected);
+      // windows smaller than the file make the reader map it piece by piece
+      RedBlackTree<Integer> windowed = new RedBlackTree<>();
+      windowed.fillFromSnapshot(file, KeyCodec.INTEGER, 13);
+      assertValidTree(windowed, expected);
+
+      // any changed byte is caught by the checksum or the checks of the records
+      byte[] bytes = Files.readAllBytes(file);
+      for (int index : new int[] {0, 5, 11, 14, bytes.length / 2, bytes.length - 1}) {
+        byte[] corrupt = bytes.clone();
+        corrupt[index] ^= 0x10;
+        Files.write(file, corrupt);
+        assertThrows(java.io.IOException.class, () -> RedBlackTree.loadSnapshot(file, KeyCodec.INTEGER));
+      }
+      Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+      assertThrows(java.io.IOException.class, () -> RedBlackTree.loadSnapshot(file, KeyCodec.INTEGER));
+
+      RedBlackTree<String> strings = new RedBlackTree<>();
+      for (String value : new String[] {"", "b", "ä", "日本", "a".repeat(1000)}) strings.insert(value);
+      strings.writeSnapshot(file, KeyCodec.STRING);
+      RedBlackTree<String> loaded = new RedBlackTree<>();
+      loaded.fillFromSnapshot(file, KeyCodec.STRING, 16);
+      assertEquals(strings.toInOrderString(), loaded.toInOrderString());
+
+      new RedBlackTree<Integer>().writeSnapshot(file, KeyCodec.INTEGER);
+      assertEquals(0, RedBlackTree.loadSnapshot(file, KeyCodec.INTEGER).size());
+
+      // a failed write keeps the previous snapshot and removes its temporary file
+      Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+      assertThrows(java.util.ConcurrentModificationException.class,
+          () -> TreeSnapshot.write(file, rbt.iterator(), rbt.size() + 1, KeyCodec.INTEGER));
+      assertEquals(false, Files.exists(temporary));
+      assertEquals(0, RedBlackTree.loadSnapshot(file, KeyCodec.INTEGER).size());
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void JUnitTest16() {//This test freezes trees of every size up to 70 and queries them.
+    for (int size = 0; size <= 70; size++) {
+      java.util.TreeSet<Integer> expected = new java.util.TreeSet<>();
+      rbt.clear();
+      for (int i = 0; i < size; i++) {
+        expected.add(3 * i);
+        rbt.insert(3 * i);
+      }
+      FrozenRedBlackTree<Integer> frozen = rbt.freeze();
+      assertEquals(size, frozen.size());
+      for (int key = -2; key <= 3 * size + 1; key++) {
+        assertEquals(expected.contains(key), frozen.contains(key));
+        assertEquals(expected.lower(key), frozen.lower(key));
+        assertEquals(expected.floor(key), frozen.floor(key));
+        assertEquals(expected.ceiling(key), frozen.ceiling(key));
+        assertEquals(expected.higher(key), frozen.higher(key));
+        assertEquals(expected.headSet(key).size(), frozen.rank(key));
+      }
+    }
+    // the frozen copy does not change with the tree
+    FrozenRedBlackTree<Integer> frozen = rbt.freeze();
+    rbt.insert(1);
+    assertEquals(false, frozen.contains(1));
+    assertThrows(NullPointerException.class, () -> frozen.contains(null));
+  }
+
+  private static RedBlackTree<Integer> treeOfSet(java.util.TreeSet<Integer> values) {
+    RedBlackTree<Integer> tree = new RedBlackTree<>();
+    // insert in random order so the shapes differ from bulk-built trees
+    List<Integer> shuffled = new ArrayList<>(values);
+    Collections.shuffle(shuffled, new java.util.Random(values.size()));
+    for (Integer value : shuffled) tree.insert(value);
+    return tree;
+  }
+
+  static void assertValidTree(RedBlackTree<Integer> tree, java.util.SortedSet<Integer> expected) {
+    assertEquals(new ArrayList<>(expected), new ArrayList<>(tree));
+    assertEquals(expected.size(), tree.size());
+    assertEquals(true, tree.root == null || (tree.root.blackHeight == 1 && tree.root.parent == null));
+    assertEquals(true, blackHeightOf(tree.root) > 0);
+    assertEquals(true, subtreeSizesMatch(tree.root));
+  }
+
+  /**
+   * Checks the red-black properties and parent links of the subtree rooted at node.
+   * @return the black height of the subtree (counting null leaves), or -1 when a
+   *      property is violated
+   */
+  private static int blackHeightOf(RedBlackTree.Node<?> node) {
+    if (node == null) return 1;
+    if (node.blackHeight == 0 && !(isBlack(node.left) && isBlack(node.right))) return -1;
+    if (node.left != null && node.left.parent != node) return -1;
+    if (node.right != null && node.right.parent != node) return -1;
+    int leftHeight = blackHeightOf(node.left);
+    int rightHeight = blackHeightOf(node.right);
+    if (leftHeight < 0 || leftHeight != rightHeight) return -1;
+    return leftHeight + node.blackHeight;
+  }
+
+  /**
+   * @return true when node is black, which includes the null leaves
+   */
+  private static boolean isBlack(RedBlackTree.Node<?> node) {
+    return node == null || node.blackHeight == 1;
+  }
+}
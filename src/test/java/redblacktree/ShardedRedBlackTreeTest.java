@@ -0,0 +1,58 @@
+package redblacktree;
+
+/*** JUnit imports ***/
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+/*** JUnit imports end  ***/
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * JUnit tests for ShardedRedBlackTree.
+ */
+public class ShardedRedBlackTreeTest {
+
+  @Test
+  public void testSplitsAndMergesKeepOrder() {
+    ShardedRedBlackTree<Integer> tree = new ShardedRedBlackTree<>(4);
+    for (int i = 0; i < 20000; i++) tree.insert(i);
+    assertTrue(tree.shardCount() >= 4);
+    List<Integer> values = new ArrayList<>();
+    for (int value : tree) values.add(value);
+    assertEquals(20000, values.size());
+    for (int i = 0; i < values.size(); i++) assertEquals(i, values.get(i));
+
+    for (int i = 0; i < 19900; i++) tree.remove(i);
+    assertEquals(100, tree.size());
+    assertEquals(1, tree.shardCount());
+    assertTrue(tree.contains(19950));
+    assertThrows(IllegalArgumentException.class, () -> tree.remove(5));
+    assertThrows(IllegalArgumentException.class, () -> tree.insert(19999));
+  }
+
+  @Test
+  public void testConcurrentWritersOnDisjointRanges() throws InterruptedException {
+    ShardedRedBlackTree<Integer> tree = new ShardedRedBlackTree<>(4);
+    Thread[] writers = new Thread[4];
+    for (int t = 0; t < writers.length; t++) {
+      int base = t * 1_000_000;
+      writers[t] = new Thread(() -> {
+        for (int i = 0; i < 20000; i++) tree.insert(base + i);
+        for (int i = 0; i < 20000; i += 2) tree.remove(base + i);
+      });
+      writers[t].start();
+    }
+    for (Thread writer : writers) writer.join();
+    TreeSet<Integer> expected = new TreeSet<>();
+    for (int t = 0; t < writers.length; t++) {
+      for (int i = 1; i < 20000; i += 2) expected.add(t * 1_000_000 + i);
+    }
+    assertEquals(expected.size(), tree.size());
+    List<Integer> values = new ArrayList<>();
+    for (int value : tree) values.add(value);
+    assertEquals(new ArrayList<>(expected), values);
+  }
+}
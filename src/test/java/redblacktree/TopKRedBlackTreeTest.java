@@ -0,0 +1,76 @@
+package redblacktree;
+
+/*** JUnit imports ***/
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+/*** JUnit imports end  ***/
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * JUnit tests for TopKRedBlackTree.
+ */
+public class TopKRedBlackTreeTest {
+
+  @Test
+  public void testKeepsLargestValues() {
+    TopKRedBlackTree<Integer> tree = new TopKRedBlackTree<>(100);
+    TreeSet<Integer> expected = new TreeSet<>();
+    Random random = new Random(400);
+    for (int i = 0; i < 50000; i++) {
+      int value = random.nextInt(1000000);
+      boolean kept = expected.add(value);
+      if (expected.size() > 100) kept &= expected.pollFirst() != value;
+      assertEquals(kept, tree.offer(value));
+      if (i % 1000 == 999) {
+        // changes through the other methods refresh the cached nodes
+        int removed = expected.pollLast();
+        assertTrue(tree.remove(removed));
+        assertEquals(expected.last(), tree.last());
+      }
+      assertEquals(expected.first(), tree.first());
+      assertEquals(expected.last(), tree.last());
+    }
+    assertEquals(new ArrayList<>(expected), new ArrayList<>(tree));
+    assertEquals(expected.size() < 100 ? null : expected.first(), tree.threshold());
+  }
+
+  @Test
+  public void testThresholdRejectsAndDuplicates() {
+    TopKRedBlackTree<Integer> tree = new TopKRedBlackTree<>(3);
+    assertNull(tree.threshold());
+    assertThrows(java.util.NoSuchElementException.class, () -> tree.first());
+    assertTrue(tree.insert(5));
+    assertTrue(tree.add(1));
+    assertTrue(tree.offer(9));
+    assertEquals(1, tree.threshold());
+    assertFalse(tree.offer(0));
+    assertFalse(tree.insert(0));
+    assertThrows(IllegalArgumentException.class, () -> tree.insert(1));
+    assertThrows(IllegalArgumentException.class, () -> tree.insert(9));
+    assertTrue(tree.offer(7));
+    assertEquals("[ 5, 7, 9 ]", tree.toInOrderString());
+    assertEquals(5, tree.threshold());
+    tree.pollFirst();
+    assertNull(tree.threshold());
+    assertThrows(NullPointerException.class, () -> tree.offer(null));
+  }
+
+  @Test
+  public void testInsertAll() {
+    TopKRedBlackTree<Integer> tree = new TopKRedBlackTree<>(4);
+    tree.insert(6);
+    List<Integer> duplicates = tree.insertAll(Arrays.asList(3, 8, 1, 8, 6, 10, 2, 7));
+    assertEquals(Arrays.asList(6, 8), duplicates);
+    assertEquals("[ 6, 7, 8, 10 ]", tree.toInOrderString());
+    assertEquals(4, tree.size());
+  }
+}